@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.benchmarks;
+
+import com.exallium.djforms.lib.binding.BindingPlan;
+import com.exallium.djforms.lib.codec.ValueCodec;
+import com.exallium.djforms.lib.spec.FieldSpec;
+import com.exallium.djforms.lib.spec.FormSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-form work of DJForm, through the same core APIs it runs on:
+ * describing a class's fields the first time it's seen, resolving a binding
+ * plan the first time a model class is seen, finding it again every time
+ * after, reading and formatting every property as fillViews does, and the
+ * save and validate loops of DJForm.save and isFormValid, parsing through
+ * ParseCaches like EditTextField.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+
+    /**
+     * FormDefinition's first look at a form class, which walks its fields and
+     * describes each.  The model class stands in for a form class here.
+     */
+    @Benchmark
+    public FormSpec describe(FormFixture fixture) {
+        final Field[] members = fixture.modelClass.getDeclaredFields();
+        final FieldSpec<?>[] specs = new FieldSpec[members.length];
+        for (int i = 0; i < members.length; i++)
+            specs[i] = FormFixture.specFor(members[i].getType(), members[i].getName());
+        return FormSpec.of(specs);
+    }
+
+    @Benchmark
+    public BindingPlan resolve(FormFixture fixture) {
+        return BindingPlan.build(fixture.names, fixture.modelClass, fixture.accessorBackend);
+    }
+
+    @Benchmark
+    public BindingPlan lookup(FormFixture fixture) {
+        return fixture.spec.getBindingPlan(fixture.modelClass, fixture.accessorBackend);
+    }
+
+    @Benchmark
+    public String[] fill(FormFixture fixture) {
+        final BindingPlan plan = fixture.spec.getBindingPlan(fixture.modelClass, fixture.accessorBackend);
+        final String[] texts = new String[fixture.fields];
+        for (int i = 0; i < texts.length; i++) {
+            final Object value = plan.getAccessor(i).get(fixture.model);
+            texts[i] = value == null ? null : format(fixture.spec.getField(i).getCodec(), value);
+        }
+        return texts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String format(ValueCodec<?> codec, Object value) {
+        return ((ValueCodec<Object>) codec).format(value);
+    }
+
+    @Benchmark
+    public Object save(FormFixture fixture) {
+        final BindingPlan plan = fixture.spec.getBindingPlan(fixture.modelClass, fixture.accessorBackend);
+        fixture.formFields.save(fixture.states, plan, fixture.model);
+        return fixture.model;
+    }
+
+    @Benchmark
+    public BitSet validate(FormFixture fixture) {
+        return fixture.formFields.validate(fixture.states);
+    }
+
+    @Benchmark
+    public boolean isValid(FormFixture fixture) {
+        return fixture.formFields.isValid(fixture.states);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.benchmarks;
+
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+import com.exallium.djforms.lib.codec.DateCodec;
+import com.exallium.djforms.lib.codec.DoubleCodec;
+import com.exallium.djforms.lib.codec.IntCodec;
+import com.exallium.djforms.lib.codec.ParseCache;
+import com.exallium.djforms.lib.codec.TextCodec;
+import com.exallium.djforms.lib.codec.ValueCodec;
+import com.exallium.djforms.lib.spec.FieldSpec;
+import com.exallium.djforms.lib.spec.FieldStates;
+import com.exallium.djforms.lib.spec.FormFields;
+import com.exallium.djforms.lib.spec.FormSpec;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * A form's worth of fields bound to one of the generated models.  Property i
+ * is a String, int, double or Date in turn, as laid out by generateModels.
+ * The spec has a field of the same kind for each, and texts holds the text
+ * each field would.  fields runs the spec the way DJForm's fields do, parsing
+ * each non-text field through its own ParseCache like EditTextField.
+ *
+ * The generated models have no ModelBinders, as BindModel needs Android, so
+ * GENERATED measures looking for one and falling back to reflection.
+ */
+@State(Scope.Benchmark)
+public class FormFixture {
+
+    // DateDialogField.DEFAULT_PATTERN, which we can't see from a plain JVM
+    static final DateCodec DATE_CODEC = DateCodec.of("MMM dd, yyyy", Locale.CANADA);
+
+    public enum Style {
+        /** Public fields */
+        FIELDS,
+        /** Private fields behind getters and setters */
+        BEANS
+    }
+
+    @Param({"10", "100", "1000"})
+    public int fields;
+
+    @Param({"FIELDS", "BEANS"})
+    public Style style;
+
+    @Param({"REFLECTION", "GENERATED", "SPECIALIZED"})
+    public String backend;
+
+    Class<?> modelClass;
+    AccessorBackend accessorBackend;
+    String[] names;
+    FormSpec spec;
+    String[] texts;
+    FieldStates states;
+    FormFields formFields;
+    Object model;
+
+    @Setup
+    public void setUp() throws Exception {
+        final String prefix = style == Style.FIELDS ? "FieldModel" : "BeanModel";
+        modelClass = Class.forName("com.exallium.djforms.benchmarks.models." + prefix + fields);
+        accessorBackend = backendNamed(backend);
+
+        names = new String[fields];
+        texts = new String[fields];
+        final FieldSpec<?>[] specs = new FieldSpec[fields];
+        for (int i = 0; i < fields; i++) {
+            names[i] = "p" + i;
+            specs[i] = fieldSpec(i, names[i]);
+            texts[i] = sampleText(i);
+        }
+        spec = FormSpec.of(specs);
+        states = new FieldStates() {
+            @Override
+            public Object get(int index) {
+                return texts[index];
+            }
+        };
+        formFields = new CachedFields(spec);
+
+        model = modelClass.newInstance();
+        spec.save(texts, model, accessorBackend);
+    }
+
+    /**
+     * EditTextField's isStateValid and writeValue, over a whole spec
+     */
+    static final class CachedFields extends FormFields {
+
+        private final FormSpec spec;
+        // Null for text fields, which EditTextField doesn't parse
+        private final ParseCache<?>[] caches;
+
+        CachedFields(FormSpec spec) {
+            this.spec = spec;
+            this.caches = new ParseCache[spec.size()];
+            for (int i = 0; i < caches.length; i++) {
+                final ValueCodec<?> codec = spec.getField(i).getCodec();
+                if (codec != TextCodec.INSTANCE)
+                    caches[i] = newCache(codec);
+            }
+        }
+
+        private static <T> ParseCache<T> newCache(ValueCodec<T> codec) {
+            return new ParseCache<>(codec);
+        }
+
+        @Override
+        public int size() {
+            return caches.length;
+        }
+
+        @Override
+        public boolean isValid(int index, Object state) {
+            final FieldSpec<?> field = spec.getField(index);
+            final ParseCache<?> cache = caches[index];
+            return cache == null ? field.isValid((String) state) : field.accepts(cache.parse((String) state));
+        }
+
+        @Override
+        protected void write(int index, PropertyAccessor accessor, Object model, Object state) {
+            final FieldSpec<?> field = spec.getField(index);
+            final ParseCache<?> cache = caches[index];
+            final String text = state == null ? "" : (String) state;
+            FieldSpec.writeValue(accessor, model, cache == null ? text : field.toValue(cache.parse(text)));
+        }
+    }
+
+    static FieldSpec<?> specFor(Class<?> type, String name) {
+        if (type == int.class)
+            return FieldSpec.of(name, IntCodec.INSTANCE);
+        if (type == double.class)
+            return FieldSpec.of(name, DoubleCodec.INSTANCE);
+        if (type == Date.class)
+            return FieldSpec.of(name, DATE_CODEC);
+        return FieldSpec.text(name);
+    }
+
+    private static FieldSpec<?> fieldSpec(int index, String name) {
+        switch (index % 4) {
+            case 1:
+                return FieldSpec.of(name, IntCodec.INSTANCE);
+            case 2:
+                return FieldSpec.of(name, DoubleCodec.INSTANCE);
+            case 3:
+                return FieldSpec.of(name, DATE_CODEC);
+            default:
+                return FieldSpec.text(name);
+        }
+    }
+
+    private static String sampleText(int index) {
+        switch (index % 4) {
+            case 1:
+                return IntCodec.INSTANCE.format(index * 7);
+            case 2:
+                return DoubleCodec.INSTANCE.format(index + 0.25);
+            case 3:
+                return DATE_CODEC.format(new Date(1432512000000L + index * 86400000L));
+            default:
+                return "Value " + index;
+        }
+    }
+
+    private static AccessorBackend backendNamed(String name) {
+        if ("REFLECTION".equals(name))
+            return AccessorBackend.REFLECTION;
+        if ("SPECIALIZED".equals(name))
+            return AccessorBackend.SPECIALIZED;
+        if ("GENERATED".equals(name))
+            return AccessorBackend.GENERATED;
+        throw new IllegalArgumentException("Unknown backend " + name);
+    }
+}
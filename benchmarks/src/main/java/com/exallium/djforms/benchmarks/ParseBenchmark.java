@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.benchmarks;
+
+import com.exallium.djforms.lib.codec.DoubleCodec;
+import com.exallium.djforms.lib.codec.IntCodec;
+import com.exallium.djforms.lib.codec.LongCodec;
+import com.exallium.djforms.lib.codec.ParseCache;
+import com.exallium.djforms.lib.codec.Parsed;
+import com.exallium.djforms.lib.spec.FieldSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a single field's text, as DateDialogField and the numeric fields do.
+ * newDateFormat is how DateDialogField parsed before it had a codec, for
+ * comparison.  Text fields validate and save through a ParseCache, which is
+ * measured hitting, missing, and feeding the field's spec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+    private final String dateText = "May 25, 2015";
+    private final String intText = "123456";
+    private final String longText = "1234567890123";
+    private final String doubleText = "12345.678";
+    // Alternated, so every parse misses
+    private final String[] dateTexts = {"May 25, 2015", "May 26, 2015"};
+    private final ParseCache<Date> dateCache = new ParseCache<>(FormFixture.DATE_CODEC);
+    private final ParseCache<Integer> intCache = new ParseCache<>(IntCodec.INSTANCE);
+    private final FieldSpec<Date> dateSpec = FieldSpec.of("date", FormFixture.DATE_CODEC);
+    private int next = 0;
+
+    @Benchmark
+    public Date newDateFormat() throws ParseException {
+        return new SimpleDateFormat("MMM dd, yyyy", Locale.CANADA).parse(dateText);
+    }
+
+    @Benchmark
+    public Date dateCodec() throws ParseException {
+        return FormFixture.DATE_CODEC.parse(dateText);
+    }
+
+    @Benchmark
+    public Parsed<Date> dateCacheHit() {
+        return dateCache.parse(dateText);
+    }
+
+    @Benchmark
+    public Parsed<Date> dateCacheMiss() {
+        return dateCache.parse(dateTexts[next++ & 1]);
+    }
+
+    @Benchmark
+    public Parsed<Integer> intCacheHit() {
+        return intCache.parse(intText);
+    }
+
+    /**
+     * EditTextField.isStateValid
+     */
+    @Benchmark
+    public boolean acceptCached() {
+        return dateSpec.accepts(dateCache.parse(dateText));
+    }
+
+    /**
+     * EditTextField.toValue, on save
+     */
+    @Benchmark
+    public Date toValueCached() {
+        return dateSpec.toValue(dateCache.parse(dateText));
+    }
+
+    @Benchmark
+    public Integer intCodec() throws ParseException {
+        return IntCodec.INSTANCE.parse(intText);
+    }
+
+    @Benchmark
+    public Long longCodec() throws ParseException {
+        return LongCodec.INSTANCE.parse(longText);
+    }
+
+    @Benchmark
+    public Double doubleCodec() throws ParseException {
+        return DoubleCodec.INSTANCE.parse(doubleText);
+    }
+}
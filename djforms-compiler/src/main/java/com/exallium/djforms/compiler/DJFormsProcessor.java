@@ -0,0 +1,282 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.compiler;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates reflection-free binders for DJForms.
+ *
+ * Every concrete DJForm subclass in the compilation gets a FormBinder which
+ * hands back its public DJFields directly, and every model named in a
+ * {@literal @}BindModel annotation gets a ModelBinder with direct field access
+ * and direct getter / setter calls.  DJForm picks these up at runtime and only
+ * falls back to reflection when they are missing.
+ *
+ * The library types are referenced by name only, so this module doesn't need
+ * the Android library on its classpath.
+ */
+@SupportedAnnotationTypes("*")
+public class DJFormsProcessor extends AbstractProcessor {
+
+    static final String DJFORM = "com.exallium.djforms.lib.DJForm";
+    static final String DJFIELD = "com.exallium.djforms.lib.DJField";
+    static final String BIND_MODEL = "com.exallium.djforms.lib.BindModel";
+    static final String FORM_SUFFIX = "$$DJFormBinder";
+    static final String MODEL_SUFFIX = "$$DJModelBinder";
+
+    private final Set<String> generated = new HashSet<>();
+
+    private TypeElement formElement;
+    private TypeMirror formType;
+    private TypeMirror fieldType;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        formElement = processingEnv.getElementUtils().getTypeElement(DJFORM);
+        final TypeElement fieldElement = processingEnv.getElementUtils().getTypeElement(DJFIELD);
+
+        // Not compiling against DJForms, nothing to do.
+        if (formElement == null || fieldElement == null)
+            return false;
+
+        formType = erasure(formElement.asType());
+        fieldType = erasure(fieldElement.asType());
+
+        for (Element element : roundEnv.getRootElements())
+            scan(element);
+
+        // We look at everything, so never claim annotations for ourselves.
+        return false;
+    }
+
+    private void scan(Element element) {
+        if (element.getKind() != ElementKind.CLASS)
+            return;
+
+        final TypeElement type = (TypeElement) element;
+        if (!type.equals(formElement) && isSubtype(type.asType(), formType))
+            processForm(type);
+
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements()))
+            scan(nested);
+    }
+
+    private void processForm(TypeElement form) {
+        if (form.getModifiers().contains(Modifier.ABSTRACT))
+            return;
+
+        if (!isReachable(form)) {
+            warn(form, "Can't generate a binder for a private form, falling back to reflection");
+            return;
+        }
+
+        final List<VariableElement> fields = new ArrayList<>();
+        collectFields(form, fields, new HashSet<TypeElement>());
+
+        write(form, FORM_SUFFIX, new FormBinderWriter(this, form, fields).write());
+
+        for (TypeElement model : boundModels(form))
+            processModel(form, model);
+    }
+
+    /**
+     * Collects a form's public DJFields in Class.getFields order, which forms
+     * without a binder use, so both agree on field indexes: a class's own
+     * fields, then those of its interfaces, each only once, then those of its
+     * superclass, up to DJForm.
+     */
+    private void collectFields(TypeElement type, List<VariableElement> fields, Set<TypeElement> interfaces) {
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+            if (field.getModifiers().contains(Modifier.PUBLIC) && isSubtype(field.asType(), fieldType))
+                fields.add(field);
+
+        for (TypeMirror mirror : type.getInterfaces()) {
+            final TypeElement implemented = (TypeElement) ((DeclaredType) mirror).asElement();
+            if (interfaces.add(implemented))
+                collectFields(implemented, fields, interfaces);
+        }
+
+        final TypeElement superclass = superclassOf(type);
+        if (superclass != null && !superclass.equals(formElement))
+            collectFields(superclass, fields, interfaces);
+    }
+
+    private void processModel(TypeElement form, TypeElement model) {
+        if (!isReachable(model)) {
+            warn(form, "Can't generate a binder for private model " + model.getQualifiedName()
+                    + ", falling back to reflection");
+            return;
+        }
+
+        final ModelBinderWriter writer = new ModelBinderWriter(this, model);
+        for (VariableElement field : ElementFilter.fieldsIn(allMembers(model))) {
+            final Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.STATIC))
+                writer.addField(field);
+        }
+        for (ExecutableElement method : ElementFilter.methodsIn(allMembers(model))) {
+            final Set<Modifier> modifiers = method.getModifiers();
+            final Element owner = method.getEnclosingElement();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)
+                    || ((TypeElement) owner).getQualifiedName().contentEquals("java.lang.Object"))
+                continue;
+
+            final String name = method.getSimpleName().toString();
+            final int arity = method.getParameters().size();
+            if (name.length() > 3 && name.startsWith("get") && arity == 0
+                    && method.getReturnType().getKind() != TypeKind.VOID)
+                writer.addGetter(name.substring(3), method);
+            else if (name.length() > 3 && name.startsWith("set") && arity == 1)
+                writer.addSetter(name.substring(3), method);
+        }
+
+        write(model, MODEL_SUFFIX, writer.write());
+    }
+
+    private List<TypeElement> boundModels(TypeElement form) {
+        final List<TypeElement> models = new ArrayList<>();
+        for (AnnotationMirror mirror : form.getAnnotationMirrors()) {
+            final TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotation.getQualifiedName().contentEquals(BIND_MODEL))
+                continue;
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : mirror.getElementValues().entrySet()) {
+                if (!entry.getKey().getSimpleName().contentEquals("value"))
+                    continue;
+
+                @SuppressWarnings("unchecked")
+                final List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) entry.getValue().getValue();
+                for (AnnotationValue value : values)
+                    models.add((TypeElement) ((DeclaredType) value.getValue()).asElement());
+            }
+        }
+        return models;
+    }
+
+    private void write(TypeElement origin, String suffix, String source) {
+        final String packageName = packageOf(origin);
+        final String binderName = binderSimpleName(origin, suffix);
+        final String qualifiedName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+
+        // Models shared by several forms are only written once.
+        if (!generated.add(qualifiedName))
+            return;
+
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, origin);
+            final Writer writer = file.openWriter();
+            try {
+                writer.write(source);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + qualifiedName + ": " + e.getMessage(), origin);
+        }
+    }
+
+    /**
+     * A binder lives in the same package as its origin, so the origin and
+     * everything enclosing it must not be private.
+     */
+    private boolean isReachable(TypeElement type) {
+        Element current = type;
+        while (current instanceof TypeElement) {
+            if (current.getModifiers().contains(Modifier.PRIVATE))
+                return false;
+            current = current.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED)
+            return null;
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    private List<? extends Element> allMembers(TypeElement type) {
+        return processingEnv.getElementUtils().getAllMembers(type);
+    }
+
+    private void warn(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+    String packageOf(TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    /**
+     * Binders are named after the binary name of their origin, which is what
+     * the runtime lookup has on hand: Outer$Inner becomes Outer$Inner$$Suffix.
+     */
+    String binderSimpleName(TypeElement origin, String suffix) {
+        final String packageName = packageOf(origin);
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(origin).toString();
+        return (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + suffix;
+    }
+
+    TypeMirror erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+
+    boolean isSubtype(TypeMirror type, TypeMirror of) {
+        return processingEnv.getTypeUtils().isSubtype(erasure(type), of);
+    }
+}
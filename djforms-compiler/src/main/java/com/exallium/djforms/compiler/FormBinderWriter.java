@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.compiler;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import java.util.List;
+
+/**
+ * Writes the FormBinder source for a single DJForm subclass
+ */
+final class FormBinderWriter {
+
+    private final DJFormsProcessor processor;
+    private final TypeElement form;
+    private final List<VariableElement> fields;
+
+    FormBinderWriter(DJFormsProcessor processor, TypeElement form, List<VariableElement> fields) {
+        this.processor = processor;
+        this.form = form;
+        this.fields = fields;
+    }
+
+    String write() {
+        final String packageName = processor.packageOf(form);
+        final String formName = processor.erasure(form.asType()).toString();
+        final StringBuilder out = new StringBuilder();
+
+        if (!packageName.isEmpty())
+            out.append("package ").append(packageName).append(";\n\n");
+
+        out.append("import com.exallium.djforms.lib.DJField;\n")
+           .append("import com.exallium.djforms.lib.DJForm;\n")
+           .append("import com.exallium.djforms.lib.FormBinder;\n\n")
+           .append("// Generated by djforms-compiler.  Do not edit.\n")
+           .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+           .append("public final class ").append(processor.binderSimpleName(form, DJFormsProcessor.FORM_SUFFIX))
+           .append(" extends FormBinder {\n\n");
+
+        out.append("    private static final String[] MEMBER_NAMES = {");
+        for (int i = 0; i < fields.size(); i++) {
+            out.append(i == 0 ? " " : ", ").append('"').append(fields.get(i).getSimpleName()).append('"');
+        }
+        out.append(" };\n\n");
+
+        out.append("    @Override\n")
+           .append("    public String[] getMemberNames() {\n")
+           .append("        return MEMBER_NAMES;\n")
+           .append("    }\n\n");
+
+        out.append("    @Override\n")
+           .append("    public DJField[] getFields(DJForm form) {\n")
+           .append("        final ").append(formName).append(" f = (").append(formName).append(") form;\n")
+           .append("        return new DJField[] {");
+        for (int i = 0; i < fields.size(); i++) {
+            final VariableElement field = fields.get(i);
+            out.append(i == 0 ? "\n            " : ",\n            ");
+            final String owner = processor.erasure(field.getEnclosingElement().asType()).toString();
+            if (field.getModifiers().contains(Modifier.STATIC))
+                out.append(owner);
+            else if (field.getEnclosingElement().equals(form))
+                out.append("f");
+            else
+                // Cast up so inherited fields hidden by the form are still reachable
+                out.append("((").append(owner).append(") f)");
+            out.append('.').append(field.getSimpleName());
+        }
+        out.append("\n        };\n")
+           .append("    }\n")
+           .append("}\n");
+
+        return out.toString();
+    }
+}
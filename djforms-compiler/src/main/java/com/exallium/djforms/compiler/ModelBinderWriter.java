@@ -0,0 +1,361 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.compiler;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the ModelBinder source for a single model class.
+ *
+ * Properties resolve the same way BindingPlan resolves them with reflection:
+ * a public field wins, otherwise getX / setX methods are used, and a name
+ * reaches the methods if capitalizing it gives X.
+ */
+final class ModelBinderWriter {
+
+    private final DJFormsProcessor processor;
+    private final TypeElement model;
+    private final Map<String, Property> fields = new LinkedHashMap<>();
+    private final Map<String, Property> methods = new LinkedHashMap<>();
+
+    ModelBinderWriter(DJFormsProcessor processor, TypeElement model) {
+        this.processor = processor;
+        this.model = model;
+    }
+
+    void addField(VariableElement field) {
+        final Property property = new Property();
+        property.field = field;
+        fields.put(field.getSimpleName().toString(), property);
+    }
+
+    void addGetter(String suffix, ExecutableElement getter) {
+        methodProperty(suffix).getter = getter;
+    }
+
+    void addSetter(String suffix, ExecutableElement setter) {
+        methodProperty(suffix).setters.add(setter);
+    }
+
+    private Property methodProperty(String suffix) {
+        Property property = methods.get(suffix);
+        if (property == null) {
+            property = new Property();
+            methods.put(suffix, property);
+        }
+        return property;
+    }
+
+    String write() {
+        final List<Property> properties = resolve();
+        final String packageName = processor.packageOf(model);
+        final String modelName = processor.erasure(model.asType()).toString();
+        final StringBuilder out = new StringBuilder();
+
+        if (!packageName.isEmpty())
+            out.append("package ").append(packageName).append(";\n\n");
+
+        out.append("import com.exallium.djforms.lib.binding.ModelBinder;\n\n")
+           .append("// Generated by djforms-compiler.  Do not edit.\n")
+           .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+           .append("public final class ").append(processor.binderSimpleName(model, DJFormsProcessor.MODEL_SUFFIX))
+           .append(" extends ModelBinder {\n\n");
+
+        // indexOf
+        out.append("    @Override\n")
+           .append("    public int indexOf(String name) {\n")
+           .append("        switch (name) {\n");
+        for (int i = 0; i < properties.size(); i++) {
+            out.append("            ");
+            for (String label : properties.get(i).labels)
+                out.append("case \"").append(label).append("\": ");
+            out.append("return ").append(i).append(";\n");
+        }
+        out.append("            default: return -1;\n")
+           .append("        }\n")
+           .append("    }\n\n");
+
+        // canRead / canWrite
+        final List<Integer> readable = new ArrayList<>();
+        final List<Integer> writable = new ArrayList<>();
+        for (int i = 0; i < properties.size(); i++) {
+            if (properties.get(i).canRead())
+                readable.add(i);
+            if (properties.get(i).canWrite())
+                writable.add(i);
+        }
+        writeIndexCheck(out, "canRead", readable);
+        writeIndexCheck(out, "canWrite", writable);
+
+        // get
+        out.append("    @Override\n")
+           .append("    public Object get(Object model, int index) {\n")
+           .append("        final ").append(modelName).append(" m = (").append(modelName).append(") model;\n")
+           .append("        switch (index) {\n");
+        for (Integer i : readable) {
+            final Property property = properties.get(i);
+            out.append("            case ").append(i).append(": return m.");
+            if (property.field != null)
+                out.append(property.field.getSimpleName());
+            else
+                out.append(property.getter.getSimpleName()).append("()");
+            out.append(";\n");
+        }
+        out.append("            default: return null;\n")
+           .append("        }\n")
+           .append("    }\n\n");
+
+        // set
+        out.append("    @Override\n")
+           .append("    public void set(Object model, int index, Object value) {\n")
+           .append("        final ").append(modelName).append(" m = (").append(modelName).append(") model;\n")
+           .append("        switch (index) {\n");
+        for (Integer i : writable) {
+            out.append("            case ").append(i).append(":\n");
+            final Property property = properties.get(i);
+            if (property.field != null)
+                writeFieldSet(out, property.field);
+            else
+                writeSetterCall(out, property.setters);
+            out.append("                return;\n");
+        }
+        out.append("        }\n")
+           .append("    }\n");
+
+        // setInt / setLong / setDouble
+        writePrimitiveSet(out, properties, writable, modelName, TypeKind.INT);
+        writePrimitiveSet(out, properties, writable, modelName, TypeKind.LONG);
+        writePrimitiveSet(out, properties, writable, modelName, TypeKind.DOUBLE);
+
+        out.append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * Assigns indices and the names each property answers to.  Fields come
+     * first and keep their exact names, so methods only pick up the names
+     * which reflection would have sent their way.
+     */
+    private List<Property> resolve() {
+        final List<Property> properties = new ArrayList<>();
+        final Set<String> taken = new LinkedHashSet<>();
+        for (Map.Entry<String, Property> entry : fields.entrySet()) {
+            entry.getValue().labels.add(entry.getKey());
+            taken.add(entry.getKey());
+            properties.add(entry.getValue());
+        }
+        for (Map.Entry<String, Property> entry : methods.entrySet()) {
+            final String suffix = entry.getKey();
+            final Property property = entry.getValue();
+            final String decapitalized = suffix.substring(0, 1).toLowerCase() + suffix.substring(1);
+            for (String label : new String[] { decapitalized, suffix }) {
+                if (label.substring(0, 1).toUpperCase().equals(suffix.substring(0, 1)) && !taken.contains(label)) {
+                    property.labels.add(label);
+                    taken.add(label);
+                }
+            }
+            if (!property.labels.isEmpty())
+                properties.add(property);
+        }
+        return properties;
+    }
+
+    private void writeIndexCheck(StringBuilder out, String method, List<Integer> indices) {
+        out.append("    @Override\n")
+           .append("    public boolean ").append(method).append("(int index) {\n");
+        if (indices.isEmpty()) {
+            out.append("        return false;\n");
+        } else {
+            out.append("        switch (index) {\n")
+               .append("            ");
+            for (Integer i : indices)
+                out.append("case ").append(i).append(": ");
+            out.append("return true;\n")
+               .append("            default: return false;\n")
+               .append("        }\n");
+        }
+        out.append("    }\n\n");
+    }
+
+    /**
+     * Mirrors Field.set: nulls go into reference fields, and primitive fields
+     * take any boxed value that widens into them.
+     */
+    private void writeFieldSet(StringBuilder out, VariableElement field) {
+        final TypeMirror type = field.asType();
+        final String name = field.getSimpleName().toString();
+        if (type.getKind().isPrimitive()) {
+            final String[] boxes = widening(type.getKind());
+            for (int i = 0; i < boxes.length; i++) {
+                out.append(i == 0 ? "                if" : "                else if")
+                   .append(" (value instanceof ").append(boxes[i]).append(")\n")
+                   .append("                    m.").append(name).append(" = (").append(boxes[i]).append(") value;\n");
+            }
+        } else {
+            final String erased = processor.erasure(type).toString();
+            out.append("                if (value == null || value instanceof ").append(erased).append(")\n")
+               .append("                    m.").append(name).append(" = (").append(erased).append(") value;\n");
+        }
+    }
+
+    /**
+     * Mirrors MethodAccessor: nulls are skipped, and the most specific setter
+     * able to take the value is called.
+     */
+    private void writeSetterCall(StringBuilder out, List<ExecutableElement> setters) {
+        final List<ExecutableElement> ordered = new ArrayList<>();
+        for (ExecutableElement setter : setters) {
+            int at = ordered.size();
+            for (int i = 0; i < ordered.size(); i++) {
+                if (processor.isSubtype(parameterOf(setter), processor.erasure(parameterOf(ordered.get(i))))) {
+                    at = i;
+                    break;
+                }
+            }
+            ordered.add(at, setter);
+        }
+
+        for (int i = 0; i < ordered.size(); i++) {
+            final ExecutableElement setter = ordered.get(i);
+            final TypeMirror parameter = parameterOf(setter);
+            final String type = parameter.getKind().isPrimitive()
+                    ? box(parameter.getKind())
+                    : processor.erasure(parameter).toString();
+            out.append(i == 0 ? "                if" : "                else if")
+               .append(" (value instanceof ").append(type).append(")\n")
+               .append("                    m.").append(setter.getSimpleName())
+               .append("((").append(type).append(") value);\n");
+        }
+    }
+
+    /**
+     * Writes setInt, setLong or setDouble, which store the primitive straight
+     * into fields it widens into, or pass it to the closest primitive setter.
+     * Other properties are left to ModelBinder, which boxes and calls set.
+     */
+    private void writePrimitiveSet(StringBuilder out, List<Property> properties, List<Integer> writable,
+                                   String modelName, TypeKind kind) {
+        final StringBuilder cases = new StringBuilder();
+        for (Integer i : writable) {
+            final Property property = properties.get(i);
+            if (property.field != null) {
+                if (rank(property.field.asType().getKind()) >= rank(kind))
+                    cases.append("            case ").append(i).append(": m.").append(property.field.getSimpleName())
+                         .append(" = value; return;\n");
+            } else {
+                ExecutableElement closest = null;
+                for (ExecutableElement setter : property.setters) {
+                    final int rank = rank(parameterOf(setter).getKind());
+                    if (rank >= rank(kind) && (closest == null || rank < rank(parameterOf(closest).getKind())))
+                        closest = setter;
+                }
+                if (closest != null)
+                    cases.append("            case ").append(i).append(": m.").append(closest.getSimpleName())
+                         .append("(value); return;\n");
+            }
+        }
+        if (cases.length() == 0)
+            return;
+
+        final String type = kind.name().toLowerCase();
+        final String method = "set" + Character.toUpperCase(type.charAt(0)) + type.substring(1);
+        out.append("\n")
+           .append("    @Override\n")
+           .append("    public void ").append(method).append("(Object model, int index, ").append(type).append(" value) {\n")
+           .append("        final ").append(modelName).append(" m = (").append(modelName).append(") model;\n")
+           .append("        switch (index) {\n")
+           .append(cases)
+           .append("            default: super.").append(method).append("(model, index, value);\n")
+           .append("        }\n")
+           .append("    }\n");
+    }
+
+    /**
+     * @return Where kind sits in the numeric widening order, or -1 if it
+     * doesn't widen at all
+     */
+    private static int rank(TypeKind kind) {
+        switch (kind) {
+            case BYTE: return 0;
+            case SHORT: return 1;
+            case INT: return 2;
+            case LONG: return 3;
+            case FLOAT: return 4;
+            case DOUBLE: return 5;
+            default: return -1;
+        }
+    }
+
+    private static TypeMirror parameterOf(ExecutableElement setter) {
+        return setter.getParameters().get(0).asType();
+    }
+
+    private static String box(TypeKind kind) {
+        return widening(kind)[0];
+    }
+
+    /**
+     * @return The boxed types which unbox and widen into kind, exact match first
+     */
+    private static String[] widening(TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN: return new String[] { "Boolean" };
+            case BYTE: return new String[] { "Byte" };
+            case SHORT: return new String[] { "Short", "Byte" };
+            case CHAR: return new String[] { "Character" };
+            case INT: return new String[] { "Integer", "Short", "Character", "Byte" };
+            case LONG: return new String[] { "Long", "Integer", "Short", "Character", "Byte" };
+            case FLOAT: return new String[] { "Float", "Long", "Integer", "Short", "Character", "Byte" };
+            case DOUBLE: return new String[] { "Double", "Float", "Long", "Integer", "Short", "Character", "Byte" };
+            default: throw new IllegalArgumentException("Not a primitive: " + kind);
+        }
+    }
+
+    private static final class Property {
+        final Set<String> labels = new LinkedHashSet<>();
+        final List<ExecutableElement> setters = new ArrayList<>();
+        VariableElement field;
+        ExecutableElement getter;
+
+        boolean canRead() {
+            return field != null || getter != null;
+        }
+
+        boolean canWrite() {
+            return field != null ? !field.getModifiers().contains(Modifier.FINAL) : !setters.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiles small forms against stand-ins for the library types and checks
+ * the binders the processor writes for them.
+ */
+public class DJFormsProcessorTest {
+
+    private static final String[][] LIBRARY = {
+        { "com.exallium.djforms.lib.DJForm",
+          "package com.exallium.djforms.lib; public abstract class DJForm {}" },
+        { "com.exallium.djforms.lib.DJField",
+          "package com.exallium.djforms.lib; public class DJField<V> {}" },
+        { "com.exallium.djforms.lib.BindModel",
+          "package com.exallium.djforms.lib; public @interface BindModel { Class<?>[] value(); }" },
+        { "com.exallium.djforms.lib.FormBinder",
+          "package com.exallium.djforms.lib; public abstract class FormBinder {"
+                + " public abstract String[] getMemberNames();"
+                + " public abstract DJField[] getFields(DJForm form); }" },
+        { "com.exallium.djforms.lib.binding.ModelBinder",
+          "package com.exallium.djforms.lib.binding; public abstract class ModelBinder {"
+                + " public abstract int indexOf(String name);"
+                + " public abstract boolean canRead(int index);"
+                + " public abstract boolean canWrite(int index);"
+                + " public abstract Object get(Object model, int index);"
+                + " public abstract void set(Object model, int index, Object value);"
+                + " public void setInt(Object model, int index, int value) { set(model, index, value); }"
+                + " public void setLong(Object model, int index, long value) { set(model, index, value); }"
+                + " public void setDouble(Object model, int index, double value) { set(model, index, value); } }" },
+    };
+
+    private static final String FORMS =
+            "package demo;\n"
+            + "import com.exallium.djforms.lib.*;\n"
+            + "public class Forms {\n"
+            + "    public static class Contact {\n"
+            + "        public String name;\n"
+            + "        public final String fixed = \"fixed\";\n"
+            + "        private long qty;\n"
+            + "        public long getQty() { return qty; }\n"
+            + "        public void setQty(long qty) { this.qty = qty; }\n"
+            + "        public double total;\n"
+            + "    }\n"
+            + "    @BindModel(Contact.class)\n"
+            + "    public static class ContactForm extends DJForm {\n"
+            + "        public DJField<Object> name = new DJField<>();\n"
+            + "        public DJField<Object> qty = new DJField<>();\n"
+            + "        public String notAField = \"\";\n"
+            + "    }\n"
+            + "    public static abstract class AbstractForm extends DJForm {}\n"
+            + "    public interface Shared {\n"
+            + "        DJField<Object> SHARED = new DJField<>();\n"
+            + "    }\n"
+            + "    public static class BaseForm extends DJForm implements Shared {\n"
+            + "        public DJField<Object> name = new DJField<>();\n"
+            + "        public DJField<Object> base = new DJField<>();\n"
+            + "    }\n"
+            + "    public static class SubForm extends BaseForm implements Shared {\n"
+            + "        public DJField<Object> sub = new DJField<>();\n"
+            + "        public DJField<Object> name = new DJField<>();\n"
+            + "    }\n"
+            + "}\n";
+
+    private File outputDir;
+
+    @Before
+    public void setUp() throws Exception {
+        outputDir = File.createTempFile("djforms", "");
+        assertTrue(outputDir.delete());
+        assertTrue(outputDir.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        delete(outputDir);
+    }
+
+    @Test
+    public void testFormBinder() throws Exception {
+        final ClassLoader loader = compile();
+        final Class<?> binderClass = loader.loadClass("demo.Forms$ContactForm$$DJFormBinder");
+        final Object binder = binderClass.newInstance();
+        final Object form = loader.loadClass("demo.Forms$ContactForm").newInstance();
+
+        final String[] names = (String[]) binderClass.getMethod("getMemberNames").invoke(binder);
+        assertArrayEquals(new String[] { "name", "qty" }, names);
+
+        final Object[] fields = (Object[]) binderClass
+                .getMethod("getFields", loader.loadClass("com.exallium.djforms.lib.DJForm"))
+                .invoke(binder, form);
+        assertEquals(2, fields.length);
+        assertSame(form.getClass().getField("name").get(form), fields[0]);
+        assertSame(form.getClass().getField("qty").get(form), fields[1]);
+    }
+
+    @Test
+    public void testSubclassedFormsFollowReflectionOrder() throws Exception {
+        final ClassLoader loader = compile();
+        final Class<?> binderClass = loader.loadClass("demo.Forms$SubForm$$DJFormBinder");
+        final Object binder = binderClass.newInstance();
+        final Class<?> formClass = loader.loadClass("demo.Forms$SubForm");
+        final Object form = formClass.newInstance();
+
+        // What forms without a binder find, see FormDefinition
+        final Class<?> fieldClass = loader.loadClass("com.exallium.djforms.lib.DJField");
+        final List<String> names = new ArrayList<>();
+        final List<Object> reflected = new ArrayList<>();
+        for (Field member : formClass.getFields()) {
+            if (fieldClass.isAssignableFrom(member.getType())) {
+                names.add(member.getName());
+                reflected.add(member.get(form));
+            }
+        }
+        assertEquals(Arrays.asList("sub", "name", "SHARED", "name", "base"), names);
+
+        assertEquals(names, Arrays.asList((String[]) binderClass.getMethod("getMemberNames").invoke(binder)));
+        final Object[] fields = (Object[]) binderClass
+                .getMethod("getFields", loader.loadClass("com.exallium.djforms.lib.DJForm"))
+                .invoke(binder, form);
+        assertEquals(reflected.size(), fields.length);
+        for (int i = 0; i < fields.length; i++)
+            assertSame(reflected.get(i), fields[i]);
+    }
+
+    @Test
+    public void testNoBinderForAbstractForm() throws Exception {
+        final ClassLoader loader = compile();
+        try {
+            loader.loadClass("demo.Forms$AbstractForm$$DJFormBinder");
+            fail("Abstract forms should not get a binder");
+        } catch (ClassNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void testModelBinder() throws Exception {
+        final ClassLoader loader = compile();
+        final Class<?> binderClass = loader.loadClass("demo.Forms$Contact$$DJModelBinder");
+        final Object binder = binderClass.newInstance();
+        final Object model = loader.loadClass("demo.Forms$Contact").newInstance();
+
+        final int name = indexOf(binder, "name");
+        final int fixed = indexOf(binder, "fixed");
+        final int qty = indexOf(binder, "qty");
+        final int total = indexOf(binder, "total");
+        assertEquals(qty, indexOf(binder, "Qty"));
+        assertEquals(-1, indexOf(binder, "missing"));
+
+        assertTrue(call(binder, "canWrite", name));
+        assertFalse(call(binder, "canWrite", fixed));
+        assertTrue(call(binder, "canRead", fixed));
+
+        set(binder, model, name, "Hello");
+        set(binder, model, qty, 25L);
+        set(binder, model, total, 3);
+
+        assertEquals("Hello", get(binder, model, name));
+        assertEquals(25L, get(binder, model, qty));
+        assertEquals(3.0, get(binder, model, total));
+
+        // Nulls go into reference fields but are skipped by setters
+        set(binder, model, name, null);
+        set(binder, model, qty, null);
+        assertNull(get(binder, model, name));
+        assertEquals(25L, get(binder, model, qty));
+    }
+
+    @Test
+    public void testPrimitiveSetters() throws Exception {
+        final ClassLoader loader = compile();
+        final Class<?> binderClass = loader.loadClass("demo.Forms$Contact$$DJModelBinder");
+        final Object binder = binderClass.newInstance();
+        final Object model = loader.loadClass("demo.Forms$Contact").newInstance();
+
+        final int name = indexOf(binder, "name");
+        final int qty = indexOf(binder, "qty");
+        final int total = indexOf(binder, "total");
+
+        // Widened straight into the long setter and the double field
+        binderClass.getMethod("setInt", Object.class, Integer.TYPE, Integer.TYPE).invoke(binder, model, qty, 7);
+        binderClass.getMethod("setLong", Object.class, Integer.TYPE, Long.TYPE).invoke(binder, model, total, 9L);
+        assertEquals(7L, get(binder, model, qty));
+        assertEquals(9.0, get(binder, model, total));
+        assertEquals(binderClass, binderClass.getMethod("setInt", Object.class, Integer.TYPE, Integer.TYPE)
+                .getDeclaringClass());
+
+        // Anything else is boxed and skipped where it doesn't fit
+        binderClass.getMethod("setDouble", Object.class, Integer.TYPE, Double.TYPE).invoke(binder, model, qty, 1.5);
+        binderClass.getMethod("setLong", Object.class, Integer.TYPE, Long.TYPE).invoke(binder, model, name, 3L);
+        assertEquals(7L, get(binder, model, qty));
+        assertNull(get(binder, model, name));
+    }
+
+    private ClassLoader compile() throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+
+        final List<JavaFileObject> sources = new ArrayList<>();
+        for (String[] library : LIBRARY)
+            sources.add(new Source(library[0], library[1]));
+        sources.add(new Source("demo.Forms", FORMS));
+
+        final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                Arrays.asList("-d", outputDir.getPath(), "-s", outputDir.getPath()), null, sources);
+        task.setProcessors(Arrays.asList(new DJFormsProcessor()));
+        assertTrue("Compilation failed", task.call());
+        fileManager.close();
+
+        return new URLClassLoader(new URL[] { outputDir.toURI().toURL() }, getClass().getClassLoader());
+    }
+
+    private static int indexOf(Object binder, String name) throws Exception {
+        return (Integer) binder.getClass().getMethod("indexOf", String.class).invoke(binder, name);
+    }
+
+    private static boolean call(Object binder, String method, int index) throws Exception {
+        return (Boolean) binder.getClass().getMethod(method, Integer.TYPE).invoke(binder, index);
+    }
+
+    private static Object get(Object binder, Object model, int index) throws Exception {
+        return binder.getClass().getMethod("get", Object.class, Integer.TYPE).invoke(binder, model, index);
+    }
+
+    private static void set(Object binder, Object model, int index, Object value) throws Exception {
+        binder.getClass().getMethod("set", Object.class, Integer.TYPE, Object.class).invoke(binder, model, index, value);
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null)
+            for (File child : children)
+                delete(child);
+        file.delete();
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+        private final String code;
+
+        Source(String name, String code) {
+            super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strategy for turning a model property into a PropertyAccessor.
+ *
+ * A backend is consulted once per property when a BindingPlan is built, never
+ * on the fill / save path itself.  Forms choose their backend by overriding
+ * DJForm.getAccessorBackend().
+ *
+ * <ul>
+ *     <li>REFLECTION reads and writes through plain Field and Method calls.</li>
+ *     <li>GENERATED uses the binders written by djforms-compiler and falls back
+ *     to REFLECTION for anything they don't cover.  This is the default.</li>
+ *     <li>SPECIALIZED picks a dedicated accessor per property shape, with
+ *     access checks suppressed up front, for models codegen can't reach.</li>
+ * </ul>
+ *
+ * Custom backends should be stateless singletons, as plans are cached per
+ * backend instance.
+ */
+public abstract class AccessorBackend {
+
+    private static volatile ResolutionListener resolutionListener = null;
+
+    public static final AccessorBackend REFLECTION = new AccessorBackend() {
+        @Override
+        public PropertyAccessor resolve(Class<?> modelClass, String name) {
+            final Field field = findField(modelClass, name);
+            if (field != null) {
+                report(modelClass, name, Resolution.FIELD);
+                return new FieldAccessor(name, field);
+            }
+
+            return reportMethods(modelClass,
+                    new MethodAccessor(name, findGetter(modelClass, name), findSetters(modelClass, name)));
+        }
+    };
+
+    public static final AccessorBackend GENERATED = new AccessorBackend() {
+        @Override
+        public PropertyAccessor resolve(Class<?> modelClass, String name) {
+            final ModelBinder binder = ModelBinder.forModel(modelClass);
+            if (binder != null) {
+                final int index = binder.indexOf(name);
+                if (index != -1) {
+                    report(modelClass, name, Resolution.GENERATED);
+                    return new GeneratedAccessor(name, binder, index);
+                }
+            }
+            return REFLECTION.resolve(modelClass, name);
+        }
+    };
+
+    public static final AccessorBackend SPECIALIZED = new AccessorBackend() {
+        @Override
+        public PropertyAccessor resolve(Class<?> modelClass, String name) {
+            final Field field = findField(modelClass, name);
+            if (field != null) {
+                report(modelClass, name, Resolution.FIELD);
+                return SpecializedAccessors.forField(name, field);
+            }
+
+            return reportMethods(modelClass,
+                    SpecializedAccessors.forMethods(name, findGetter(modelClass, name), findSetters(modelClass, name)));
+        }
+    };
+
+    /**
+     * Resolves a single model property.  Called once per property per plan.
+     * @param modelClass The model class
+     * @param name The model property name
+     * @return An accessor for the property, never null.  Missing properties
+     * should report false from canRead() and canWrite().
+     */
+    public abstract PropertyAccessor resolve(Class<?> modelClass, String name);
+
+    /**
+     * Resolves a property which may be a dotted path into nested objects, like
+     * address.city.  Each step of a path is resolved with resolve().
+     * @param modelClass The model class
+     * @param path The model property name, or a dotted path of them
+     * @return An accessor for the property, never null
+     */
+    public final PropertyAccessor resolvePath(Class<?> modelClass, String path) {
+        if (path.indexOf('.') == -1)
+            return resolve(modelClass, path);
+        return PathAccessor.resolve(this, modelClass, path);
+    }
+
+    /**
+     * Works out the declared type of a property from its public field or getter
+     * @param modelClass The model class
+     * @param path The model property name, or a dotted path of them
+     * @return The property's type, or null if it can't be found
+     */
+    public static Class<?> typeOf(Class<?> modelClass, String path) {
+        Class<?> type = modelClass;
+        for (String name : path.split("\\.")) {
+            final Field field = findField(type, name);
+            if (field != null) {
+                type = field.getType();
+                continue;
+            }
+            final Method getter = findGetter(type, name);
+            if (getter == null)
+                return null;
+            type = getter.getReturnType();
+        }
+        return type;
+    }
+
+    /**
+     * Sets the listener told how every property is resolved, for all backends
+     * @param listener The listener, or null for none
+     */
+    public static void setResolutionListener(ResolutionListener listener) {
+        resolutionListener = listener;
+    }
+
+    /**
+     * Tells the resolution listener, if there is one, how a property was resolved
+     */
+    protected static void report(Class<?> modelClass, String name, Resolution resolution) {
+        final ResolutionListener listener = resolutionListener;
+        if (listener != null)
+            listener.onResolved(modelClass, name, resolution);
+    }
+
+    private static PropertyAccessor reportMethods(Class<?> modelClass, PropertyAccessor accessor) {
+        final boolean found = accessor.canRead() || accessor.canWrite();
+        report(modelClass, accessor.getName(), found ? Resolution.METHODS : Resolution.MISSING);
+        return accessor;
+    }
+
+    /**
+     * @return The public field called name, or null
+     */
+    protected static Field findField(Class<?> modelClass, String name) {
+        return MemberIndex.of(modelClass).field(name);
+    }
+
+    /**
+     * @return The public getName method, or null
+     */
+    protected static Method findGetter(Class<?> modelClass, String name) {
+        for (Method method : MemberIndex.of(modelClass).methods("get" + Types.capitalize(name)))
+            if (method.getParameterTypes().length == 0)
+                return method;
+        return null;
+    }
+
+    /**
+     * @return Every public single argument setName overload, possibly none
+     */
+    protected static Method[] findSetters(Class<?> modelClass, String name) {
+        final List<Method> setters = new ArrayList<>(1);
+        for (Method method : MemberIndex.of(modelClass).methods("set" + Types.capitalize(name)))
+            if (method.getParameterTypes().length == 1)
+                setters.add(method);
+        return setters.toArray(new Method[setters.size()]);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The resolved binding between a form class and a model class.
+ *
+ * A plan holds one PropertyAccessor per form field, in field order, so
+ * filling or saving a model is a flat loop over pre-resolved accessors.
+ * Plans are built the first time a (form class, model class) pair is seen
+ * with a given AccessorBackend and shared from a global cache afterwards.  They are immutable and safe to
+ * use from any thread.
+ *
+ * The field names of a form are assumed to be fixed for its class, which is
+ * the case for forms declared as public DJField members.
+ */
+public final class BindingPlan {
+
+    private static final ConcurrentMap<Key, BindingPlan> CACHE = new ConcurrentHashMap<>();
+
+    private final PropertyAccessor[] accessors;
+
+    private BindingPlan(PropertyAccessor[] accessors) {
+        this.accessors = accessors;
+    }
+
+    /**
+     * Gets the plan for a (form class, model class) pair using the default
+     * GENERATED backend.
+     * @see #get(Class, String[], Class, AccessorBackend)
+     */
+    public static BindingPlan get(Class<?> formClass, String[] names, Class<?> modelClass) {
+        return get(formClass, names, modelClass, AccessorBackend.GENERATED);
+    }
+
+    /**
+     * Gets the plan for a (form class, model class) pair, building it if this
+     * is the first time the pair has been seen with this backend.
+     * @param formClass The class owning the field names
+     * @param names The model property names, in field order
+     * @param modelClass The model class to bind to
+     * @param backend The backend used to resolve each property
+     * @return The shared plan
+     */
+    public static BindingPlan get(Class<?> formClass, String[] names, Class<?> modelClass, AccessorBackend backend) {
+        final Key key = new Key(formClass, modelClass, backend);
+        BindingPlan plan = CACHE.get(key);
+        if (plan == null) {
+            final BindingPlan built = build(names, modelClass, backend);
+            plan = CACHE.putIfAbsent(key, built);
+            if (plan == null)
+                plan = built;
+        }
+        return plan;
+    }
+
+    /**
+     * @return The number of accessors, equal to the number of names given
+     */
+    public int size() {
+        return accessors.length;
+    }
+
+    /**
+     * @param index The field index
+     * @return The accessor for the field at index
+     */
+    public PropertyAccessor getAccessor(int index) {
+        return accessors[index];
+    }
+
+    /**
+     * Builds a plan without caching it, for callers which keep their own plans
+     * @param names The model property names or dotted paths, in field order
+     * @param modelClass The model class to bind to
+     * @param backend The backend used to resolve each property
+     * @return A new plan
+     */
+    public static BindingPlan build(String[] names, Class<?> modelClass, AccessorBackend backend) {
+        final PropertyAccessor[] accessors = new PropertyAccessor[names.length];
+        for (int i = 0; i < names.length; i++)
+            accessors[i] = backend.resolvePath(modelClass, names[i]);
+        return new BindingPlan(accessors);
+    }
+
+    /**
+     * Wraps accessors made by hand, e.g. for models which aren't objects with
+     * properties, without caching the plan
+     * @param accessors One accessor per field, in field order
+     * @return A new plan
+     */
+    public static BindingPlan of(PropertyAccessor... accessors) {
+        return new BindingPlan(accessors.clone());
+    }
+
+    private static final class Key {
+        private final Class<?> formClass;
+        private final Class<?> modelClass;
+        private final AccessorBackend backend;
+
+        Key(Class<?> formClass, Class<?> modelClass, AccessorBackend backend) {
+            this.formClass = formClass;
+            this.modelClass = modelClass;
+            this.backend = backend;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            final Key other = (Key) o;
+            return formClass == other.formClass && modelClass == other.modelClass && backend == other.backend;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * formClass.hashCode() + modelClass.hashCode()) + backend.hashCode();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Accessor for a public model field
+ */
+final class FieldAccessor extends PropertyAccessor {
+
+    private final Field field;
+    private final Class<?> type;
+
+    FieldAccessor(String name, Field field) {
+        super(name);
+        this.field = field;
+        this.type = field.getType();
+    }
+
+    @Override
+    public boolean canRead() {
+        return true;
+    }
+
+    @Override
+    public boolean canWrite() {
+        return !Modifier.isFinal(field.getModifiers());
+    }
+
+    @Override
+    public Object get(Object model) {
+        try {
+            return field.get(model);
+        } catch (IllegalAccessException e) {
+            throw new BindingException("Field " + getName() + " can't be accessed", e);
+        }
+    }
+
+    /**
+     * Like GeneratedAccessor, values the field can't hold are skipped, such as
+     * null for a primitive
+     */
+    @Override
+    public void set(Object model, Object value) {
+        if (!Types.accepts(type, value))
+            return;
+        try {
+            field.set(model, value);
+        } catch (IllegalAccessException e) {
+            throw new BindingException("Field " + getName() + " can't be accessed", e);
+        }
+    }
+
+    /*
+     * Primitive fields which the value widens into are written without boxing.
+     * Reference fields get the boxed value if they can hold it, and anything
+     * else is skipped.
+     */
+
+    @Override
+    public void setInt(Object model, int value) {
+        try {
+            if (Types.widens(Integer.TYPE, type))
+                field.setInt(model, value);
+            else if (type.isAssignableFrom(Integer.class))
+                field.set(model, value);
+        } catch (IllegalAccessException e) {
+            throw new BindingException("Field " + getName() + " can't be accessed", e);
+        }
+    }
+
+    @Override
+    public void setLong(Object model, long value) {
+        try {
+            if (Types.widens(Long.TYPE, type))
+                field.setLong(model, value);
+            else if (type.isAssignableFrom(Long.class))
+                field.set(model, value);
+        } catch (IllegalAccessException e) {
+            throw new BindingException("Field " + getName() + " can't be accessed", e);
+        }
+    }
+
+    @Override
+    public void setDouble(Object model, double value) {
+        try {
+            if (type == Double.TYPE)
+                field.setDouble(model, value);
+            else if (type.isAssignableFrom(Double.class))
+                field.set(model, value);
+        } catch (IllegalAccessException e) {
+            throw new BindingException("Field " + getName() + " can't be accessed", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+/**
+ * Accessor backed by a property of a generated ModelBinder
+ */
+final class GeneratedAccessor extends PropertyAccessor {
+
+    private final ModelBinder binder;
+    private final int index;
+
+    GeneratedAccessor(String name, ModelBinder binder, int index) {
+        super(name);
+        this.binder = binder;
+        this.index = index;
+    }
+
+    @Override
+    public boolean canRead() {
+        return binder.canRead(index);
+    }
+
+    @Override
+    public boolean canWrite() {
+        return binder.canWrite(index);
+    }
+
+    @Override
+    public Object get(Object model) {
+        return binder.get(model, index);
+    }
+
+    @Override
+    public void set(Object model, Object value) {
+        binder.set(model, index, value);
+    }
+
+    @Override
+    public void setInt(Object model, int value) {
+        binder.setInt(model, index, value);
+    }
+
+    @Override
+    public void setLong(Object model, long value) {
+        binder.setLong(model, index, value);
+    }
+
+    @Override
+    public void setDouble(Object model, double value) {
+        binder.setDouble(model, index, value);
+    }
+}
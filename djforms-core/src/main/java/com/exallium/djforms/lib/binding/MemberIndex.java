@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The public fields and methods of a model class, by name.  getFields and
+ * getMethods copy every member on each call, so they're read once per class
+ * and each property is looked up here instead of rescanning them.
+ */
+final class MemberIndex {
+
+    private static final ConcurrentMap<Class<?>, MemberIndex> INDICES = new ConcurrentHashMap<>();
+    private static final Method[] NO_METHODS = new Method[0];
+
+    private final Map<String, Field> fields = new HashMap<>();
+    private final Map<String, Method[]> methods = new HashMap<>();
+
+    private MemberIndex(Class<?> modelClass) {
+        for (Field field : modelClass.getFields())
+            // The first of each name, as scanning getFields found
+            if (!fields.containsKey(field.getName()))
+                fields.put(field.getName(), field);
+
+        final Map<String, List<Method>> byName = new HashMap<>();
+        for (Method method : modelClass.getMethods()) {
+            List<Method> named = byName.get(method.getName());
+            if (named == null) {
+                named = new ArrayList<>(1);
+                byName.put(method.getName(), named);
+            }
+            named.add(method);
+        }
+        for (Map.Entry<String, List<Method>> entry : byName.entrySet())
+            methods.put(entry.getKey(), entry.getValue().toArray(new Method[entry.getValue().size()]));
+    }
+
+    static MemberIndex of(Class<?> modelClass) {
+        MemberIndex index = INDICES.get(modelClass);
+        if (index == null) {
+            final MemberIndex built = new MemberIndex(modelClass);
+            index = INDICES.putIfAbsent(modelClass, built);
+            if (index == null)
+                index = built;
+        }
+        return index;
+    }
+
+    /**
+     * @return The public field called name, or null
+     */
+    Field field(String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * @return Every public method called name, possibly none.  Not to be modified.
+     */
+    Method[] methods(String name) {
+        final Method[] named = methods.get(name);
+        return named != null ? named : NO_METHODS;
+    }
+}
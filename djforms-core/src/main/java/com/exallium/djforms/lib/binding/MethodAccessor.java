@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Accessor for a getX / setX method pair.  Either side may be missing, in
+ * which case reads produce null and writes are skipped.
+ */
+final class MethodAccessor extends PropertyAccessor {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Method getter;
+    private final Method[] setters;
+    private final Class<?>[] setterTypes;
+
+    MethodAccessor(String name, Method getter, Method[] setters) {
+        super(name);
+        this.getter = getter;
+        this.setters = setters;
+        this.setterTypes = new Class<?>[setters.length];
+        for (int i = 0; i < setters.length; i++)
+            setterTypes[i] = Types.wrap(setters[i].getParameterTypes()[0]);
+    }
+
+    @Override
+    public boolean canRead() {
+        return getter != null;
+    }
+
+    @Override
+    public boolean canWrite() {
+        return setters.length != 0;
+    }
+
+    @Override
+    public Object get(Object model) {
+        if (getter == null)
+            return null;
+        try {
+            return getter.invoke(model, NO_ARGS);
+        } catch (InvocationTargetException e) {
+            throw new BindingException("Bad Invocation of " + getter.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new BindingException("Method " + getter.getName() + " can't be accessed", e);
+        }
+    }
+
+    /**
+     * Lookup is impossible for null, so null values are skipped, as are
+     * values none of the setters can take.
+     */
+    @Override
+    public void set(Object model, Object value) {
+        if (value == null)
+            return;
+        final Method setter = resolveSetter(value.getClass());
+        if (setter != null)
+            invoke(setter, model, value);
+    }
+
+    /*
+     * Primitive values go to the closest primitive setter they widen into,
+     * which reflection still has to box for.  Without one, they're handled
+     * like any other value.
+     */
+
+    @Override
+    public void setInt(Object model, int value) {
+        final Method setter = closestSetter(setters, Integer.TYPE);
+        if (setter != null)
+            invoke(setter, model, value);
+        else
+            set(model, value);
+    }
+
+    @Override
+    public void setLong(Object model, long value) {
+        final Method setter = closestSetter(setters, Long.TYPE);
+        if (setter != null)
+            invoke(setter, model, value);
+        else
+            set(model, value);
+    }
+
+    @Override
+    public void setDouble(Object model, double value) {
+        final Method setter = closestSetter(setters, Double.TYPE);
+        if (setter != null)
+            invoke(setter, model, value);
+        else
+            set(model, value);
+    }
+
+    /**
+     * @return The setter taking the narrowest primitive which type widens
+     * into, or null if there is none
+     */
+    private static Method closestSetter(Method[] setters, Class<?> type) {
+        Method closest = null;
+        for (Method setter : setters) {
+            final Class<?> parameter = setter.getParameterTypes()[0];
+            if (Types.widens(type, parameter)
+                    && (closest == null || Types.widens(parameter, closest.getParameterTypes()[0])))
+                closest = setter;
+        }
+        return closest;
+    }
+
+    private static void invoke(Method setter, Object model, Object value) {
+        try {
+            setter.invoke(model, value);
+        } catch (InvocationTargetException e) {
+            throw new BindingException("Bad Invocation of " + setter.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new BindingException("Method " + setter.getName() + " can't be accessed", e);
+        }
+    }
+
+    /**
+     * Prefers a setter taking exactly the value's type (or its primitive),
+     * then any setter the value can be assigned to.
+     */
+    private Method resolveSetter(Class<?> valueClass) {
+        for (int i = 0; i < setters.length; i++)
+            if (setterTypes[i] == valueClass)
+                return setters[i];
+        for (int i = 0; i < setters.length; i++)
+            if (setterTypes[i].isAssignableFrom(valueClass))
+                return setters[i];
+        return null;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base class for the binders generated by djforms-compiler.
+ *
+ * A generated binder reads and writes the properties of one model class with
+ * direct field access and direct getter / setter calls, so no reflection is
+ * needed at runtime and shrinkers are free to rename the model's members.
+ * Properties are addressed by an index handed out once by indexOf().
+ *
+ * You should never need to subclass this by hand.
+ */
+public abstract class ModelBinder {
+
+    /** Suffix appended to a model's binary name to find its generated binder */
+    public static final String SUFFIX = "$$DJModelBinder";
+
+    private static final ModelBinder NONE = new ModelBinder() {
+        @Override
+        public int indexOf(String name) { return -1; }
+
+        @Override
+        public boolean canRead(int index) { return false; }
+
+        @Override
+        public boolean canWrite(int index) { return false; }
+
+        @Override
+        public Object get(Object model, int index) { return null; }
+
+        @Override
+        public void set(Object model, int index, Object value) {}
+    };
+
+    private static final ConcurrentMap<Class<?>, ModelBinder> BINDERS = new ConcurrentHashMap<>();
+
+    /**
+     * @param name The model property name
+     * @return The index of the property, or -1 if this binder doesn't know it
+     */
+    public abstract int indexOf(String name);
+
+    /**
+     * @param index A property index
+     * @return true if the property has a public field or getter
+     */
+    public abstract boolean canRead(int index);
+
+    /**
+     * @param index A property index
+     * @return true if the property has a non-final public field or setter
+     */
+    public abstract boolean canWrite(int index);
+
+    /**
+     * @param model The model to read from
+     * @param index The property index
+     * @return The property value
+     */
+    public abstract Object get(Object model, int index);
+
+    /**
+     * Writes a property.  Values the property can't accept are skipped, as
+     * are nulls headed for a setter.
+     * @param model The model to write into
+     * @param index The property index
+     * @param value The value to write
+     */
+    public abstract void set(Object model, int index, Object value);
+
+    /**
+     * Writes an int.  Generated binders write it straight into properties it
+     * widens into, anything else goes through set() boxed.
+     * @param model The model to write into
+     * @param index The property index
+     * @param value The value to write
+     */
+    public void setInt(Object model, int index, int value) {
+        set(model, index, value);
+    }
+
+    /**
+     * Writes a long, see setInt()
+     * @param model The model to write into
+     * @param index The property index
+     * @param value The value to write
+     */
+    public void setLong(Object model, int index, long value) {
+        set(model, index, value);
+    }
+
+    /**
+     * Writes a double, see setInt()
+     * @param model The model to write into
+     * @param index The property index
+     * @param value The value to write
+     */
+    public void setDouble(Object model, int index, double value) {
+        set(model, index, value);
+    }
+
+    /**
+     * Finds the generated binder for a model class.  Lookups, including misses,
+     * are cached, so this only touches the class loader once per model class.
+     * @param modelClass The model class
+     * @return The generated binder, or null if none was generated
+     */
+    static ModelBinder forModel(Class<?> modelClass) {
+        ModelBinder binder = BINDERS.get(modelClass);
+        if (binder == null) {
+            binder = load(modelClass);
+            BINDERS.putIfAbsent(modelClass, binder);
+        }
+        return binder == NONE ? null : binder;
+    }
+
+    private static ModelBinder load(Class<?> modelClass) {
+        try {
+            final Class<?> binderClass = Class.forName(modelClass.getName() + SUFFIX, true, modelClass.getClassLoader());
+            return (ModelBinder) binderClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        } catch (InstantiationException e) {
+            return NONE;
+        } catch (IllegalAccessException e) {
+            return NONE;
+        }
+    }
+}
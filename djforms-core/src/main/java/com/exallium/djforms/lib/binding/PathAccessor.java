@@ -0,0 +1,163 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Accessor for a dotted path like address.city.  Every step is resolved once,
+ * through the backend the plan is built with, so reading a path is a chain of
+ * straight accessor calls.  Reads stop at the first null along the way, and
+ * writes fill it in with a new object if its class has a public no-argument
+ * constructor, or are skipped otherwise.
+ */
+final class PathAccessor extends PropertyAccessor {
+
+    private final PropertyAccessor[] steps;
+    // For every step but the last, how to fill it in when null, or null
+    private final Constructor<?>[] creators;
+
+    private PathAccessor(String name, PropertyAccessor[] steps, Constructor<?>[] creators) {
+        super(name);
+        this.steps = steps;
+        this.creators = creators;
+    }
+
+    static PropertyAccessor resolve(AccessorBackend backend, Class<?> modelClass, String path) {
+        final String[] names = path.split("\\.");
+        final PropertyAccessor[] steps = new PropertyAccessor[names.length];
+        final Constructor<?>[] creators = new Constructor<?>[names.length - 1];
+
+        Class<?> owner = modelClass;
+        for (int i = 0; i < names.length; i++) {
+            if (owner == null) {
+                // Nothing to look the rest up on, so the path is missing
+                return new MethodAccessor(path, null, new Method[0]);
+            }
+            steps[i] = backend.resolve(owner, names[i]);
+            if (i < creators.length) {
+                owner = AccessorBackend.typeOf(owner, names[i]);
+                creators[i] = steps[i].canWrite() ? creatorOf(owner) : null;
+            }
+        }
+        return new PathAccessor(path, steps, creators);
+    }
+
+    private static Constructor<?> creatorOf(Class<?> type) {
+        if (type == null || type.isInterface() || Modifier.isAbstract(type.getModifiers()))
+            return null;
+        try {
+            return type.getConstructor();
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean canRead() {
+        for (PropertyAccessor step : steps)
+            if (!step.canRead())
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean canWrite() {
+        for (int i = 0; i < creators.length; i++)
+            if (!steps[i].canRead())
+                return false;
+        return steps[steps.length - 1].canWrite();
+    }
+
+    @Override
+    public Object get(Object model) {
+        Object current = model;
+        for (int i = 0; i < steps.length && current != null; i++)
+            current = steps[i].get(current);
+        return current;
+    }
+
+    @Override
+    public void set(Object model, Object value) {
+        final Object owner = ownerOf(model);
+        if (owner != null)
+            steps[creators.length].set(owner, value);
+    }
+
+    @Override
+    public void setInt(Object model, int value) {
+        final Object owner = ownerOf(model);
+        if (owner != null)
+            steps[creators.length].setInt(owner, value);
+    }
+
+    @Override
+    public void setLong(Object model, long value) {
+        final Object owner = ownerOf(model);
+        if (owner != null)
+            steps[creators.length].setLong(owner, value);
+    }
+
+    @Override
+    public void setDouble(Object model, double value) {
+        final Object owner = ownerOf(model);
+        if (owner != null)
+            steps[creators.length].setDouble(owner, value);
+    }
+
+    /**
+     * @return The object holding the last property, filled in along the way
+     * where possible, or null if the path is broken
+     */
+    private Object ownerOf(Object model) {
+        Object current = model;
+        for (int i = 0; i < creators.length; i++) {
+            Object next = steps[i].get(current);
+            if (next == null) {
+                if (creators[i] == null)
+                    return null;
+                next = create(i);
+                steps[i].set(current, next);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private Object create(int index) {
+        try {
+            return creators[index].newInstance();
+        } catch (InstantiationException e) {
+            throw new BindingException("Could not create " + creators[index].getDeclaringClass().getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new BindingException("Could not create " + creators[index].getDeclaringClass().getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new BindingException("Could not create " + creators[index].getDeclaringClass().getName(), e);
+        }
+    }
+}
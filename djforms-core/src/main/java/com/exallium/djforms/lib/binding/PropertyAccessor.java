@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+/**
+ * A pre-resolved route into a single model property.  Accessors are created
+ * once, when a BindingPlan is built, so reading and writing a model is a
+ * straight call with no lookups, string building or exceptions along the way.
+ *
+ * Accessors hold no per-model state and are safe to share between threads.
+ */
+public abstract class PropertyAccessor {
+
+    private final String name;
+
+    protected PropertyAccessor(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The model property name this accessor was resolved for
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if get() can produce a value, false otherwise
+     */
+    public abstract boolean canRead();
+
+    /**
+     * @return true if set() can write a value, false otherwise
+     */
+    public abstract boolean canWrite();
+
+    /**
+     * Reads the property from the model
+     * @param model The model to read from
+     * @return The property value, or null if the property can't be read
+     * @throws BindingException if the underlying access fails
+     */
+    public abstract Object get(Object model);
+
+    /**
+     * Writes the property into the model.  Values the property can't accept,
+     * like null for a primitive, are skipped.
+     * @param model The model to write into
+     * @param value The value to write
+     * @throws BindingException if the underlying access fails
+     */
+    public abstract void set(Object model, Object value);
+
+    /*
+     * Primitive writes.  These box the value and call set() unless overridden
+     * by an accessor which can write primitives directly.
+     */
+
+    /**
+     * Writes an int into the model, see set()
+     * @param model The model to write into
+     * @param value The value to write
+     */
+    public void setInt(Object model, int value) {
+        set(model, value);
+    }
+
+    /**
+     * Writes a long into the model, see set()
+     * @param model The model to write into
+     * @param value The value to write
+     */
+    public void setLong(Object model, long value) {
+        set(model, value);
+    }
+
+    /**
+     * Writes a double into the model, see set()
+     * @param model The model to write into
+     * @param value The value to write
+     */
+    public void setDouble(Object model, double value) {
+        set(model, value);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Accessors for the SPECIALIZED backend.
+ *
+ * Members have their access checks suppressed once, when the plan is built,
+ * instead of on every call, which also lets package private models bind.
+ * Properties with a single setter, by far the common case, get an accessor
+ * that checks the value against one precomputed type and invokes directly.
+ */
+final class SpecializedAccessors {
+
+    private SpecializedAccessors() {}
+
+    static PropertyAccessor forField(String name, Field field) {
+        suppressAccessChecks(field);
+        return new FieldAccessor(name, field);
+    }
+
+    static PropertyAccessor forMethods(String name, Method getter, Method[] setters) {
+        if (getter != null)
+            suppressAccessChecks(getter);
+        for (Method setter : setters)
+            suppressAccessChecks(setter);
+
+        if (setters.length == 1)
+            return new SingleSetterAccessor(name, getter, setters[0]);
+        return new MethodAccessor(name, getter, setters);
+    }
+
+    private static void suppressAccessChecks(AccessibleObject member) {
+        try {
+            member.setAccessible(true);
+        } catch (SecurityException e) {
+            // Still usable, just with access checks on every call
+        }
+    }
+
+    private static final class SingleSetterAccessor extends PropertyAccessor {
+
+        private static final Object[] NO_ARGS = new Object[0];
+
+        private final Method getter;
+        private final Method setter;
+        private final Class<?> parameterType;
+        private final Class<?> setterType;
+
+        SingleSetterAccessor(String name, Method getter, Method setter) {
+            super(name);
+            this.getter = getter;
+            this.setter = setter;
+            this.parameterType = setter.getParameterTypes()[0];
+            this.setterType = Types.wrap(parameterType);
+        }
+
+        @Override
+        public boolean canRead() {
+            return getter != null;
+        }
+
+        @Override
+        public boolean canWrite() {
+            return true;
+        }
+
+        @Override
+        public Object get(Object model) {
+            if (getter == null)
+                return null;
+            try {
+                return getter.invoke(model, NO_ARGS);
+            } catch (InvocationTargetException e) {
+                throw new BindingException("Bad Invocation of " + getter.getName(), e);
+            } catch (IllegalAccessException e) {
+                throw new BindingException("Method " + getter.getName() + " can't be accessed", e);
+            }
+        }
+
+        @Override
+        public void set(Object model, Object value) {
+            if (setterType.isInstance(value))
+                invoke(model, value);
+        }
+
+        @Override
+        public void setInt(Object model, int value) {
+            if (Types.widens(Integer.TYPE, parameterType))
+                invoke(model, value);
+            else
+                set(model, value);
+        }
+
+        @Override
+        public void setLong(Object model, long value) {
+            if (Types.widens(Long.TYPE, parameterType))
+                invoke(model, value);
+            else
+                set(model, value);
+        }
+
+        @Override
+        public void setDouble(Object model, double value) {
+            if (parameterType == Double.TYPE)
+                invoke(model, value);
+            else
+                set(model, value);
+        }
+
+        private void invoke(Object model, Object value) {
+            try {
+                setter.invoke(model, value);
+            } catch (InvocationTargetException e) {
+                throw new BindingException("Bad Invocation of " + setter.getName(), e);
+            } catch (IllegalAccessException e) {
+                throw new BindingException("Method " + setter.getName() + " can't be accessed", e);
+            }
+        }
+    }
+}
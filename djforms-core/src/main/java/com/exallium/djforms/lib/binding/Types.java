@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.binding;
+
+/**
+ * Small helpers for working with primitive and boxed types
+ */
+final class Types {
+
+    private Types() {}
+
+    // Numeric primitives, each widening into the ones after it
+    private static final Class<?>[] NUMERIC = {
+            Byte.TYPE, Short.TYPE, Integer.TYPE, Long.TYPE, Float.TYPE, Double.TYPE
+    };
+
+    /**
+     * @param from A numeric primitive type
+     * @param to Any type
+     * @return true if a from value can be stored in a to without boxing
+     */
+    static boolean widens(Class<?> from, Class<?> to) {
+        if (!to.isPrimitive())
+            return false;
+        int fromRank = -1;
+        for (int i = 0; i < NUMERIC.length; i++) {
+            if (NUMERIC[i] == from)
+                fromRank = i;
+            if (NUMERIC[i] == to)
+                return fromRank != -1;
+        }
+        return false;
+    }
+
+    /**
+     * @param clazz Any type
+     * @return The wrapper type for a primitive, or the type itself
+     */
+    static Class<?> wrap(Class<?> clazz) {
+        if (!clazz.isPrimitive())
+            return clazz;
+        if (clazz == Long.TYPE)
+            return Long.class;
+        if (clazz == Integer.TYPE)
+            return Integer.class;
+        if (clazz == Byte.TYPE)
+            return Byte.class;
+        if (clazz == Character.TYPE)
+            return Character.class;
+        if (clazz == Short.TYPE)
+            return Short.class;
+        if (clazz == Double.TYPE)
+            return Double.class;
+        if (clazz == Float.TYPE)
+            return Float.class;
+        if (clazz == Boolean.TYPE)
+            return Boolean.class;
+        return Void.class;
+    }
+
+    /**
+     * @param clazz Any type
+     * @return The primitive type for a wrapper, or null if it isn't one
+     */
+    static Class<?> unwrap(Class<?> clazz) {
+        if (clazz == Long.class)
+            return Long.TYPE;
+        if (clazz == Integer.class)
+            return Integer.TYPE;
+        if (clazz == Byte.class)
+            return Byte.TYPE;
+        if (clazz == Character.class)
+            return Character.TYPE;
+        if (clazz == Short.class)
+            return Short.TYPE;
+        if (clazz == Double.class)
+            return Double.TYPE;
+        if (clazz == Float.class)
+            return Float.TYPE;
+        if (clazz == Boolean.class)
+            return Boolean.TYPE;
+        return null;
+    }
+
+    /**
+     * Whether Field.set would take a value, without the IllegalArgumentException
+     * it throws when it won't
+     * @param type The field type
+     * @param value Any value, or null
+     * @return true if the value can be stored in a field of type
+     */
+    static boolean accepts(Class<?> type, Object value) {
+        if (value == null)
+            return !type.isPrimitive();
+        if (!type.isPrimitive())
+            return type.isInstance(value);
+        final Class<?> primitive = unwrap(value.getClass());
+        return primitive == type || (primitive != null && widens(primitive, type));
+    }
+
+    /**
+     * @param name A property name
+     * @return The name with its first letter upper-cased, for accessor lookup
+     */
+    static String capitalize(String name) {
+        return name.substring(0, 1).toUpperCase() + name.substring(1);
+    }
+}
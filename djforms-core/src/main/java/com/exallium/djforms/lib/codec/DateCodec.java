@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.codec;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dates, in a SimpleDateFormat pattern for a given locale.  There is one codec
+ * per pattern and locale, see of().  SimpleDateFormat isn't thread safe, so
+ * each thread gets its own, made once and kept.
+ */
+public final class DateCodec extends ValueCodec<Date> {
+
+    private static final ConcurrentMap<String, DateCodec> CODECS = new ConcurrentHashMap<>();
+
+    private final String pattern;
+    private final Locale locale;
+    private final ThreadLocal<DateFormat> formats = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return new SimpleDateFormat(pattern, locale);
+        }
+    };
+
+    private DateCodec(String pattern, Locale locale) {
+        this.pattern = pattern;
+        this.locale = locale;
+    }
+
+    /**
+     * @param pattern A SimpleDateFormat pattern
+     * @param locale The locale to format and parse for
+     * @return The codec for the pattern and locale
+     */
+    public static DateCodec of(String pattern, Locale locale) {
+        final String key = pattern + '|' + locale;
+        DateCodec codec = CODECS.get(key);
+        if (codec == null) {
+            final DateCodec created = new DateCodec(pattern, locale);
+            codec = CODECS.putIfAbsent(key, created);
+            if (codec == null)
+                codec = created;
+        }
+        return codec;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * @return The calling thread's DateFormat for this codec, not to be shared
+     * with other threads
+     */
+    public DateFormat getFormat() {
+        return formats.get();
+    }
+
+    @Override
+    public Date parse(CharSequence text) throws ParseException {
+        return formats.get().parse(text.toString());
+    }
+
+    @Override
+    public String format(Date value) {
+        return formats.get().format(value);
+    }
+}
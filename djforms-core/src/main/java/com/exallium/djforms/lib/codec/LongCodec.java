@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.codec;
+
+import java.text.ParseException;
+
+/**
+ * Whole numbers, as plain decimal digits with an optional sign.  Digits are
+ * read straight out of the text, without copying it into a String.
+ */
+public final class LongCodec extends ValueCodec<Long> {
+
+    public static final LongCodec INSTANCE = new LongCodec();
+
+    private LongCodec() {}
+
+    @Override
+    public Long parse(CharSequence text) throws ParseException {
+        return parse(text, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Long.parseLong for any CharSequence, limited to [min, max].  Works in
+     * negatives, like Long.parseLong, so min itself can be reached.
+     */
+    static long parse(CharSequence text, long min, long max) throws ParseException {
+        final int length = text.length();
+        if (length == 0)
+            throw new ParseException("Empty text", 0);
+
+        int i = 0;
+        boolean negative = false;
+        final char first = text.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == length)
+                throw new ParseException("No digits", i);
+        }
+
+        final long limit = negative ? min : -max;
+        final long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            final int digit = Character.digit(text.charAt(i), 10);
+            if (digit < 0)
+                throw new ParseException("Not a digit", i);
+            if (result < multiplyLimit)
+                throw new ParseException("Out of range", i);
+            result *= 10;
+            if (result < limit + digit)
+                throw new ParseException("Out of range", i);
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    @Override
+    public String format(Long value) {
+        return value.toString();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.codec;
+
+/**
+ * Remembers the last text parsed with a codec, so validating and then saving
+ * the same text parses it once.  Safe to use from any thread.
+ * @param <T> The value type
+ */
+public final class ParseCache<T> {
+
+    private final ValueCodec<T> codec;
+    private volatile Parsed<T> last = null;
+
+    public ParseCache(ValueCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    public ValueCodec<T> getCodec() {
+        return codec;
+    }
+
+    /**
+     * @param text The text to parse, never null
+     * @return The outcome of parsing it
+     */
+    public Parsed<T> parse(String text) {
+        final Parsed<T> last = this.last;
+        if (last != null && last.getText().equals(text))
+            return last;
+
+        final Parsed<T> parsed = codec.tryParse(text);
+        this.last = parsed;
+        return parsed;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.codec;
+
+/**
+ * The outcome of parsing some text with a ValueCodec
+ * @param <T> The value type
+ */
+public final class Parsed<T> {
+
+    private final String text;
+    private final T value;
+    private final boolean valid;
+
+    Parsed(String text, T value, boolean valid) {
+        this.text = text;
+        this.value = value;
+        this.valid = valid;
+    }
+
+    /**
+     * @return The text which was parsed
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return true if the text parsed
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return The value, or null if the text didn't parse
+     */
+    public T getValue() {
+        return value;
+    }
+}
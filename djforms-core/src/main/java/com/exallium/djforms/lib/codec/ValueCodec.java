@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.codec;
+
+import java.text.ParseException;
+
+/**
+ * Converts between the text shown by a field and the value it stands for.
+ * Codecs hold no per-call state and are safe to share between threads.
+ * @param <T> The value type
+ */
+public abstract class ValueCodec<T> {
+
+    /**
+     * @param text The text, never null.  Any CharSequence will do, so the
+     *             Editable of an EditText can be parsed without copying it.
+     * @return The value the text stands for
+     * @throws ParseException if the text doesn't stand for a value
+     */
+    public abstract T parse(CharSequence text) throws ParseException;
+
+    /**
+     * @param value The value, never null
+     * @return The text for the value
+     */
+    public abstract String format(T value);
+
+    /**
+     * Parses text without throwing, for validation
+     * @param text The text, never null
+     * @return The outcome of parsing it
+     */
+    public final Parsed<T> tryParse(String text) {
+        try {
+            return new Parsed<>(text, parse(text), true);
+        } catch (ParseException e) {
+            return new Parsed<>(text, null, false);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.spec;
+
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+import com.exallium.djforms.lib.codec.Parsed;
+import com.exallium.djforms.lib.codec.TextCodec;
+import com.exallium.djforms.lib.codec.ValueCodec;
+
+/**
+ * What a form field is, without its view: the model property it binds to, the
+ * codec for its text, and what text is valid.  Specs are immutable and safe to
+ * share between threads.
+ * @param <T> The value type
+ */
+public final class FieldSpec<T> {
+
+    private final String name;
+    private final ValueCodec<T> codec;
+    private final boolean required;
+    private final Constraint<? super T> constraint;
+    private final Fallback<? extends T> fallback;
+
+    private FieldSpec(String name, ValueCodec<T> codec, boolean required, Constraint<? super T> constraint,
+                      Fallback<? extends T> fallback) {
+        if (name == null || codec == null)
+            throw new IllegalArgumentException("A field needs a name and a codec");
+        this.name = name;
+        this.codec = codec;
+        this.required = required;
+        this.constraint = constraint;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @param name The model property name
+     * @return A required plain text field
+     */
+    public static FieldSpec<String> text(String name) {
+        return of(name, TextCodec.INSTANCE);
+    }
+
+    /**
+     * @param name The model property name
+     * @param codec The codec for the field's text
+     * @return A required field whose text must parse with codec
+     */
+    public static <T> FieldSpec<T> of(String name, ValueCodec<T> codec) {
+        return new FieldSpec<>(name, codec, true, null, null);
+    }
+
+    /**
+     * @return A copy of this spec which also accepts empty text
+     */
+    public FieldSpec<T> optional() {
+        return new FieldSpec<>(name, codec, false, constraint, fallback);
+    }
+
+    /**
+     * @param constraint A check parsed values must pass
+     * @return A copy of this spec with the constraint, replacing any other
+     */
+    public FieldSpec<T> constrain(Constraint<? super T> constraint) {
+        return new FieldSpec<>(name, codec, required, constraint, fallback);
+    }
+
+    /**
+     * @param fallback What to save when the text doesn't parse
+     * @return A copy of this spec with the fallback, replacing any other
+     */
+    public FieldSpec<T> orElse(Fallback<? extends T> fallback) {
+        return new FieldSpec<>(name, codec, required, constraint, fallback);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ValueCodec<T> getCodec() {
+        return codec;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    /**
+     * @param text The field's text, or null if it was never filled
+     * @return true if the text is valid for this field
+     */
+    public boolean isValid(String text) {
+        return text == null || text.length() == 0 ? !required : accepts(codec.tryParse(text));
+    }
+
+    /**
+     * Checks text which was already parsed with our codec, e.g. through a ParseCache
+     * @param parsed The outcome of parsing the field's text
+     * @return true if the text is valid for this field
+     */
+    public boolean accepts(Parsed<?> parsed) {
+        if (parsed.getText().length() == 0)
+            return !required;
+        return parsed.isValid() && (constraint == null || check(parsed.getValue()));
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private boolean check(Object value) {
+        return ((Constraint<Object>) constraint).accepts(value);
+    }
+
+    /**
+     * @param text The field's text, or null if it was never filled
+     * @return The value it stands for, our fallback if it doesn't parse, or
+     * null if there's no fallback
+     */
+    public T toValue(String text) {
+        return toValue(codec.tryParse(text == null ? "" : text));
+    }
+
+    /**
+     * @param parsed The outcome of parsing the field's text with our codec
+     * @return The value it stands for, our fallback if it doesn't parse, or
+     * null if there's no fallback
+     */
+    @SuppressWarnings({"unchecked"})
+    public T toValue(Parsed<?> parsed) {
+        if (parsed.isValid())
+            return (T) parsed.getValue();
+        return fallback == null ? null : fallback.valueFor(parsed.getText());
+    }
+
+    /**
+     * Writes the value for some text into a model property, see writeValue
+     * @param accessor The model property
+     * @param model The model to write into
+     * @param text The field's text, or null
+     */
+    public void write(PropertyAccessor accessor, Object model, String text) {
+        writeValue(accessor, model, toValue(text));
+    }
+
+    /**
+     * Writes a value into a model property.  int, long and double values go
+     * through the accessor's primitive setters, and values the property can't
+     * hold, like null for a primitive, are skipped.
+     * @param accessor The model property
+     * @param model The model to write into
+     * @param value The value
+     */
+    public static void writeValue(PropertyAccessor accessor, Object model, Object value) {
+        if (value instanceof Integer)
+            accessor.setInt(model, (Integer) value);
+        else if (value instanceof Long)
+            accessor.setLong(model, (Long) value);
+        else if (value instanceof Double)
+            accessor.setDouble(model, (Double) value);
+        else
+            accessor.set(model, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof FieldSpec))
+            return false;
+        final FieldSpec<?> other = (FieldSpec<?>) o;
+        return name.equals(other.name) && codec.equals(other.codec) && required == other.required
+                && (constraint == null ? other.constraint == null : constraint.equals(other.constraint))
+                && (fallback == null ? other.fallback == null : fallback.equals(other.fallback));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + codec.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name + (required ? "" : "?") + ":" + codec.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.spec;
+
+import com.exallium.djforms.lib.binding.BindingPlan;
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+
+import java.util.BitSet;
+
+/**
+ * How a form validates and saves its fields.  FormSpec and the Android forms
+ * both run these same loops; subclasses only say how a single field checks and
+ * writes its state.
+ */
+public abstract class FormFields {
+
+    /**
+     * @return The number of fields
+     */
+    public abstract int size();
+
+    /**
+     * @param index The field index
+     * @param state The field's state, or null if it was never filled
+     * @return true if the state is valid for the field
+     */
+    public abstract boolean isValid(int index, Object state);
+
+    /**
+     * Writes a field's state into its model property
+     * @param index The field index
+     * @param accessor The model property, which can be written
+     * @param model The model to write into
+     * @param state The field's state, or null if it was never filled
+     */
+    protected abstract void write(int index, PropertyAccessor accessor, Object model, Object state);
+
+    /**
+     * Called when writing a field throws.  Rethrows by default.
+     * @param index The field index
+     * @param accessor The model property
+     * @param model The model being written
+     * @param e What was thrown
+     * @return true to carry on with the other fields, false to stop saving
+     */
+    protected boolean onWriteFailed(int index, PropertyAccessor accessor, Object model, RuntimeException e) {
+        throw e;
+    }
+
+    /**
+     * @param states The state of each field
+     * @return true if every field is valid
+     */
+    public final boolean isValid(FieldStates states) {
+        final int size = size();
+        for (int i = 0; i < size; i++)
+            if (!isValid(i, states.get(i)))
+                return false;
+        return true;
+    }
+
+    /**
+     * @param states The state of each field
+     * @return The validity of every field, in form order
+     */
+    public final BitSet validate(FieldStates states) {
+        final int size = size();
+        final BitSet valid = new BitSet(size);
+        for (int i = 0; i < size; i++)
+            valid.set(i, isValid(i, states.get(i)));
+        return valid;
+    }
+
+    /**
+     * Writes every field into a model, regardless of whether it's valid
+     * @param states The state of each field
+     * @param plan The plan binding our fields to the model's class
+     * @param model The model to write into
+     */
+    public final void save(FieldStates states, BindingPlan plan, Object model) {
+        final int size = size();
+        for (int i = 0; i < size; i++)
+            if (!write(i, states, plan, model))
+                return;
+    }
+
+    /**
+     * Writes some of the fields into a model, regardless of whether they're valid
+     * @param states The state of each field
+     * @param plan The plan binding our fields to the model's class
+     * @param model The model to write into
+     * @param fields The indexes of the fields to write.  Fields which weren't
+     *               written, because their property is read only or writing
+     *               them failed, are cleared from it.
+     */
+    public final void save(FieldStates states, BindingPlan plan, Object model, BitSet fields) {
+        for (int i = fields.nextSetBit(0); i >= 0; i = fields.nextSetBit(i + 1)) {
+            final PropertyAccessor accessor = plan.getAccessor(i);
+            if (!accessor.canWrite()) {
+                fields.clear(i);
+                continue;
+            }
+            try {
+                write(i, accessor, model, states.get(i));
+            } catch (RuntimeException e) {
+                fields.clear(i);
+                if (!onWriteFailed(i, accessor, model, e)) {
+                    fields.clear(i, fields.length());
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean write(int index, FieldStates states, BindingPlan plan, Object model) {
+        final PropertyAccessor accessor = plan.getAccessor(index);
+        if (!accessor.canWrite())
+            return true;
+        try {
+            write(index, accessor, model, states.get(index));
+            return true;
+        } catch (RuntimeException e) {
+            return onWriteFailed(index, accessor, model, e);
+        }
+    }
+}
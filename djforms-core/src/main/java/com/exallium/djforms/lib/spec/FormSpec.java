@@ -0,0 +1,218 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.spec;
+
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.binding.BindingPlan;
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The fields of a form, in order, without any views.  Lets the same form be
+ * validated and saved wherever there's no Android, e.g. on a server checking
+ * submissions.  DJForm.getFormSpec describes an Android form the same way, so
+ * a spec shared between app and server can be checked against the form.
+ *
+ * Specs are immutable, and may be shared by any number of threads.  Binding
+ * plans are resolved once per model class and backend.
+ */
+public final class FormSpec {
+
+    private final FieldSpec<?>[] fields;
+    private final String[] names;
+    private final ConcurrentMap<PlanKey, BindingPlan> plans = new ConcurrentHashMap<>();
+    private final FormFields binding = new FormFields() {
+        @Override
+        public int size() {
+            return fields.length;
+        }
+
+        @Override
+        public boolean isValid(int index, Object state) {
+            return fields[index].isValid((String) state);
+        }
+
+        @Override
+        protected void write(int index, PropertyAccessor accessor, Object model, Object state) {
+            fields[index].write(accessor, model, (String) state);
+        }
+    };
+
+    private FormSpec(FieldSpec<?>[] fields) {
+        this.fields = fields;
+        this.names = new String[fields.length];
+        for (int i = 0; i < fields.length; i++)
+            names[i] = fields[i].getName();
+    }
+
+    /**
+     * @param fields The fields, in form order
+     * @return The spec
+     */
+    public static FormSpec of(FieldSpec<?>... fields) {
+        return new FormSpec(fields.clone());
+    }
+
+    public int size() {
+        return fields.length;
+    }
+
+    public FieldSpec<?> getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * @param name A model property name
+     * @return The index of the field bound to name, or -1
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * @param texts The text of each field, in form order, null for unfilled
+     * @return The validity of every field, in form order
+     */
+    public BitSet validate(String[] texts) {
+        return binding.validate(statesOf(texts));
+    }
+
+    /**
+     * @param submission Field text by model property name.  Missing fields are unfilled.
+     * @return The validity of every field, in form order
+     */
+    public BitSet validate(Map<String, String> submission) {
+        return validate(textsOf(submission));
+    }
+
+    /**
+     * @param texts The text of each field, in form order, null for unfilled
+     * @return true if every field is valid
+     */
+    public boolean isValid(String[] texts) {
+        return binding.isValid(statesOf(texts));
+    }
+
+    public boolean isValid(Map<String, String> submission) {
+        return isValid(textsOf(submission));
+    }
+
+    /**
+     * Writes every field into a model, regardless of whether it's valid.
+     * Fields whose text doesn't parse are written as their fallback, or null,
+     * which is skipped for primitive properties.
+     * @param texts The text of each field, in form order, null for unfilled
+     * @param model The model to write into
+     * @param backend How to resolve the model's properties
+     */
+    public void save(String[] texts, Object model, AccessorBackend backend) {
+        binding.save(statesOf(texts), getBindingPlan(model.getClass(), backend), model);
+    }
+
+    public void save(Map<String, String> submission, Object model, AccessorBackend backend) {
+        save(textsOf(submission), model, backend);
+    }
+
+    /**
+     * @param modelClass The model class to bind to
+     * @param backend How to resolve its properties
+     * @return The plan binding our fields to the model class
+     */
+    public BindingPlan getBindingPlan(Class<?> modelClass, AccessorBackend backend) {
+        final PlanKey key = new PlanKey(modelClass, backend);
+        BindingPlan plan = plans.get(key);
+        if (plan == null) {
+            final BindingPlan built = BindingPlan.build(names, modelClass, backend);
+            plan = plans.putIfAbsent(key, built);
+            if (plan == null)
+                plan = built;
+        }
+        return plan;
+    }
+
+    private String[] textsOf(Map<String, String> submission) {
+        final String[] texts = new String[names.length];
+        for (int i = 0; i < names.length; i++)
+            texts[i] = submission.get(names[i]);
+        return texts;
+    }
+
+    private FieldStates statesOf(final String[] texts) {
+        if (texts.length != fields.length)
+            throw new IllegalArgumentException("Got " + texts.length + " texts for " + fields.length + " fields");
+        return new FieldStates() {
+            @Override
+            public Object get(int index) {
+                return texts[index];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FormSpec && Arrays.equals(fields, ((FormSpec) o).fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(fields);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(fields);
+    }
+
+    private static final class PlanKey {
+        private final Class<?> modelClass;
+        private final AccessorBackend backend;
+
+        PlanKey(Class<?> modelClass, AccessorBackend backend) {
+            this.modelClass = modelClass;
+            this.backend = backend;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PlanKey))
+                return false;
+            final PlanKey other = (PlanKey) o;
+            return modelClass == other.modelClass && backend == other.backend;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * modelClass.hashCode() + backend.hashCode();
+        }
+    }
+}
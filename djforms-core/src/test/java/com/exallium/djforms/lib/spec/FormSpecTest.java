@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.spec;
+
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.codec.DateCodec;
+import com.exallium.djforms.lib.codec.IntCodec;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class FormSpecTest {
+
+    public static final class Order {
+        public String name;
+        public int quantity;
+        public Date due;
+        private String note;
+
+        public String getNote() { return note; }
+
+        public void setNote(String note) { this.note = note; }
+    }
+
+    public static final class Address {
+        public String city;
+    }
+
+    public static final class Shipment {
+        private Address address;
+
+        public Address getAddress() { return address; }
+
+        public void setAddress(Address address) { this.address = address; }
+    }
+
+    private static final FormSpec ORDER = FormSpec.of(
+            FieldSpec.text("name"),
+            FieldSpec.of("quantity", IntCodec.INSTANCE).constrain(new Constraint<Integer>() {
+                @Override
+                public boolean accepts(Integer value) {
+                    return value > 0;
+                }
+            }),
+            FieldSpec.of("due", DateCodec.of("yyyy-MM-dd", Locale.US)),
+            FieldSpec.text("note").optional());
+
+    private static Map<String, String> submission(String name, String quantity, String due) {
+        Map<String, String> submission = new HashMap<>();
+        submission.put("name", name);
+        submission.put("quantity", quantity);
+        submission.put("due", due);
+        return submission;
+    }
+
+    @Test
+    public void testDottedPaths() {
+        FormSpec spec = FormSpec.of(FieldSpec.text("address.city"));
+        Map<String, String> submission = new HashMap<>();
+        submission.put("address.city", "Halifax");
+
+        // The missing Address is created on the way
+        Shipment shipment = new Shipment();
+        spec.save(submission, shipment, AccessorBackend.SPECIALIZED);
+        assertEquals("Halifax", shipment.getAddress().city);
+
+        Address address = shipment.getAddress();
+        submission.put("address.city", "Ottawa");
+        spec.save(submission, shipment, AccessorBackend.REFLECTION);
+        assertSame(address, shipment.getAddress());
+        assertEquals("Ottawa", address.city);
+        assertEquals("Ottawa", spec.getBindingPlan(Shipment.class, AccessorBackend.GENERATED)
+                .getAccessor(0).get(shipment));
+    }
+
+    @Test
+    public void testValidate() {
+        assertTrue(ORDER.isValid(submission("Widget", "3", "2015-05-25")));
+
+        BitSet valid = ORDER.validate(submission("", "0", "tomorrow"));
+        assertFalse(valid.get(0));
+        assertFalse(valid.get(1));
+        assertFalse(valid.get(2));
+        // Optional and missing
+        assertTrue(valid.get(3));
+    }
+
+    @Test
+    public void testSave() {
+        Order order = new Order();
+        Map<String, String> submission = submission("Widget", "3", "2015-05-25");
+        submission.put("note", "Rush");
+        ORDER.save(submission, order, AccessorBackend.SPECIALIZED);
+
+        assertEquals("Widget", order.name);
+        assertEquals(3, order.quantity);
+        assertEquals("2015-05-25", ORDER.getField(2).getCodec().format(cast(order.due)));
+        assertEquals("Rush", order.getNote());
+    }
+
+    @Test
+    public void testSaveWhatDoesntParse() {
+        FormSpec spec = FormSpec.of(
+                FieldSpec.of("quantity", IntCodec.INSTANCE),
+                FieldSpec.of("due", DateCodec.of("yyyy-MM-dd", Locale.US)).orElse(Fallback.NOW));
+        for (AccessorBackend backend : new AccessorBackend[]{
+                AccessorBackend.REFLECTION, AccessorBackend.GENERATED, AccessorBackend.SPECIALIZED}) {
+            Order order = new Order();
+            order.quantity = 7;
+            spec.save(submission(null, "", "tomorrow"), order, backend);
+            // int properties can't hold null, so they're left alone
+            assertEquals(7, order.quantity);
+            assertNotNull(order.due);
+
+            spec.save(submission(null, "many", null), order, backend);
+            assertEquals(7, order.quantity);
+        }
+
+        Order order = new Order();
+        order.due = new Date(0);
+        ORDER.save(submission("", "", "tomorrow"), order, AccessorBackend.REFLECTION);
+        assertEquals("", order.name);
+        assertEquals(0, order.quantity);
+        assertNull(order.due);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    @Test
+    public void testSpecsCompareByContent() {
+        assertEquals(FormSpec.of(FieldSpec.text("name"), FieldSpec.of("quantity", IntCodec.INSTANCE)),
+                FormSpec.of(FieldSpec.text("name"), FieldSpec.of("quantity", IntCodec.INSTANCE)));
+        assertNotEquals(FieldSpec.text("name"), FieldSpec.text("name").optional());
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int i = 1; i <= 1000; i++) {
+                            Order order = new Order();
+                            String quantity = Integer.toString(i + offset);
+                            Map<String, String> submission = submission("Widget", quantity, "2015-05-25");
+                            if (!ORDER.isValid(submission))
+                                return false;
+                            ORDER.save(submission, order, AccessorBackend.REFLECTION);
+                            if (order.quantity != i + offset)
+                                return false;
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results)
+                assertTrue(result.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -9,6 +9,10 @@
 
 # Add any project specific keep options here:
 
+# Binders generated by djforms-compiler are looked up by name
+-keep class **$$DJFormBinder { *; }
+-keep class **$$DJModelBinder { *; }
+
 # If your project uses WebView with JS, uncomment the following
 # and specify the fully qualified class name to the JavaScript interface
 # class:
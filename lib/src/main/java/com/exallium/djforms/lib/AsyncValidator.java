@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a form's validators on an Executor and hands the results back on the
+ * main thread.  Requests are debounced by the validation delay, and every
+ * request, cancel or change of state starts a new generation.  Work belonging
+ * to an older generation is dropped, so only results for the latest state are
+ * ever delivered.
+ */
+final class AsyncValidator {
+
+    private static final String TAG = AsyncValidator.class.getSimpleName();
+
+    private final DJForm form;
+    private final int size;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private volatile Executor executor = AsyncTask.THREAD_POOL_EXECUTOR;
+    private volatile long delayMillis = 0;
+    // The listener waiting on results, if any
+    private volatile OnFormValidatedListener pending = null;
+
+    private final Runnable start = new Runnable() {
+        @Override
+        public void run() {
+            launch();
+        }
+    };
+
+    AsyncValidator(DJForm form, int size) {
+        this.form = form;
+        this.size = size;
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    void setDelay(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    void request(OnFormValidatedListener listener) {
+        pending = listener;
+        restart();
+    }
+
+    void cancel() {
+        pending = null;
+        generation.incrementAndGet();
+        handler.removeCallbacks(start);
+    }
+
+    /**
+     * Input changed, so whatever is in flight is out of date
+     */
+    void onStateChanged() {
+        if (pending != null)
+            restart();
+    }
+
+    private void restart() {
+        generation.incrementAndGet();
+        handler.removeCallbacks(start);
+        handler.postDelayed(start, delayMillis);
+    }
+
+    private void launch() {
+        final OnFormValidatedListener listener = pending;
+        if (listener == null)
+            return;
+
+        // Views which don't report their changes are read now, on the main
+        // thread.  If that changed anything, we were restarted.
+        final int launched = generation.get();
+        form.catchUpViews();
+        if (generation.get() != launched)
+            return;
+        form.validateViewFields();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                validate(launched, listener);
+            }
+        });
+    }
+
+    private void validate(final int launched, final OnFormValidatedListener listener) {
+        final boolean[] valid = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            // Superseded, don't waste time on the rest
+            if (generation.get() != launched)
+                return;
+            try {
+                valid[i] = form.isFieldStateValid(i);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Validator failed for " + form.getFormDefinition().getName(i), e);
+                valid[i] = false;
+            }
+        }
+
+        final ValidationResult result = new ValidationResult(form.getFormDefinition(), valid);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation.get() != launched || pending != listener)
+                    return;
+                pending = null;
+                listener.onFormValidated(result);
+            }
+        });
+    }
+}
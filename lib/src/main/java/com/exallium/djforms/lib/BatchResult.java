@@ -0,0 +1,106 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of DJForm.saveAll.  Records which failed are listed, in order,
+ * with the property and exception they failed on.
+ */
+public final class BatchResult {
+
+    /**
+     * A record which couldn't be saved.  Properties before the failing one
+     * were written, the rest were not.
+     */
+    public static final class Failure {
+
+        private final int index;
+        private final Object model;
+        private final String property;
+        private final RuntimeException cause;
+
+        Failure(int index, Object model, String property, RuntimeException cause) {
+            this.index = index;
+            this.model = model;
+            this.property = property;
+            this.cause = cause;
+        }
+
+        /**
+         * @return The record's position in the list of models
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public Object getModel() {
+            return model;
+        }
+
+        /**
+         * @return The model property being written when the record failed, or
+         * null if it failed before any were, e.g. finding its adapter
+         */
+        public String getProperty() {
+            return property;
+        }
+
+        public RuntimeException getCause() {
+            return cause;
+        }
+    }
+
+    private final int count;
+    private final List<Failure> failures;
+
+    BatchResult(int count, List<Failure> failures) {
+        this.count = count;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return The number of records in the batch
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return true if every record was saved
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * @return The records which failed, by index
+     */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.binding.BindingPlan;
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes many form states into many models for DJForm.saveAll.  Large
+ * batches are cut into one slice per core.  Helpers on the executor and the
+ * calling thread all claim slices until none are left, so the caller never
+ * waits on a slice nobody has started: a busy or rejecting executor, or a
+ * caller running on the executor itself, only means the caller saves more.
+ */
+final class BatchSaver {
+
+    // Below this many records per slice, handing work to other threads costs more than it saves
+    static final int MIN_SLICE = 256;
+
+    private final DJForm form;
+    private final FormDefinition definition;
+    private final DJField[] fields;
+    private final AccessorBackend backend;
+
+    BatchSaver(DJForm form, FormDefinition definition, DJField[] fields) {
+        this.form = form;
+        this.definition = definition;
+        this.fields = fields;
+        this.backend = form.getAccessorBackend();
+    }
+
+    /**
+     * @param states The state for each model, or a single state for all of them
+     * @param models The models to write into
+     * @param executor Where to save slices other than the caller's
+     */
+    BatchResult save(List<FormState> states, List<?> models, Executor executor) {
+        final int count = models.size();
+        return save(states, models, executor,
+                Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), count / MIN_SLICE)));
+    }
+
+    /**
+     * @param slices How many slices to cut the batch into
+     */
+    BatchResult save(List<FormState> states, List<?> models, Executor executor, int slices) {
+        final int count = models.size();
+        final Slices work = new Slices(states, models, slices);
+        for (int i = 1; i < slices; i++) {
+            try {
+                executor.execute(work);
+            } catch (RejectedExecutionException e) {
+                // We'll save whatever the executor won't
+                break;
+            }
+        }
+        work.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                work.done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        // Slices are in index order, so this keeps failures in index order
+        final List<BatchResult.Failure> all = new ArrayList<>();
+        for (List<BatchResult.Failure> sliceFailures : work.failures)
+            all.addAll(sliceFailures);
+        return new BatchResult(count, all);
+    }
+
+    /**
+     * The slices of one batch, run by whoever claims them first
+     */
+    private final class Slices implements Runnable {
+
+        private final List<FormState> states;
+        private final List<?> models;
+        private final int slices;
+        private final AtomicInteger next = new AtomicInteger();
+        // Counted down as each slice is saved, by whichever thread saved it
+        final CountDownLatch done;
+        final List<List<BatchResult.Failure>> failures;
+
+        Slices(List<FormState> states, List<?> models, int slices) {
+            this.states = states;
+            this.models = models;
+            this.slices = slices;
+            this.done = new CountDownLatch(slices);
+            this.failures = new ArrayList<>(slices);
+            for (int i = 0; i < slices; i++)
+                failures.add(new ArrayList<BatchResult.Failure>());
+        }
+
+        @Override
+        public void run() {
+            final int count = models.size();
+            for (int slice = next.getAndIncrement(); slice < slices; slice = next.getAndIncrement()) {
+                try {
+                    saveRange(states, models, count * slice / slices, count * (slice + 1) / slices,
+                            failures.get(slice));
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+    }
+
+    private void saveRange(List<FormState> states, List<?> models, int from, int to,
+                           List<BatchResult.Failure> failures) {
+        final SliceBinding binding = new SliceBinding(fields, definition, failures);
+        BindingPlan plan = null;
+        ModelAdapter planAdapter = null;
+        Object planKey = null;
+        for (int i = from; i < to; i++) {
+            final Object model = models.get(i);
+            final FormState state = states.size() == 1 ? states.get(0) : states.get(i);
+            try {
+                final ModelAdapter adapter = form.getModelAdapter(model);
+                final Object key = adapter.getPlanKey(model);
+                if (adapter != planAdapter || key != planKey) {
+                    // Forgotten first, so a plan which can't be made isn't reused
+                    planAdapter = null;
+                    plan = adapter.getBindingPlan(definition, backend, model);
+                    planAdapter = adapter;
+                    planKey = key;
+                }
+
+                binding.modelIndex = i;
+                binding.save(state, plan, model);
+            } catch (RuntimeException e) {
+                // A bad record mustn't cost the rest of its slice
+                failures.add(new BatchResult.Failure(i, model, null, e));
+            }
+        }
+    }
+
+    /**
+     * Records the first field of each model which fails, and skips the rest of that model
+     */
+    private static final class SliceBinding extends FieldBinding {
+
+        private final List<BatchResult.Failure> failures;
+        int modelIndex;
+
+        SliceBinding(DJField[] fields, FormDefinition definition, List<BatchResult.Failure> failures) {
+            super(fields, definition, null, false);
+            this.failures = failures;
+        }
+
+        @Override
+        protected boolean onWriteFailed(int index, PropertyAccessor accessor, Object model, RuntimeException e) {
+            failures.add(new BatchResult.Failure(modelIndex, model, accessor.getName(), e));
+            return false;
+        }
+    }
+}
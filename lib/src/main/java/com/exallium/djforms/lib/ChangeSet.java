@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The model properties written by DJForm.saveChanges, in form order, with the
+ * values they had when the form was filled and the values they were given.
+ */
+public final class ChangeSet {
+
+    private static final ChangeSet EMPTY = new ChangeSet(new String[0], new Object[0], new Object[0]);
+
+    private final String[] names;
+    private final Object[] oldValues;
+    private final Object[] newValues;
+
+    private ChangeSet(String[] names, Object[] oldValues, Object[] newValues) {
+        this.names = names;
+        this.oldValues = oldValues;
+        this.newValues = newValues;
+    }
+
+    /**
+     * @return true if nothing was written
+     */
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param index The change index, not the field index
+     * @return The name of the model property which was written
+     */
+    public String getPropertyName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @param index The change index
+     * @return The value the property was filled from, or null if it wasn't
+     */
+    public Object getOldValue(int index) {
+        return oldValues[index];
+    }
+
+    /**
+     * @param index The change index
+     * @return The value the property was given
+     */
+    public Object getNewValue(int index) {
+        return newValues[index];
+    }
+
+    /**
+     * @param propertyName A model property name
+     * @return The change index for the property, or -1 if it wasn't written
+     */
+    public int indexOf(String propertyName) {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(propertyName))
+                return i;
+        return -1;
+    }
+
+    /**
+     * @return The names of the written properties, e.g. for the columns of an UPDATE
+     */
+    public List<String> getPropertyNames() {
+        final List<String> list = new ArrayList<>(names.length);
+        Collections.addAll(list, names);
+        return Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("ChangeSet{");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(names[i]).append(": ").append(oldValues[i]).append(" -> ").append(newValues[i]);
+        }
+        return builder.append('}').toString();
+    }
+
+    static final class Builder {
+
+        private final List<String> names = new ArrayList<>();
+        private final List<Object> oldValues = new ArrayList<>();
+        private final List<Object> newValues = new ArrayList<>();
+
+        void add(String name, Object oldValue, Object newValue) {
+            names.add(name);
+            oldValues.add(oldValue);
+            newValues.add(newValue);
+        }
+
+        ChangeSet build() {
+            if (names.isEmpty())
+                return EMPTY;
+            return new ChangeSet(names.toArray(new String[names.size()]), oldValues.toArray(), newValues.toArray());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Delivers a form's changes to an OnFormChangedListener, from
+ * DJForm.observeChanges.
+ *
+ * Changes are merged: the listener is told which fields changed since it was
+ * last told, once the form has been quiet for the debounce delay.  Only one
+ * delivery is ever in flight, so a listener slower than the user simply gets
+ * fewer, larger changes.  Recording a change allocates nothing, so the
+ * keystroke path stays free of garbage until there is something to deliver.
+ */
+public final class ChangeSubscription {
+
+    private final DJForm form;
+    private final OnFormChangedListener listener;
+    private final int size;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Guarded by this
+    private final BitSet pending;
+    private BitSet filter = null;
+    private long lastChange = 0;
+    private boolean scheduled = false;
+    private boolean delivering = false;
+    private boolean cancelled = false;
+
+    private volatile long delayMillis = 0;
+    private volatile Executor executor = null;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            onTick();
+        }
+    };
+
+    private final Runnable deliver = new Runnable() {
+        @Override
+        public void run() {
+            deliver();
+        }
+    };
+
+    ChangeSubscription(DJForm form, OnFormChangedListener listener) {
+        this.form = form;
+        this.listener = listener;
+        this.size = form.getFormDefinition().size();
+        this.pending = new BitSet(size);
+    }
+
+    /**
+     * Waits for the form to be quiet this long before delivering, so a burst of
+     * typing is delivered once.  Defaults to 0, which still merges changes
+     * made together, e.g. by fillViews.
+     * @param delayMillis The debounce delay
+     * @return This subscription
+     */
+    public ChangeSubscription setDebounce(long delayMillis) {
+        if (delayMillis < 0)
+            throw new IllegalArgumentException("delayMillis must not be negative");
+        this.delayMillis = delayMillis;
+        return this;
+    }
+
+    /**
+     * Delivers changes on an Executor instead of the main thread, e.g. to
+     * autosave with DJForm.saveChanges without holding up the UI
+     * @param executor The executor, or null for the main thread
+     * @return This subscription
+     */
+    public ChangeSubscription setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Only observes the given fields
+     * @param names The field names, or none to observe every field
+     * @return This subscription
+     */
+    public ChangeSubscription setFields(String... names) {
+        BitSet fields = null;
+        if (names.length != 0) {
+            fields = new BitSet(size);
+            for (String name : names) {
+                final int index = form.getFormDefinition().indexOf(name);
+                if (index == -1)
+                    throw new IllegalArgumentException("No field named " + name);
+                fields.set(index);
+            }
+        }
+        synchronized (this) {
+            filter = fields;
+        }
+        return this;
+    }
+
+    /**
+     * Stops delivering changes.  A delivery already under way still completes.
+     */
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            pending.clear();
+        }
+        handler.removeCallbacks(tick);
+        form.removeSubscription(this);
+    }
+
+    /**
+     * Records a change, from any thread
+     * @param index The field which changed, or -1 for every field
+     */
+    void onStateChanged(int index) {
+        synchronized (this) {
+            if (cancelled)
+                return;
+            if (index == -1) {
+                if (filter == null)
+                    pending.set(0, size);
+                else
+                    pending.or(filter);
+            } else if (filter == null || filter.get(index)) {
+                pending.set(index);
+            } else {
+                return;
+            }
+            lastChange = SystemClock.uptimeMillis();
+            // The running tick or delivery will see this change
+            if (scheduled || delivering)
+                return;
+            scheduled = true;
+        }
+        handler.postDelayed(tick, delayMillis);
+    }
+
+    /**
+     * On the main thread, delivers if the form has been quiet long enough, or
+     * checks again when it will have been
+     */
+    private void onTick() {
+        final long wait;
+        synchronized (this) {
+            if (cancelled) {
+                scheduled = false;
+                return;
+            }
+            wait = lastChange + delayMillis - SystemClock.uptimeMillis();
+            if (wait <= 0) {
+                scheduled = false;
+                delivering = true;
+            }
+        }
+
+        if (wait > 0) {
+            handler.postDelayed(tick, wait);
+            return;
+        }
+        final Executor executor = this.executor;
+        if (executor == null) {
+            deliver.run();
+        } else {
+            // Views are only read here, the listener's thread can't
+            form.catchUpViews();
+            try {
+                executor.execute(deliver);
+            } catch (RejectedExecutionException e) {
+                // Delivered here instead, or delivering would stay set for good
+                deliver.run();
+            }
+        }
+    }
+
+    private void deliver() {
+        final FormChange change;
+        synchronized (this) {
+            if (cancelled || pending.isEmpty()) {
+                delivering = false;
+                return;
+            }
+            change = new FormChange(form, (BitSet) pending.clone());
+            pending.clear();
+        }
+
+        try {
+            listener.onFormChanged(change);
+        } finally {
+            boolean more;
+            synchronized (this) {
+                delivering = false;
+                // Changes which came in meanwhile were held for us
+                more = !cancelled && !pending.isEmpty() && !scheduled;
+                if (more)
+                    scheduled = true;
+            }
+            if (more)
+                handler.post(tick);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import com.exallium.djforms.lib.binding.BindingException;
+import com.exallium.djforms.lib.codec.BigDecimalCodec;
+import com.exallium.djforms.lib.codec.DateCodec;
+import com.exallium.djforms.lib.codec.DoubleCodec;
+import com.exallium.djforms.lib.codec.IntCodec;
+import com.exallium.djforms.lib.codec.LongCodec;
+import com.exallium.djforms.lib.codec.ValueCodec;
+import com.exallium.djforms.lib.spec.FieldSpec;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * The value a field expects from a column, worked out from its codec so
+ * columns are read straight into the right type.  Dates are stored as
+ * milliseconds since the epoch and BigDecimals as text, as SQLite has neither.
+ */
+enum ColumnType {
+    ANY, INT, LONG, DOUBLE, DECIMAL, DATE;
+
+    static ColumnType of(FieldSpec<?> spec) {
+        final ValueCodec<?> codec = spec.getCodec();
+        if (codec instanceof IntCodec)
+            return INT;
+        if (codec instanceof LongCodec)
+            return LONG;
+        if (codec instanceof DoubleCodec)
+            return DOUBLE;
+        if (codec instanceof BigDecimalCodec)
+            return DECIMAL;
+        if (codec instanceof DateCodec)
+            return DATE;
+        return ANY;
+    }
+
+    /**
+     * @param cursor A cursor on the row to read
+     * @param index The column index
+     * @return The column's value, or null
+     */
+    Object read(Cursor cursor, int index) {
+        if (cursor.isNull(index))
+            return null;
+        switch (this) {
+            case INT:
+                return cursor.getInt(index);
+            case LONG:
+                return cursor.getLong(index);
+            case DOUBLE:
+                return cursor.getDouble(index);
+            case DECIMAL:
+                return convert(cursor.getString(index));
+            case DATE:
+                return new Date(cursor.getLong(index));
+            default:
+                switch (cursor.getType(index)) {
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        return cursor.getLong(index);
+                    case Cursor.FIELD_TYPE_FLOAT:
+                        return cursor.getDouble(index);
+                    case Cursor.FIELD_TYPE_BLOB:
+                        return cursor.getBlob(index);
+                    default:
+                        return cursor.getString(index);
+                }
+        }
+    }
+
+    /**
+     * Converts a stored value, e.g. a Long from ContentValues for a Date field
+     * @param stored The value, or null
+     * @return The value as the field expects it, or null
+     * @throws BindingException if the value can't be converted
+     */
+    Object convert(Object stored) {
+        if (stored == null)
+            return null;
+        try {
+            switch (this) {
+                case INT:
+                    return stored instanceof Integer ? stored : Integer.valueOf(numberOf(stored).intValue());
+                case LONG:
+                    return stored instanceof Long ? stored : Long.valueOf(numberOf(stored).longValue());
+                case DOUBLE:
+                    return stored instanceof Double ? stored : Double.valueOf(numberOf(stored).doubleValue());
+                case DECIMAL:
+                    return stored instanceof BigDecimal ? stored : new BigDecimal(stored.toString());
+                case DATE:
+                    return stored instanceof Date ? stored : new Date(numberOf(stored).longValue());
+                default:
+                    return stored;
+            }
+        } catch (NumberFormatException e) {
+            throw new BindingException("Can't read " + stored + " as " + this, e);
+        }
+    }
+
+    private static Number numberOf(Object stored) {
+        return stored instanceof Number ? (Number) stored : new BigDecimal(stored.toString());
+    }
+
+    /**
+     * Stores a value under the column types ContentValues has
+     * @param values The values to write into
+     * @param name The column name
+     * @param value The value, or null
+     */
+    static void put(ContentValues values, String name, Object value) {
+        if (value == null)
+            values.putNull(name);
+        else if (value instanceof String)
+            values.put(name, (String) value);
+        else if (value instanceof Integer)
+            values.put(name, (Integer) value);
+        else if (value instanceof Long)
+            values.put(name, (Long) value);
+        else if (value instanceof Double)
+            values.put(name, (Double) value);
+        else if (value instanceof Boolean)
+            values.put(name, (Boolean) value);
+        else if (value instanceof Date)
+            values.put(name, ((Date) value).getTime());
+        else if (value instanceof Float)
+            values.put(name, (Float) value);
+        else if (value instanceof Short)
+            values.put(name, (Short) value);
+        else if (value instanceof Byte)
+            values.put(name, (Byte) value);
+        else if (value instanceof byte[])
+            values.put(name, (byte[]) value);
+        else
+            values.put(name, value.toString());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.database.Cursor;
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+
+/**
+ * Reads a column of a Cursor's current row, by an index looked up once per
+ * cursor.  Cursors are read only.
+ */
+final class CursorAccessor extends PropertyAccessor {
+
+    private final int index;
+    private final ColumnType type;
+
+    CursorAccessor(String name, int index, ColumnType type) {
+        super(name);
+        this.index = index;
+        this.type = type;
+    }
+
+    @Override
+    public boolean canRead() {
+        return index != -1;
+    }
+
+    @Override
+    public boolean canWrite() {
+        return false;
+    }
+
+    @Override
+    public Object get(Object model) {
+        return index == -1 ? null : type.read((Cursor) model, index);
+    }
+
+    @Override
+    public void set(Object model, Object value) {
+        // Cursors can't be written
+    }
+}
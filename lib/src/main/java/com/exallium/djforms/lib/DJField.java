@@ -27,10 +27,12 @@ package com.exallium.djforms.lib;
 import android.content.Context;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.view.ContextThemeWrapper;
 import android.view.LayoutInflater;
 import android.view.View;
 
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+import com.exallium.djforms.lib.spec.FieldSpec;
+
 import java.lang.reflect.InvocationTargetException;
 
 /**
@@ -97,24 +99,45 @@ public abstract class DJField<V extends View> {
     }
 
     private V cachedView;
+    private FormState formState;
+    private int stateIndex;
+    private volatile FieldSpec<?> spec;
 
     /**
-     * Initialize the view with listeners, etc.
+     * Initialize the view with listeners, etc.  Fields should listen for the
+     * user changing the view here and call notifyStateChanged, so the form
+     * state follows the view.
      * @param view The view to initialize
      */
     protected abstract void onViewCreated(V view);
 
+    /**
+     * Reset a view which is about to be handed to a FieldViewPool, so that no
+     * state leaks into the next form to use it.  Undo anything onViewCreated
+     * did which would pile up when it runs again, like adding TextWatchers.
+     * @param view The view being recycled
+     */
+    protected void onViewRecycled(V view) {}
+
     @SuppressWarnings({"unchecked"})
     private V createFieldView(Context context) {
-        V view = null;
+        final V view = (V) newView(viewClass, layoutId, styleId, context);
+        onViewCreated(view);
+        return view;
+    }
+
+    /**
+     * Builds a bare view for a field, without running onViewCreated.  Safe to
+     * call off the main thread, for ViewPrefetch.
+     * @return The new view
+     */
+    static View newView(Class<? extends View> viewClass, int layoutId, int styleId, Context context) {
+        View view = null;
         if (layoutId != NO_LAYOUT) {
-            view = (V) LayoutInflater.from(context).inflate(layoutId, null);
+            view = LayoutInflater.from(context).inflate(layoutId, null);
         } else {
             try {
-                if (styleId != NO_STYLE)
-                    view = viewClass.getConstructor(Context.class).newInstance(new ContextThemeWrapper(context, styleId));
-                else
-                    view = viewClass.getConstructor(Context.class).newInstance(context);
+                view = ViewFactory.newView(viewClass, context, styleId);
             } catch (InstantiationException e) {
                 Log.e(TAG, "Failed to Instantiate View", e);
             } catch (IllegalAccessException e) {
@@ -128,17 +151,48 @@ public abstract class DJField<V extends View> {
 
         if (view == null)
             throw new IllegalStateException("View object failed to be created");
+        return view;
+    }
 
-        onViewCreated(view);
+    /**
+     * Takes over a recycled or prefetched view, from a FieldViewPool or ViewPrefetch
+     * @param view A view previously built for a field in the same place of the same form class
+     */
+    @SuppressWarnings({"unchecked"})
+    void adoptView(View view) {
+        cachedView = (V) view;
+        onViewCreated(cachedView);
+    }
+
+    /**
+     * Resets and lets go of our view
+     * @return The view, or null if it was never created
+     */
+    V releaseView() {
+        final V view = cachedView;
+        if (view != null) {
+            // A change not read yet can't be read once it's reset
+            if (formState != null)
+                formState.get(stateIndex);
+            onViewRecycled(view);
+            cachedView = null;
+        }
         return view;
     }
 
     /**
-     * Allows for custom field validation in subclasses
+     * Validates the state in a view, see isStateValid
      * @param view The View to Validate
      * @return true if valid, false otherwise
+     * @deprecated Only called while the field has a view, on the main
+     * thread, including just before validateAsync starts.  Override
+     * isStateValid instead, which also works without views and off the
+     * main thread.
      */
-    protected abstract boolean isValid(V view);
+    @Deprecated
+    protected boolean isValid(V view) {
+        return isStateValid(getState(view));
+    }
 
     public final V getFieldView(Context context) {
         if (cachedView == null) {
@@ -153,7 +207,7 @@ public abstract class DJField<V extends View> {
      * @return true if valid, otherwise false
      */
     public final boolean isFieldValid() {
-        return isValid(cachedView);
+        return isStateValid(getFieldState());
     }
 
     /**
@@ -169,22 +223,11 @@ public abstract class DJField<V extends View> {
      */
     void setFieldName(String name) { this.name = name; }
 
-    /**
-     * See getValue()
-     * @return see getValue()
-     */
-    Object getFieldValue() {
-        return getValue(cachedView);
-    }
+    int getLayoutId() { return layoutId; }
 
-    /**
-     * See setValue()
-     * @param obj The field value
-     */
-    void setFieldValue(Object obj) {
-        if (obj != null)
-            setValue(cachedView, obj);
-    }
+    int getStyleId() { return styleId; }
+
+    Class<V> getViewClass() { return viewClass; }
 
     /**
      * Computes the final value for population
@@ -198,4 +241,206 @@ public abstract class DJField<V extends View> {
      * @param data the data to throw into the view.
      */
     public abstract void setValue(V view, Object data);
+
+    /*
+     * Field state.  A field's state is whatever its view holds, in a form
+     * which can be kept without the view, e.g. the raw text of an EditText.
+     * Forms keep the state of every field in a FormState, and convert between
+     * state and model values with toValue and toState.
+     *
+     * The defaults treat the model value itself as the state, which works
+     * for any field.  Fields with a cheaper or lossless raw form, like text,
+     * should override all of these together.
+     */
+
+    /**
+     * Reads the state out of a view
+     * @param view The view
+     * @return The view's state
+     */
+    protected Object getState(V view) {
+        return getValue(view);
+    }
+
+    /**
+     * Puts state into a view
+     * @param view The view
+     * @param state State previously produced by getState or toState, or null
+     */
+    protected void setState(V view, Object state) {
+        if (state != null)
+            setValue(view, state);
+    }
+
+    /**
+     * Converts state into the value written to the model
+     * @param state The field state
+     * @return The model value
+     */
+    protected Object toValue(Object state) {
+        return state;
+    }
+
+    /**
+     * Converts a model value into state
+     * @param value The model value, never null
+     * @return The field state
+     */
+    protected Object toState(Object value) {
+        return value;
+    }
+
+    /**
+     * Writes the value for some state into a model property, see
+     * FieldSpec.writeValue.  int, long and double values go through the
+     * accessor's primitive setters, and values the property can't hold are
+     * skipped.
+     * @param accessor The model property
+     * @param model The model to write into
+     * @param state The field state
+     */
+    protected void writeValue(PropertyAccessor accessor, Object model, Object state) {
+        FieldSpec.writeValue(accessor, model, toValue(state));
+    }
+
+    /**
+     * Allows for custom field validation in subclasses.  The form validates
+     * every field through here, whether it has a view or not, and from
+     * validateAsync's executor as well as the main thread.
+     * @param state The field state, possibly null if the field was never filled
+     * @return true if valid, false otherwise
+     */
+    protected boolean isStateValid(Object state) {
+        return state != null;
+    }
+
+    /**
+     * Describes this field for DJForm.getFormSpec, i.e. to code which runs
+     * without Android.  Defaults to required text.
+     * @param name The model property name the field binds to
+     * @return The field's spec
+     */
+    protected FieldSpec<?> describe(String name) {
+        return FieldSpec.text(name);
+    }
+
+    /**
+     * @return Our spec, from describe
+     */
+    protected final FieldSpec<?> getSpec() {
+        FieldSpec<?> spec = this.spec;
+        if (spec == null) {
+            // Fields are only named once their form has been read, but the name doesn't matter here
+            spec = describe(name != null ? name : "");
+            this.spec = spec;
+        }
+        return spec;
+    }
+
+    /**
+     * Packs state into a FormSnapshot.  Integers, Longs, Doubles, Booleans, Dates
+     * and Strings are parcelled as primitives, anything else with Parcel.writeValue.
+     * Must be undone exactly by fromSnapshot.
+     * @param state The field state, possibly null
+     * @return The state to parcel
+     */
+    protected Object toSnapshot(Object state) {
+        return state;
+    }
+
+    /**
+     * Unpacks state produced by toSnapshot
+     * @param packed The parcelled state, possibly null
+     * @return The field state
+     */
+    protected Object fromSnapshot(Object packed) {
+        return packed;
+    }
+
+    /**
+     * Hooks this field up to the state of its form
+     * @param state The form state
+     * @param index This field's index in the form
+     */
+    void attachState(FormState state, int index) {
+        formState = state;
+        stateIndex = index;
+    }
+
+    /**
+     * @return Our state in the form, or null if we aren't part of one yet
+     */
+    Object getAttachedState() {
+        return formState != null ? formState.get(stateIndex) : null;
+    }
+
+    /**
+     * @param state The state our form just saved into model
+     * @param accessor Our property of the model
+     * @param model The model saved into
+     * @return The state to keep in its place, by default the same one
+     */
+    Object savedState(Object state, PropertyAccessor accessor, Object model) {
+        return state;
+    }
+
+    /**
+     * Sets our state in the form, as if from outside of the view
+     */
+    void setAttachedState(Object state) {
+        if (formState == null)
+            throw new IllegalStateException("Field " + name + " isn't part of a form yet");
+        formState.set(stateIndex, state);
+    }
+
+    /**
+     * Tells the form our view changed, without reading it yet.  getState is
+     * called when the state is next needed, so a field whose state allocates,
+     * like text, can call this on every keystroke instead of
+     * notifyStateChanged.  Return true from reportsStateChanges.
+     */
+    protected final void notifyViewChanged() {
+        if (formState != null && cachedView != null)
+            formState.touch(stateIndex);
+    }
+
+    /**
+     * Copies the state of our view into the form state.  Call this whenever the
+     * user changes the view, and return true from reportsStateChanges.
+     */
+    protected final void notifyStateChanged() {
+        if (formState != null && cachedView != null)
+            formState.update(stateIndex, getState(cachedView));
+    }
+
+    /**
+     * Whether this field calls notifyStateChanged every time its view changes.
+     * Fields which don't have their views read by the form whenever it needs
+     * current state, on the main thread.
+     * @return true if view changes are reported, false otherwise
+     */
+    protected boolean reportsStateChanges() {
+        return false;
+    }
+
+    /**
+     * @return The view, if it currently exists, without creating it
+     */
+    V peekView() {
+        return cachedView;
+    }
+
+    /**
+     * @return The state of our view
+     */
+    Object getFieldState() {
+        return getState(cachedView);
+    }
+
+    /**
+     * @param state State to put into our view
+     */
+    void setFieldState(Object state) {
+        setState(cachedView, state);
+    }
 }
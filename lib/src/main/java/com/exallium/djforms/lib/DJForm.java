@@ -25,16 +25,27 @@
 package com.exallium.djforms.lib;
 
 import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Bundle;
 import android.util.Log;
+import android.view.View;
 import android.view.ViewGroup;
-import android.widget.LinearLayout;
+import android.widget.AdapterView;
+import android.widget.ListView;
+
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.binding.BindingException;
+import com.exallium.djforms.lib.binding.BindingPlan;
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+import com.exallium.djforms.lib.spec.FieldStates;
+import com.exallium.djforms.lib.spec.FormSpec;
 
 import java.lang.ref.WeakReference;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A DJForm is, in essence, a collection of DJFields.
@@ -54,22 +65,52 @@ public abstract class DJForm {
 
     public static final String TAG = DJForm.class.getSimpleName();
 
+    private static final ChangeSubscription[] NO_SUBSCRIPTIONS = new ChangeSubscription[0];
+
     private ViewGroup cachedViewGroup = null;
-    private List<DJField> fieldCache = new LinkedList<>();
+    // Whether attach rebuilds a ListView, as getFormListView had
+    private boolean listMode = false;
     private WeakReference<Context> weakContext = new WeakReference<Context>(null);
 
+    // Shared by every form of this class, worked out on first use
+    private FormDefinition definition = null;
+    // Our own fields, in definition order
+    private DJField[] fields = null;
+    // State of every field, in definition order
+    private FormState state = null;
+    // Validates and saves our fields through the core loops
+    private FieldBinding binding = null;
+    // The same, for states which aren't our own
+    private FieldBinding statesBinding = null;
+    private AsyncValidator validator = null;
+    // Only if the form has rules
+    private RuleEngine rules = null;
+    private BindingPlan lastPlan = null;
+    private FieldViewPool viewPool = null;
+    private ViewPrefetch prefetch = null;
+    private ModelAdapter lastAdapter = null;
+    // Cursors are plan keys, so we mustn't keep them open
+    private WeakReference<Object> lastPlanKey = new WeakReference<>(null);
+
+    private static volatile FormMetrics defaultMetrics = null;
+    private volatile FormMetrics metrics = defaultMetrics;
+    // Told of every change of state when we're nested in another form
+    private volatile Runnable stateObserver = null;
+    // Replaced, never modified, so changes can be told without locking
+    private volatile ChangeSubscription[] subscriptions = NO_SUBSCRIPTIONS;
+
     public DJForm(Context context) {
         this.weakContext = new WeakReference<>(context);
     }
 
     /**
      * You can put whatever you want here as long as you return a valid ViewGroup.
+     * Defaults to a FormLayout, which stacks the fields like a vertical
+     * LinearLayout in a single measure pass.
      * @return The ViewGroup to stick the form into.
      */
     protected ViewGroup getViewGroup(Context context) {
-        LinearLayout linearLayout = new LinearLayout(context);
-        linearLayout.setOrientation(LinearLayout.VERTICAL);
-        return linearLayout;
+        return new FormLayout(context);
     }
 
     /**
@@ -88,9 +129,29 @@ public abstract class DJForm {
         // If we already have a cached view group, return it.
         if (cachedViewGroup == null) {
             // Otherwise, generate a new one and fill it out.
-            cachedViewGroup = getViewGroup(context);
-            for (DJField field : getFormFields(false)) {
-                cachedViewGroup.addView(field.getFieldView(context));
+            final DJField[] fields = getFormFields();
+            final FormMetrics metrics = this.metrics;
+            final ViewPrefetch prefetch = takePrefetch();
+            final long start = FormMetrics.startPhase(metrics, definition, FormMetrics.Phase.FORM_VIEW_GROUP);
+            try {
+                cachedViewGroup = getViewGroup(context);
+                for (int i = 0; i < fields.length; i++) {
+                    View prepared = null;
+                    if (prefetch != null && prefetch.isFor(context))
+                        prepared = prefetch.take(i);
+                    if (prepared == null && viewPool != null)
+                        prepared = viewPool.acquire(definition, i, context);
+                    if (prepared != null)
+                        fields[i].adoptView(prepared);
+                    final View view = createFieldView(metrics, i, context);
+                    showVisibility(i, view);
+                    cachedViewGroup.addView(view);
+                    fields[i].setFieldState(state.get(i));
+                }
+            } finally {
+                if (prefetch != null)
+                    prefetch.cancel();
+                FormMetrics.endPhase(metrics, definition, FormMetrics.Phase.FORM_VIEW_GROUP, start);
             }
         }
 
@@ -98,86 +159,584 @@ public abstract class DJForm {
     }
 
     /**
-     * Runs validation on all of the interior DJFields
-     * @return true if all fields are valid, false otherwise
+     * You can put whatever you want here as long as you return a valid ListView.
+     * @return The ListView to present the form's fields in.
      */
-    public final boolean isFormValid() {
+    protected ListView getListView(Context context) {
+        final ListView listView = new ListView(context);
+        listView.setItemsCanFocus(true);
+        return listView;
+    }
+
+    /**
+     * Virtualized alternative to getFormViewGroup for very large forms.  Each
+     * field is a row of a recycling ListView, so only the rows on screen have
+     * views.  fillViews, save and isFormValid still cover every field, as
+     * they work off the FormState.
+     * A form is rendered either this way or with getFormViewGroup, not both.
+     * @return The ListView object representing the form.
+     */
+    public final ListView getFormListView() {
+
+        final Context context = weakContext.get();
+
+        if (context == null)
+            throw new IllegalStateException("Context is NULL");
+
+        if (cachedViewGroup == null) {
+            final ViewPrefetch prefetch = takePrefetch();
+            if (prefetch != null)
+                prefetch.cancel();
+            final ListView listView = getListView(context);
+            listView.setAdapter(new FormListAdapter(this, context, getFormFields()));
+            cachedViewGroup = listView;
+        } else if (!(cachedViewGroup instanceof ListView)) {
+            throw new IllegalStateException("Form was already rendered by getFormViewGroup");
+        }
+
+        return (ListView) cachedViewGroup;
+    }
+
+    /**
+     * Starts building this form's field views on AsyncTask.THREAD_POOL_EXECUTOR.
+     * See prefetch(Executor).
+     */
+    public final void prefetch() {
+        prefetch(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Starts building this form's field views in the background, e.g. while
+     * the previous screen is still showing, so getFormViewGroup only has to
+     * attach them.  Fields whose views aren't ready by then are built there as
+     * usual, so getFormViewGroup never waits on the prefetch.  Does nothing if
+     * the form already has its views or a prefetch under way.
+     * Views are built bare, and only initialized by their fields on the main
+     * thread, so custom views must not need the main thread to be constructed.
+     * @param executor Where to build the views
+     */
+    public final void prefetch(Executor executor) {
+        final Context context = weakContext.get();
+        if (context == null)
+            throw new IllegalStateException("Context is NULL");
+
+        getFormFields();
+        final ViewPrefetch started;
+        synchronized (this) {
+            if (cachedViewGroup != null || prefetch != null)
+                return;
+            started = new ViewPrefetch(definition, context, metrics);
+            prefetch = started;
+        }
+        started.start(executor);
+    }
+
+    /**
+     * @return The prefetch under way, which is now ours to finish, or null
+     */
+    private synchronized ViewPrefetch takePrefetch() {
+        final ViewPrefetch taken = prefetch;
+        prefetch = null;
+        return taken;
+    }
+
+    /**
+     * Opts this form into recycling field views.  Must be called before
+     * getFormViewGroup to have any effect on it.
+     * @param viewPool The pool to take views from and release them into, or null
+     */
+    public final void setViewPool(FieldViewPool viewPool) {
+        this.viewPool = viewPool;
+    }
+
+    /**
+     * Lets go of every view this form created, handing them to the view pool
+     * if there is one.  The field views and FormState are reset, so whatever
+     * was entered is lost.  The next call to getFormViewGroup builds a fresh
+     * ViewGroup.  A prefetch under way is cancelled.
+     */
+    public final void release() {
+        if (!dropViews())
+            return;
+        validator.cancel();
+        state.clear();
+    }
+
+    /**
+     * Lets go of every view and of our Context, but keeps what was entered,
+     * e.g. when a form held by a retained fragment or ViewModel outlives its
+     * Activity.  Views go to the view pool, if there is one, and the form
+     * forgets the pool, as it belongs to the old Context.  An outstanding
+     * validateAsync is dropped.  Call attach to show the form again.
+     */
+    public final void detach() {
+        if (fields != null)
+            catchUpViews();
+        listMode = cachedViewGroup instanceof ListView;
+        dropViews();
+        viewPool = null;
+        weakContext = new WeakReference<>(null);
+        if (fields != null)
+            validator.cancel();
+    }
+
+    /**
+     * Shows the form in a new Context, rebuilding its views from the FormState
+     * the way they were last built, by getFormViewGroup or getFormListView.
+     * Views built for another Context are dropped first.
+     * @param context The Context to build views in
+     * @return The form's ViewGroup, or ListView
+     */
+    public final ViewGroup attach(Context context) {
+        if (weakContext.get() != context) {
+            if (cachedViewGroup != null)
+                detach();
+            weakContext = new WeakReference<>(context);
+        }
+        return listMode ? getFormListView() : getFormViewGroup();
+    }
+
+    /**
+     * Takes every view away from the fields and hands them to the view pool,
+     * if there is one.  A prefetch under way is cancelled.
+     * @return true if there were views to drop
+     */
+    private boolean dropViews() {
+        final ViewPrefetch prefetch = takePrefetch();
+        if (prefetch != null)
+            prefetch.cancel();
 
         if (cachedViewGroup == null)
-            throw new IllegalStateException("Must call getFormViewGroup before isFormValid");
+            return false;
 
-        for (DJField field : getFormFields(false))
-            if (!field.isFieldValid()) return false;
+        if (cachedViewGroup instanceof ListView)
+            ((ListView) cachedViewGroup).setAdapter(null);
+        else
+            cachedViewGroup.removeAllViews();
+
+        for (int i = 0; i < fields.length; i++) {
+            final View view = fields[i].releaseView();
+            if (view == null)
+                continue;
+            if (view.getParent() instanceof ViewGroup && !(view.getParent() instanceof AdapterView))
+                ((ViewGroup) view.getParent()).removeView(view);
+            if (viewPool != null)
+                viewPool.release(definition, i, view);
+        }
+        cachedViewGroup = null;
         return true;
     }
 
     /**
-     * Writes from a model into fields
+     * Runs validation on all of the interior DJFields.  This works without
+     * views and from any thread, off the FormState.  Validity is cached per
+     * field, so only fields which changed since the last call are validated
+     * again.
+     * @return true if all fields are valid, false otherwise
+     */
+    public final boolean isFormValid() {
+        validateChangedFields();
+        return state.isAllValid();
+    }
+
+    /**
+     * The validity of every field, e.g. to highlight the invalid ones.  Only
+     * fields which changed since they were last validated are validated again.
+     * @return A BitSet with a set bit for each valid field, by definition index
+     */
+    public final BitSet getFieldValidity() {
+        validateChangedFields();
+        return state.getValidity();
+    }
+
+    private void validateChangedFields() {
+        getFormFields();
+        final FormMetrics metrics = this.metrics;
+        final long start = FormMetrics.startPhase(metrics, definition, FormMetrics.Phase.VALIDATE);
+        try {
+            catchUpViews();
+            for (int i = state.nextDirty(0); i != -1; i = state.nextDirty(i + 1)) {
+                final long fieldStart = FormMetrics.startField(metrics, definition, FormMetrics.Phase.VALIDATE, i);
+                try {
+                    state.validate(i, binding, RuleEngine.isHidden(rules, i));
+                } finally {
+                    FormMetrics.endField(metrics, definition, FormMetrics.Phase.VALIDATE, i, fieldStart);
+                }
+            }
+        } finally {
+            FormMetrics.endPhase(metrics, definition, FormMetrics.Phase.VALIDATE, start);
+        }
+    }
+
+    /**
+     * Validates every field on the validation executor, without ever blocking
+     * the calling thread, and hands the result to the listener on the main
+     * thread.  The run starts after the validation delay.  If the form state
+     * changes before the result is delivered, validation starts over, so the
+     * result always matches the latest input.  A newer call replaces the
+     * listener of an older one, which then hears nothing.
+     * @param listener Told the result, on the main thread
+     */
+    public final void validateAsync(OnFormValidatedListener listener) {
+        getFormFields();
+        catchUpViews();
+        validator.request(listener);
+    }
+
+    /**
+     * Drops any outstanding validateAsync, its listener won't be told anything
+     */
+    public final void cancelValidation() {
+        getFormFields();
+        validator.cancel();
+    }
+
+    /**
+     * @param executor Where validateAsync runs validators.  Defaults to
+     *                 AsyncTask.THREAD_POOL_EXECUTOR
+     */
+    public final void setValidationExecutor(Executor executor) {
+        getFormFields();
+        validator.setExecutor(executor);
+    }
+
+    /**
+     * Debounces validateAsync, which waits this long for input to settle
+     * before validating.  Defaults to 0.
+     * @param delayMillis The delay, in milliseconds
+     */
+    public final void setValidationDelay(long delayMillis) {
+        getFormFields();
+        validator.setDelay(delayMillis);
+    }
+
+    /**
+     * Tells the listener which fields changed, whether by the user, fillViews,
+     * restoreInstanceState or a rule.  Changes are merged until the listener
+     * can be told, and can be debounced and filtered through the returned
+     * subscription.
+     * @param listener Told of changes, on the main thread by default
+     * @return The subscription, to configure or cancel
+     */
+    public final ChangeSubscription observeChanges(OnFormChangedListener listener) {
+        getFormFields();
+        final ChangeSubscription subscription = new ChangeSubscription(this, listener);
+        synchronized (this) {
+            final ChangeSubscription[] subscriptions = Arrays.copyOf(this.subscriptions, this.subscriptions.length + 1);
+            subscriptions[subscriptions.length - 1] = subscription;
+            this.subscriptions = subscriptions;
+        }
+        return subscription;
+    }
+
+    synchronized void removeSubscription(ChangeSubscription subscription) {
+        final ChangeSubscription[] subscriptions = this.subscriptions;
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i] == subscription) {
+                final ChangeSubscription[] remaining = new ChangeSubscription[subscriptions.length - 1];
+                System.arraycopy(subscriptions, 0, remaining, 0, i);
+                System.arraycopy(subscriptions, i + 1, remaining, i, remaining.length - i);
+                this.subscriptions = remaining;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Validates a field against the FormState, from any thread.  The cached
+     * validity is used if the field hasn't changed.
+     * @param index The field index
+     * @return true if valid, false otherwise
+     */
+    boolean isFieldStateValid(int index) {
+        return state.validate(index, binding, RuleEngine.isHidden(rules, index));
+    }
+
+    /**
+     * Validates fields which still override isValid(View) through their views,
+     * on the main thread, so validateAsync finds their validity cached
+     */
+    void validateViewFields() {
+        for (int i = 0; i < fields.length; i++)
+            if (definition.validatesViews(i) && fields[i].peekView() != null)
+                isFieldStateValid(i);
+    }
+
+    /**
+     * Reads the views of fields which don't report their changes into the
+     * FormState.  Views can only be read on the main thread.
+     */
+    void catchUpViews() {
+        if (!MainThread.isCurrent())
+            return;
+        state.catchUp();
+        for (int i = 0; i < fields.length; i++) {
+            final DJField field = fields[i];
+            if (field.reportsStateChanges() || field.peekView() == null)
+                continue;
+            final Object current = field.getFieldState();
+            final Object known = state.get(i);
+            if (current == null ? known != null : !current.equals(known))
+                state.update(i, current);
+        }
+    }
+
+    /**
+     * Writes from a model into the FormState, and into the field views if
+     * they exist.  Works without views and from any thread.
      * @param model The model to use for initialization
      */
     public final void fillViews(Object model) {
-        if (fieldCache == null)
-            throw new IllegalStateException("Must call getFormViewGroup before fillViews");
-
-        for (DJField field : fieldCache) {
-            final String name = field.getName();
-            try {
-                Field f = model.getClass().getField(name);
-                field.setFieldValue(f.get(model));
-            } catch (NoSuchFieldException e) {
+        final DJField[] fields = getFormFields();
+        final FormMetrics metrics = this.metrics;
+        final long start = FormMetrics.startPhase(metrics, definition, FormMetrics.Phase.FILL_VIEWS);
+        // Rules run once, for every field filled
+        RuleEngine.hold(rules);
+        try {
+            final BindingPlan plan = getBindingPlan(model);
+            for (int i = 0; i < fields.length; i++) {
+                final DJField field = fields[i];
+                final PropertyAccessor accessor = plan.getAccessor(i);
+                if (!accessor.canRead())
+                    continue;
+                final long fieldStart = FormMetrics.startField(metrics, definition, FormMetrics.Phase.FILL_VIEWS, i);
                 try {
-                    Method m = model.getClass().getMethod(getFieldGetter(name));
-                    field.setFieldValue(m.invoke(model));
-                } catch (NoSuchMethodException e1) {
-                } catch (InvocationTargetException e1) {
-                    Log.e(TAG, "Bad Invocation", e);
-                } catch (IllegalAccessException e1) {
+                    final Object value = accessor.get(model);
+                    final Object fieldState = value == null ? null : field.toState(value);
+                    if (fieldState != null)
+                        state.set(i, fieldState);
+                    state.setLoaded(i, fieldState, value);
+                } catch (BindingException e) {
                     Log.e(TAG, "Something Bad Happened", e);
+                } finally {
+                    FormMetrics.endField(metrics, definition, FormMetrics.Phase.FILL_VIEWS, i, fieldStart);
                 }
-            } catch (IllegalAccessException e) {
-                Log.d(TAG, "Field" + field + " can't be accessed");
             }
+        } finally {
+            RuleEngine.release(rules);
+            FormMetrics.endPhase(metrics, definition, FormMetrics.Phase.FILL_VIEWS, start);
         }
     }
 
     /**
-     * Saves a model with the given info regardless of whether it's valid
+     * Saves a model with the given info regardless of whether it's valid.
+     * Works without views and from any thread, off the FormState.
      * @param model The object to save into
      */
     public final void save(Object model) {
 
-        if (fieldCache == null)
-            throw new IllegalStateException("Must call getFormViewGroup before save");
-
         // We get passed a "destination" for the field info.  The fields map from either their name
-        // or from their DJField name
-        for (DJField field : fieldCache) {
-            final String name = field.getName();
-            final Object value = field.getFieldValue();
-            try {
-                Field f = model.getClass().getField(name);
-                f.set(model, value);
-            } catch (NoSuchFieldException e) {
-                // Lookup method is impossible here...
-                if (value == null)
-                    continue;
-                try {
-                    Method m = resolveMethod(getFieldSetter(name), model, value);
+        // or from their DJField name, resolved once per model class by the BindingPlan
+        getFormFields();
+        final FormMetrics metrics = this.metrics;
+        final long start = FormMetrics.startPhase(metrics, definition, FormMetrics.Phase.SAVE);
+        try {
+            final BindingPlan plan = getBindingPlan(model);
+            catchUpViews();
+            binding.timedBy(metrics).save(state, plan, model);
+            keepSavedStates(plan, model, null);
+        } finally {
+            FormMetrics.endPhase(metrics, definition, FormMetrics.Phase.SAVE, start);
+        }
 
-                    if (m != null)
-                        m.invoke(model, value);
+        postSave(model);
+    }
 
-                }  catch (InvocationTargetException e1) {
-                    Log.e(TAG, "Bad Invocation", e);
-                } catch (IllegalAccessException e1) {
-                    Log.e(TAG, "Something Bad Happened", e);
-                }
-            } catch (IllegalAccessException e) {
-                Log.e(TAG, "Something Bad Happened", e);
+    /**
+     * Saves only the fields which changed since fillViews loaded them (or since
+     * the last saveChanges), so the model can be updated partially.  postSave is
+     * only called if something was written.
+     * @param model The object to save into
+     * @return The properties which were written, with their old and new values
+     */
+    public final ChangeSet saveChanges(Object model) {
+        final DJField[] fields = getFormFields();
+        final BindingPlan plan = getBindingPlan(model);
+        catchUpViews();
+        final BitSet changed = state.getChanged();
+        binding.save(state, plan, model, changed);
+        keepSavedStates(plan, model, changed);
+
+        final ChangeSet.Builder changes = new ChangeSet.Builder();
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            final Object fieldState = state.get(i);
+            final Object value = fields[i].toValue(fieldState);
+            changes.add(plan.getAccessor(i).getName(), state.getLoadedValue(i), value);
+            state.setLoaded(i, fieldState, value);
+        }
+
+        final ChangeSet changeSet = changes.build();
+        if (!changeSet.isEmpty())
+            postSave(model);
+        return changeSet;
+    }
+
+    /**
+     * Lets fields replace the state they just saved, as saving never changes it
+     * @param written The fields written, or null for all of them
+     */
+    private void keepSavedStates(BindingPlan plan, Object model, BitSet written) {
+        for (int i = 0; i < fields.length; i++) {
+            if (written != null && !written.get(i))
+                continue;
+            final Object saved = state.get(i);
+            final Object kept = fields[i].savedState(saved, plan.getAccessor(i), model);
+            if (kept != saved)
+                state.replace(i, saved, kept);
+        }
+    }
+
+    /**
+     * @return true if any field changed since fillViews loaded it, or since the
+     * last saveChanges
+     */
+    public final boolean hasChanges() {
+        final DJField[] fields = getFormFields();
+        catchUpViews();
+        for (int i = 0; i < fields.length; i++)
+            if (state.isChanged(i))
+                return true;
+        return false;
+    }
+
+    /**
+     * Packs the state of every field, including what it was loaded with, so the
+     * form can be rebuilt with restore after a configuration change without
+     * reloading its model.
+     * @return The snapshot
+     */
+    public final FormSnapshot snapshot() {
+        final DJField[] fields = getFormFields();
+        catchUpViews();
+        final Object[] states = new Object[fields.length];
+        final Object[] loaded = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            states[i] = fields[i].toSnapshot(state.get(i));
+            loaded[i] = fields[i].toSnapshot(state.getLoadedState(i));
+        }
+        return new FormSnapshot(definition, states, loaded);
+    }
+
+    /**
+     * Puts back the state from a snapshot of a form of the same class, and into
+     * our views if they exist.  Loaded model values are rebuilt from their
+     * states, so saveChanges keeps working.
+     * @param snapshot The snapshot
+     */
+    public final void restore(FormSnapshot snapshot) {
+        final DJField[] fields = getFormFields();
+        if (!snapshot.matches(definition))
+            throw new IllegalArgumentException("Snapshot was taken from another form");
+        RuleEngine.hold(rules);
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                final DJField field = fields[i];
+                final Object loaded = field.fromSnapshot(snapshot.getLoadedState(i));
+                state.set(i, field.fromSnapshot(snapshot.getState(i)));
+                state.setLoaded(i, loaded, loaded == null ? null : field.toValue(loaded));
             }
+        } finally {
+            RuleEngine.release(rules);
         }
+    }
 
-        postSave(model);
+    /**
+     * Saves a snapshot of this form, e.g. from Activity.onSaveInstanceState
+     * @param outState The bundle to save into
+     */
+    public final void saveInstanceState(Bundle outState) {
+        outState.putParcelable(FormSnapshot.keyFor(getFormDefinition()), snapshot());
+    }
+
+    /**
+     * Restores the snapshot saved by saveInstanceState, if there is one
+     * @param savedInstanceState The saved bundle, or null
+     * @return true if the form was restored
+     */
+    public final boolean restoreInstanceState(Bundle savedInstanceState) {
+        if (savedInstanceState == null)
+            return false;
+        savedInstanceState.setClassLoader(FormSnapshot.class.getClassLoader());
+        final FormSnapshot snapshot = savedInstanceState.getParcelable(FormSnapshot.keyFor(getFormDefinition()));
+        if (snapshot == null)
+            return false;
+        restore(snapshot);
+        return true;
+    }
+
+    /**
+     * @return A new, empty state for this form's fields, unattached to any view.
+     * Fill it in and pass it to saveAll.
+     */
+    public final FormState newFormState() {
+        getFormFields();
+        return new FormState(definition);
+    }
+
+    /**
+     * Writes the same state into every model.  See saveAll(List, List, Executor).
+     */
+    public final BatchResult saveAll(FormState state, List<?> models) {
+        return saveAll(Collections.singletonList(state), models, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Writes states.get(i) into models.get(i).  See saveAll(List, List, Executor).
+     */
+    public final BatchResult saveAll(List<FormState> states, List<?> models) {
+        return saveAll(states, models, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Saves a batch of states into a batch of models, without touching this form's
+     * own state or views.  Large batches are split across the executor, and this
+     * call blocks until every model is written, so keep it off the main thread.
+     * Slices the executor doesn't get to, or rejects, are saved by the calling
+     * thread, so it's safe to call from a task on the same executor.
+     * postSave is not called.
+     * @param states One state per model, or a single state for all of them
+     * @param models The models to write into
+     * @param executor Where the batch is split across
+     * @return Which models were saved, and why the others weren't
+     */
+    public final BatchResult saveAll(List<FormState> states, List<?> models, Executor executor) {
+        if (states.size() != 1 && states.size() != models.size())
+            throw new IllegalArgumentException("Got " + states.size() + " states for " + models.size() + " models");
+        final DJField[] fields = getFormFields();
+        // The workers can't wait on our views while we wait on them
+        catchUpViews();
+        for (FormState batchState : states)
+            if (batchState.getDefinition() != definition)
+                throw new IllegalArgumentException("State belongs to another form");
+        return new BatchSaver(this, definition, fields).save(states, models, executor);
+    }
+
+    /**
+     * Chooses how model properties are read and written by fillViews and save.
+     * Defaults to the code generated by djforms-compiler, falling back to
+     * reflection where there is none.
+     * @return The backend to resolve model properties with
+     */
+    protected AccessorBackend getAccessorBackend() {
+        return AccessorBackend.GENERATED;
+    }
+
+    /**
+     * Times this form's phases, see FormMetrics
+     * @param metrics The metrics to tell, or null for none
+     */
+    public final void setMetrics(FormMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the metrics of every form created from now on, which are also told
+     * how model properties are resolved.
+     * @param metrics The metrics to tell, or null for none
+     */
+    public static void setDefaultMetrics(FormMetrics metrics) {
+        defaultMetrics = metrics;
+        AccessorBackend.setResolutionListener(metrics);
     }
 
     /**
@@ -186,73 +745,300 @@ public abstract class DJForm {
      */
     protected void postSave(Object model) {}
 
-    private String getFieldSetter(String name) {
-        return String.format("set%s", capitalize(name));
+    /**
+     * Declares the rules between this form's fields, e.g. a total computed
+     * from quantity and price.  Called once per form class, when its
+     * definition is built, so return the same rules every time, e.g. from a
+     * static constant.  Rules naming unknown fields, or which depend on each
+     * other, are refused then.
+     * @return The rules, or null for none
+     */
+    protected FormRule[] getRules() {
+        return null;
     }
 
-    private String getFieldGetter(String name) {
-        return String.format("get%s", capitalize(name));
+    /**
+     * Chooses how a model is read and written by fillViews and save.  Override
+     * to bind models of your own, falling back to super for the rest.
+     * @param model The model about to be bound
+     * @return The adapter for the model.  Defaults to CURSOR, CONTENT_VALUES
+     * or MAP for those, and POJO for anything else.
+     */
+    protected ModelAdapter getModelAdapter(Object model) {
+        return ModelAdapter.forModel(model);
     }
 
-    private String capitalize(String name) {
-        return name.substring(0,1).toUpperCase() + name.substring(1);
+    /**
+     * The plan for the model we last bound is kept on hand, as forms are almost
+     * always filled and saved against the same kind of model, or cursor.
+     */
+    private BindingPlan getBindingPlan(Object model) {
+        final ModelAdapter adapter = getModelAdapter(model);
+        final Object key = adapter.getPlanKey(model);
+        BindingPlan plan = lastPlan;
+        if (plan == null || lastAdapter != adapter || lastPlanKey.get() != key) {
+            plan = adapter.getBindingPlan(getFormDefinition(), getAccessorBackend(), model);
+            lastPlan = plan;
+            lastAdapter = adapter;
+            lastPlanKey = new WeakReference<>(key);
+        }
+        return plan;
     }
 
-    private List<DJField> getFormFields(boolean clearCache) {
+    /**
+     * @return The definition shared by every form of this class
+     */
+    public final FormDefinition getFormDefinition() {
+        if (definition == null)
+            definition = FormDefinition.of(this);
+        return definition;
+    }
 
-        if (clearCache)
-            fieldCache.clear();
-        else if (fieldCache.size() != 0)
-            return fieldCache;
+    /**
+     * Describes this form to code which runs without Android, e.g. to validate
+     * the same submissions on a server, or to check a spec shared with one
+     * against this form with equals.
+     * @return The spec shared by every form of this class
+     */
+    public final FormSpec getFormSpec() {
+        return getFormDefinition().getSpec();
+    }
 
-        for (Field field : this.getClass().getFields()) {
-            if (DJField.class.isAssignableFrom(field.getType())) {
-                try {
-                    DJField djField = (DJField) field.get(this);
-                    if (djField.getName() == null)
-                        djField.setFieldName(field.getName());
-                    fieldCache.add(djField);
-                } catch (IllegalAccessException e) {
-                    Log.w(TAG, "Could not retrieve field");
+    /**
+     * @return The state of every field of this form
+     */
+    public final FormState getFormState() {
+        getFormFields();
+        return state;
+    }
+
+    private synchronized DJField[] getFormFields() {
+        if (fields == null) {
+            final DJField[] fields = getFormDefinition().fieldsOf(this);
+            state = new FormState(definition);
+            validator = new AsyncValidator(this, fields.length);
+            state.setListener(new FormState.Listener() {
+                @Override
+                public void onStateSet(int index) {
+                    showState(index);
                 }
+
+                @Override
+                public Object readView(int index, Object known) {
+                    final DJField field = fields[index];
+                    return field.peekView() != null ? field.getFieldState() : known;
+                }
+
+                @Override
+                public void onStateChanged(int index) {
+                    validator.onStateChanged();
+                    final RuleEngine rules = DJForm.this.rules;
+                    if (rules != null)
+                        rules.onStateChanged(index);
+                    final Runnable observer = stateObserver;
+                    if (observer != null)
+                        observer.run();
+                    final ChangeSubscription[] subscriptions = DJForm.this.subscriptions;
+                    for (int i = 0; i < subscriptions.length; i++)
+                        subscriptions[i].onStateChanged(index);
+                }
+            });
+            for (int i = 0; i < fields.length; i++)
+                fields[i].attachState(state, i);
+            binding = new FieldBinding(fields, definition, null, true);
+            statesBinding = new FieldBinding(fields, definition, null, false);
+            this.fields = fields;
+
+            final RuleGraph graph = definition.getRules();
+            if (graph != null) {
+                rules = new RuleEngine(this, graph, fields, state);
+                rules.onStateChanged(-1);
             }
         }
-        return fieldCache;
+        return fields;
     }
 
     /**
-     * Stupid frigging java type system makes no sense sometimes.
-     * @param methodName Method we're looking for
-     * @param subject    Where we're looking
-     * @param value      What we're looking to put there
-     * @return The method if found, else null
+     * Puts a field's state into its view, if it has one, on the main thread
+     * @param index The field index
      */
-    private Method resolveMethod(String methodName, Object subject, Object value) {
-        try {
-            return subject.getClass().getMethod(methodName, value.getClass());
-        } catch (NoSuchMethodException e) {
-            Class<?> clazz = null;
-            if (value instanceof Long) {
-                clazz = Long.TYPE;
-            } else if (value instanceof Integer) {
-                clazz = Integer.TYPE;
-            } else if (value instanceof Byte) {
-                clazz = Byte.TYPE;
-            } else if (value instanceof Character) {
-                clazz = Character.TYPE;
-            } else if (value instanceof Short) {
-                clazz = Short.TYPE;
-            } else if (value instanceof Double) {
-                clazz = Double.TYPE;
-            } else if (value instanceof Float) {
-                clazz = Float.TYPE;
+    private void showState(final int index) {
+        final DJField field = fields[index];
+        MainThread.run(new Runnable() {
+            @Override
+            public void run() {
+                if (field.peekView() != null)
+                    field.setFieldState(state.get(index));
             }
+        });
+    }
 
-            try {
-                return subject.getClass().getMethod(methodName, clazz);
-            } catch (NoSuchMethodException e1) {
-                return null;
+    /**
+     * Shows or hides a new field view as the rules say, if there are any
+     */
+    private void showVisibility(int index, View view) {
+        if (rules != null)
+            view.setVisibility(rules.isHidden(index) ? View.GONE : View.VISIBLE);
+    }
+
+    /**
+     * Puts what a round of rules changed into the views, on the main thread
+     * @param values Fields whose state was computed
+     * @param visibility Fields which were shown or hidden
+     */
+    void showRuleResults(BitSet values, BitSet visibility) {
+        for (int i = values.nextSetBit(0); i != -1; i = values.nextSetBit(i + 1))
+            if (fields[i].peekView() != null)
+                fields[i].setFieldState(state.get(i));
+        for (int i = visibility.nextSetBit(0); i != -1; i = visibility.nextSetBit(i + 1)) {
+            final View view = fields[i].peekView();
+            if (view != null)
+                showVisibility(i, view);
+        }
+    }
+
+    /**
+     * Gives a field a view to show in, for FormListAdapter.  A recycled view is
+     * taken from the field it last showed, whose state is kept, and the field
+     * being bound has its kept state put back.
+     * @param index The field index
+     * @param convertView A view to recycle, or null
+     * @param context The context to build a new view for
+     * @return The field's view
+     */
+    View bindFieldView(int index, View convertView, Context context) {
+        final DJField field = fields[index];
+        final View bound = field.peekView();
+        if (bound != null && bound == convertView)
+            return bound;
+
+        if (bound != null)
+            unbindFieldView(index);
+
+        if (convertView != null) {
+            final Object owner = convertView.getTag(R.id.djforms__field_index);
+            if (owner != null && fields[(Integer) owner].peekView() == convertView)
+                unbindFieldView((Integer) owner);
+            field.adoptView(convertView);
+        }
+
+        final View view = createFieldView(this.metrics, index, context);
+        showVisibility(index, view);
+        field.setFieldState(state.get(index));
+        view.setTag(R.id.djforms__field_index, index);
+        return view;
+    }
+
+    /**
+     * Gets a field's view, creating it if it has none, timed as CREATE_VIEW
+     */
+    private View createFieldView(FormMetrics metrics, int index, Context context) {
+        final long start = FormMetrics.startField(metrics, definition, FormMetrics.Phase.CREATE_VIEW, index);
+        try {
+            return fields[index].getFieldView(context);
+        } finally {
+            FormMetrics.endField(metrics, definition, FormMetrics.Phase.CREATE_VIEW, index, start);
+        }
+    }
+
+    /**
+     * Keeps a field's state and lets go of its view
+     * @param index The field index
+     */
+    private void unbindFieldView(int index) {
+        state.update(index, fields[index].getFieldState());
+        fields[index].releaseView();
+    }
+
+    /*
+     * Nesting, for SubFormField and RepeatingGroupField.  A nested form's
+     * state travels in its parent's FormState as an unmodifiable List of its
+     * field states, in field order, which compares by value.
+     */
+
+    /**
+     * @param observer Told after every change of our state, or null
+     */
+    void setStateObserver(Runnable observer) {
+        stateObserver = observer;
+    }
+
+    /**
+     * Reads a model into field states without touching our FormState
+     * @param model The nested model
+     * @return The state of every field
+     */
+    List<Object> readStates(Object model) {
+        final DJField[] fields = getFormFields();
+        final BindingPlan plan = getModelAdapter(model).getBindingPlan(definition, getAccessorBackend(), model);
+        final Object[] states = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            final PropertyAccessor accessor = plan.getAccessor(i);
+            if (!accessor.canRead())
+                continue;
+            final Object value = accessor.get(model);
+            states[i] = value == null ? null : fields[i].toState(value);
+        }
+        return Collections.unmodifiableList(Arrays.asList(states));
+    }
+
+    /**
+     * Writes field states into a model, like save, without calling postSave
+     * @param states The state of every field, or null for none
+     * @param model The nested model
+     */
+    void writeStates(List<?> states, Object model) {
+        getFormFields();
+        final BindingPlan plan = getModelAdapter(model).getBindingPlan(definition, getAccessorBackend(), model);
+        statesBinding.save(statesOf(states), plan, model);
+    }
+
+    /**
+     * @param states The state of every field, or null for none
+     * @return true if every field would be valid with these states
+     */
+    boolean areStatesValid(List<?> states) {
+        getFormFields();
+        return statesBinding.isValid(statesOf(states));
+    }
+
+    private static FieldStates statesOf(final List<?> states) {
+        return new FieldStates() {
+            @Override
+            public Object get(int index) {
+                return states == null ? null : states.get(index);
             }
+        };
+    }
+
+    /**
+     * @return The state of every field, as it is now
+     */
+    List<Object> currentStates() {
+        getFormFields();
+        catchUpViews();
+        final Object[] states = new Object[fields.length];
+        for (int i = 0; i < states.length; i++)
+            states[i] = state.get(i);
+        return Collections.unmodifiableList(Arrays.asList(states));
+    }
+
+    /**
+     * Puts states into our FormState, and so into our views
+     * @param states The state of every field, or null to clear them
+     */
+    void showStates(List<?> states) {
+        getFormFields();
+        if (states == null) {
+            state.clear();
+            return;
+        }
+        RuleEngine.hold(rules);
+        try {
+            for (int i = 0; i < fields.length; i++)
+                state.set(i, states.get(i));
+        } finally {
+            RuleEngine.release(rules);
         }
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.util.Log;
+import android.view.View;
+
+import com.exallium.djforms.lib.binding.BindingException;
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+import com.exallium.djforms.lib.spec.FormFields;
+
+/**
+ * A form's fields as seen by the core save and validate loops, which FormSpec
+ * runs too.  Fields which fail to bind are logged, and the rest still saved.
+ *
+ * When the states validated are the form's own, fields which still override
+ * isValid(View) are validated by it, while they have a view on the main thread.
+ */
+class FieldBinding extends FormFields {
+
+    private final DJField[] fields;
+    private final FormDefinition definition;
+    // Times each field's write, may be null
+    private final FormMetrics metrics;
+    // Whether the states are the form's own, and so what its views show
+    private final boolean ownStates;
+
+    FieldBinding(DJField[] fields, FormDefinition definition, FormMetrics metrics, boolean ownStates) {
+        this.fields = fields;
+        this.definition = definition;
+        this.metrics = metrics;
+        this.ownStates = ownStates;
+    }
+
+    /**
+     * @param metrics The metrics to time writes with, or null
+     * @return The same fields, timed by metrics
+     */
+    FieldBinding timedBy(FormMetrics metrics) {
+        return metrics == this.metrics ? this : new FieldBinding(fields, definition, metrics, ownStates);
+    }
+
+    @Override
+    public int size() {
+        return fields.length;
+    }
+
+    @Override
+    @SuppressWarnings({"deprecation", "unchecked"})
+    public boolean isValid(int index, Object state) {
+        final DJField field = fields[index];
+        if (ownStates && definition.validatesViews(index)) {
+            final View view = field.peekView();
+            if (view != null && MainThread.isCurrent())
+                return field.isValid(view);
+        }
+        return field.isStateValid(state);
+    }
+
+    @Override
+    protected void write(int index, PropertyAccessor accessor, Object model, Object state) {
+        if (metrics == null) {
+            fields[index].writeValue(accessor, model, state);
+            return;
+        }
+        final long start = FormMetrics.startField(metrics, definition, FormMetrics.Phase.SAVE, index);
+        try {
+            fields[index].writeValue(accessor, model, state);
+        } finally {
+            FormMetrics.endField(metrics, definition, FormMetrics.Phase.SAVE, index, start);
+        }
+    }
+
+    @Override
+    protected boolean onWriteFailed(int index, PropertyAccessor accessor, Object model, RuntimeException e) {
+        if (!(e instanceof BindingException))
+            throw e;
+        Log.e(DJForm.TAG, "Something Bad Happened", e);
+        return true;
+    }
+}
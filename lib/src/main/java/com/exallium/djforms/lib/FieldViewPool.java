@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.view.View;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An opt-in pool of field views, shared between forms of the same class.
+ *
+ * A form given a pool with DJForm.setViewPool() hands its field views back
+ * when DJForm.release() is called, and the next form of the same definition
+ * built for the same Context picks them up instead of creating new ones.
+ * Views are reset through DJField.onViewRecycled() on the way in, and
+ * re-initialized through DJField.onViewCreated() on the way out.
+ *
+ * Pooled views hold on to the Context they were built for, so a pool should
+ * live no longer than that Context, e.g. as a member of your Activity, and
+ * be cleared when it is destroyed.
+ */
+public class FieldViewPool {
+
+    public static final int DEFAULT_MAX_PER_FIELD = 2;
+
+    private final int maxPerField;
+    private final Map<FormDefinition, ArrayDeque<View>[]> pools = new HashMap<>();
+
+    public FieldViewPool() {
+        this(DEFAULT_MAX_PER_FIELD);
+    }
+
+    /**
+     * @param maxPerField How many spare views to keep for each field of each
+     *                    form definition.  Views past this are dropped.
+     */
+    public FieldViewPool(int maxPerField) {
+        if (maxPerField < 0)
+            throw new IllegalArgumentException("maxPerField must not be negative");
+        this.maxPerField = maxPerField;
+    }
+
+    /**
+     * Takes a spare view for a field, if there is one built for context
+     * @return A reset view, or null
+     */
+    synchronized View acquire(FormDefinition definition, int index, Context context) {
+        final ArrayDeque<View>[] pool = pools.get(definition);
+        if (pool == null || pool[index] == null)
+            return null;
+
+        View view;
+        while ((view = pool[index].poll()) != null) {
+            if (ViewFactory.isBuiltFor(view, context))
+                return view;
+        }
+        return null;
+    }
+
+    /**
+     * Offers a reset view for a field back to the pool
+     * @return true if the view was kept, false if the pool was full
+     */
+    @SuppressWarnings("unchecked")
+    synchronized boolean release(FormDefinition definition, int index, View view) {
+        ArrayDeque<View>[] pool = pools.get(definition);
+        if (pool == null) {
+            pool = new ArrayDeque[definition.size()];
+            pools.put(definition, pool);
+        }
+        if (pool[index] == null)
+            pool[index] = new ArrayDeque<>(maxPerField);
+
+        if (pool[index].size() >= maxPerField)
+            return false;
+        pool[index].add(view);
+        return true;
+    }
+
+    /**
+     * @return The total number of spare views held
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (ArrayDeque<View>[] pool : pools.values())
+            for (ArrayDeque<View> views : pool)
+                if (views != null)
+                    size += views.size();
+        return size;
+    }
+
+    /**
+     * Drops every spare view
+     */
+    public synchronized void clear() {
+        pools.clear();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Base class for the form binders generated by djforms-compiler.
+ *
+ * A generated binder hands back the public DJFields of one form class, in the
+ * same order getFields() would have found them, by reading the members
+ * directly.  When a binder is present DJForm uses it instead of scanning the
+ * form class with reflection.
+ *
+ * You should never need to subclass this by hand.
+ */
+public abstract class FormBinder {
+
+    /** Suffix appended to a form's binary name to find its generated binder */
+    public static final String SUFFIX = "$$DJFormBinder";
+
+    private static final FormBinder NONE = new FormBinder() {
+        @Override
+        public String[] getMemberNames() { return new String[0]; }
+
+        @Override
+        public DJField[] getFields(DJForm form) { return new DJField[0]; }
+    };
+
+    private static final ConcurrentMap<Class<?>, FormBinder> BINDERS = new ConcurrentHashMap<>();
+
+    /**
+     * @return The java member names of the form's fields, in field order
+     */
+    public abstract String[] getMemberNames();
+
+    /**
+     * @param form The form to read from, always an instance of the bound class
+     * @return The form's fields, in the same order as getMemberNames()
+     */
+    public abstract DJField[] getFields(DJForm form);
+
+    /**
+     * Finds the generated binder for a form class.  Lookups, including misses,
+     * are cached, so this only touches the class loader once per form class.
+     * @param formClass The form class
+     * @return The generated binder, or null if none was generated
+     */
+    static FormBinder forForm(Class<?> formClass) {
+        FormBinder binder = BINDERS.get(formClass);
+        if (binder == null) {
+            binder = load(formClass);
+            BINDERS.putIfAbsent(formClass, binder);
+        }
+        return binder == NONE ? null : binder;
+    }
+
+    private static FormBinder load(Class<?> formClass) {
+        try {
+            final Class<?> binderClass = Class.forName(formClass.getName() + SUFFIX, true, formClass.getClassLoader());
+            return (FormBinder) binderClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        } catch (InstantiationException e) {
+            return NONE;
+        } catch (IllegalAccessException e) {
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The fields of a form which changed since a ChangeSubscription last
+ * delivered, however many times each of them changed
+ */
+public final class FormChange {
+
+    private final DJForm form;
+    private final BitSet changed;
+
+    FormChange(DJForm form, BitSet changed) {
+        this.form = form;
+        this.changed = changed;
+    }
+
+    /**
+     * @return The form which changed, whose state is safe to read from here
+     */
+    public DJForm getForm() {
+        return form;
+    }
+
+    /**
+     * @param index The field index
+     * @return true if the field changed
+     */
+    public boolean isChanged(int index) {
+        return changed.get(index);
+    }
+
+    /**
+     * @param name The field name
+     * @return true if the field changed
+     */
+    public boolean isChanged(String name) {
+        final int index = form.getFormDefinition().indexOf(name);
+        if (index == -1)
+            throw new IllegalArgumentException("No field named " + name);
+        return changed.get(index);
+    }
+
+    /**
+     * @return A BitSet with a set bit for each field which changed, by definition index
+     */
+    public BitSet getChangedFields() {
+        return (BitSet) changed.clone();
+    }
+
+    /**
+     * @return The names of the fields which changed, in definition order
+     */
+    public List<String> getChangedNames() {
+        final FormDefinition definition = form.getFormDefinition();
+        final List<String> names = new ArrayList<>(changed.cardinality());
+        for (int i = changed.nextSetBit(0); i != -1; i = changed.nextSetBit(i + 1))
+            names.add(definition.getName(i));
+        return names;
+    }
+
+    /**
+     * @return The number of fields which changed
+     */
+    public int size() {
+        return changed.cardinality();
+    }
+
+    @Override
+    public String toString() {
+        return "FormChange" + getChangedNames();
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.util.Log;
+import android.view.View;
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.binding.BindingPlan;
+import com.exallium.djforms.lib.spec.FieldSpec;
+import com.exallium.djforms.lib.spec.FormSpec;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Everything about a form which is the same for every instance of its class:
+ * which members are fields, their order, the model names they bind to,
+ * their style / layout information and the rules between them.
+ *
+ * A definition is worked out once, from the first instance of a form class,
+ * and shared by every instance after that, so every instance must name its
+ * fields the same way.  It is immutable and safe to use
+ * from any thread.  Later instances simply have their fields read out in
+ * definition order, directly through a generated FormBinder if there is one,
+ * otherwise through the already resolved members.
+ */
+public final class FormDefinition {
+
+    private static final String TAG = FormDefinition.class.getSimpleName();
+
+    private static final ConcurrentMap<Class<?>, FormDefinition> DEFINITIONS = new ConcurrentHashMap<>();
+
+    private final Class<? extends DJForm> formClass;
+    private final String[] names;
+    private final String[] memberNames;
+    private final int[] layoutIds;
+    private final int[] styleIds;
+    private final Class<? extends View>[] viewClasses;
+    private final boolean[] viewValidators;
+    private final FormSpec spec;
+    private final RuleGraph rules;
+
+    // Exactly one of these is set
+    private final FormBinder binder;
+    private final Field[] members;
+
+    @SuppressWarnings("unchecked")
+    private FormDefinition(Class<? extends DJForm> formClass, FormBinder binder, Field[] members,
+                           String[] memberNames, DJField[] fields, FormRule[] rules) {
+        this.formClass = formClass;
+        this.binder = binder;
+        this.members = members;
+        this.memberNames = memberNames;
+
+        final int size = fields.length;
+        names = new String[size];
+        layoutIds = new int[size];
+        styleIds = new int[size];
+        viewClasses = new Class[size];
+        viewValidators = new boolean[size];
+        final FieldSpec<?>[] specs = new FieldSpec[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = fields[i].getName() != null ? fields[i].getName() : memberNames[i];
+            layoutIds[i] = fields[i].getLayoutId();
+            styleIds[i] = fields[i].getStyleId();
+            viewClasses[i] = fields[i].getViewClass();
+            specs[i] = fields[i].describe(names[i]);
+            viewValidators[i] = validatesViews(fields[i].getClass());
+        }
+        spec = FormSpec.of(specs);
+        this.rules = RuleGraph.build(names, rules);
+    }
+
+    /**
+     * Fields written before isStateValid may still validate in an isValid(View)
+     * override.  Those are validated through their views while they have one.
+     * @param fieldClass The field's class
+     * @return true if its last override of the two is isValid(View)
+     */
+    private static boolean validatesViews(Class<?> fieldClass) {
+        for (Class<?> c = fieldClass; c != DJField.class; c = c.getSuperclass()) {
+            boolean validatesView = false;
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.isBridge() || method.getParameterTypes().length != 1)
+                    continue;
+                if (method.getName().equals("isStateValid"))
+                    return false;
+                if (method.getName().equals("isValid") && View.class.isAssignableFrom(method.getParameterTypes()[0]))
+                    validatesView = true;
+            }
+            if (validatesView) {
+                Log.w(TAG, fieldClass.getName() + " overrides isValid(View), which is only called while "
+                        + "it has a view on the main thread, move its checks to isStateValid");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param index The field index
+     * @return true if the field validates through an isValid(View) override
+     */
+    boolean validatesViews(int index) {
+        return viewValidators[index];
+    }
+
+    /**
+     * Gets the definition for a form's class, working it out from this form
+     * if it is the first of its class we've seen.
+     * @param form The form
+     * @return The shared definition
+     */
+    public static FormDefinition of(DJForm form) {
+        FormDefinition definition = DEFINITIONS.get(form.getClass());
+        if (definition == null) {
+            final FormDefinition built = build(form);
+            definition = DEFINITIONS.putIfAbsent(form.getClass(), built);
+            if (definition == null)
+                definition = built;
+        }
+        return definition;
+    }
+
+    private static FormDefinition build(DJForm form) {
+        final Class<? extends DJForm> formClass = form.getClass();
+
+        final FormBinder binder = FormBinder.forForm(formClass);
+        if (binder != null)
+            return new FormDefinition(formClass, binder, null, binder.getMemberNames(), binder.getFields(form),
+                    form.getRules());
+
+        // Fallback for forms compiled without djforms-compiler
+        final List<Field> members = new ArrayList<>();
+        for (Field member : formClass.getFields()) {
+            if (DJField.class.isAssignableFrom(member.getType())) {
+                try {
+                    member.setAccessible(true);
+                } catch (SecurityException e) {
+                    Log.w(TAG, "Could not make " + member.getName() + " accessible");
+                }
+                members.add(member);
+            }
+        }
+
+        final Field[] resolved = members.toArray(new Field[members.size()]);
+        final String[] memberNames = new String[resolved.length];
+        for (int i = 0; i < resolved.length; i++)
+            memberNames[i] = resolved[i].getName();
+        return new FormDefinition(formClass, null, resolved, memberNames, readMembers(resolved, form),
+                form.getRules());
+    }
+
+    /**
+     * Reads a form's fields out in definition order and gives any unnamed
+     * ones their default name.
+     * @param form An instance of this definition's form class
+     * @return A fresh array of the form's fields
+     * @throws IllegalStateException if a field is named differently than in
+     * the first instance, which the definition was worked out from
+     */
+    DJField[] fieldsOf(DJForm form) {
+        final DJField[] fields = binder != null ? binder.getFields(form) : readMembers(members, form);
+        for (int i = 0; i < fields.length; i++) {
+            final String name = fields[i].getName();
+            if (name == null)
+                fields[i].setFieldName(names[i]);
+            else if (!name.equals(names[i]))
+                throw new IllegalStateException("Field " + memberNames[i] + " of this " + formClass.getName()
+                        + " is named " + name + ", but " + names[i] + " in the first one, field names must "
+                        + "be the same for every instance of a form class");
+        }
+        return fields;
+    }
+
+    private static DJField[] readMembers(Field[] members, DJForm form) {
+        final DJField[] fields = new DJField[members.length];
+        for (int i = 0; i < members.length; i++) {
+            try {
+                fields[i] = (DJField) members[i].get(form);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Could not retrieve field " + members[i].getName(), e);
+            }
+            if (fields[i] == null)
+                throw new IllegalStateException("Field " + members[i].getName() + " was never assigned");
+        }
+        return fields;
+    }
+
+    /**
+     * @param modelClass The model class to bind to
+     * @param backend The backend to resolve properties with
+     * @return The shared plan binding this form class to the model class
+     */
+    public BindingPlan getBindingPlan(Class<?> modelClass, AccessorBackend backend) {
+        return BindingPlan.get(formClass, names, modelClass, backend);
+    }
+
+    /**
+     * @return The form's rules in dependency order, or null if it has none
+     */
+    RuleGraph getRules() {
+        return rules;
+    }
+
+    /**
+     * @return The fields of this form as djforms-core sees them
+     */
+    public FormSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * @return The form class this definition describes
+     */
+    public Class<? extends DJForm> getFormClass() {
+        return formClass;
+    }
+
+    /**
+     * @return The number of fields in the form
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param name A model property name
+     * @return The index of the field bound to name, or -1
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * @return The model property name the field at index binds to
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return The java member name of the field at index
+     */
+    public String getMemberName(int index) {
+        return memberNames[index];
+    }
+
+    /**
+     * @return The custom layout of the field at index, or DJField.NO_LAYOUT
+     */
+    public int getLayoutId(int index) {
+        return layoutIds[index];
+    }
+
+    /**
+     * @return The custom style of the field at index, or DJField.NO_STYLE
+     */
+    public int getStyleId(int index) {
+        return styleIds[index];
+    }
+
+    /**
+     * @return The view class of the field at index
+     */
+    public Class<? extends View> getViewClass(int index) {
+        return viewClasses[index];
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+
+/**
+ * The default container of getFormViewGroup: a flat stack of rows, one per
+ * child, like a vertical LinearLayout without weights.  Each row is measured
+ * once per pass, and rows which haven't requested a layout since they were
+ * last measured at the same width keep their measurements, so a keystroke in
+ * one field doesn't re-measure the rest of the form.
+ *
+ * Children are as wide as the form unless they ask otherwise, and as tall as
+ * their content, at most the height left below the rows above (MATCH_PARENT
+ * heights are treated as WRAP_CONTENT).  Margins are supported.
+ *
+ * Where our own height is unbounded, e.g. in a ScrollView, lists like a
+ * RepeatingGroupField's are measured as tall as all of their rows, as they
+ * would only show one otherwise.  Give those a height to have them scroll.
+ */
+public class FormLayout extends ViewGroup {
+
+    // As tall as an unbounded list is measured, AbsListView measures every row up to it
+    private static final int LIST_HEIGHT = Integer.MAX_VALUE >> 2;
+
+    public FormLayout(Context context) {
+        super(context);
+    }
+
+    public FormLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public FormLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
+        final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+        final int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+        int width = 0;
+        int height = 0;
+
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE)
+                continue;
+
+            final LayoutParams params = (LayoutParams) child.getLayoutParams();
+            final int childWidthSpec = getChildMeasureSpec(widthMeasureSpec,
+                    horizontalPadding + params.leftMargin + params.rightMargin, params.width);
+            final int childHeightSpec = getChildHeightSpec(child, params.height, heightMode,
+                    heightSize - verticalPadding - height - params.topMargin - params.bottomMargin);
+
+            if (child.isLayoutRequested() || params.widthSpec != childWidthSpec || params.heightSpec != childHeightSpec) {
+                child.measure(childWidthSpec, childHeightSpec);
+                params.widthSpec = childWidthSpec;
+                params.heightSpec = childHeightSpec;
+            }
+
+            width = Math.max(width, child.getMeasuredWidth() + params.leftMargin + params.rightMargin);
+            height += child.getMeasuredHeight() + params.topMargin + params.bottomMargin;
+        }
+
+        setMeasuredDimension(resolveSize(width + horizontalPadding, widthMeasureSpec),
+                resolveSize(height + verticalPadding, heightMeasureSpec));
+    }
+
+    private static int getChildHeightSpec(View child, int childHeight, int heightMode, int remaining) {
+        if (childHeight >= 0)
+            return MeasureSpec.makeMeasureSpec(childHeight, MeasureSpec.EXACTLY);
+        if (heightMode != MeasureSpec.UNSPECIFIED)
+            return MeasureSpec.makeMeasureSpec(Math.max(remaining, 0), MeasureSpec.AT_MOST);
+        if (child instanceof AbsListView)
+            return MeasureSpec.makeMeasureSpec(LIST_HEIGHT, MeasureSpec.AT_MOST);
+        return MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        final int left = getPaddingLeft();
+        int top = getPaddingTop();
+
+        final int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE)
+                continue;
+
+            final LayoutParams params = (LayoutParams) child.getLayoutParams();
+            top += params.topMargin;
+            final int childLeft = left + params.leftMargin;
+            child.layout(childLeft, top, childLeft + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+            top += child.getMeasuredHeight() + params.bottomMargin;
+        }
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        if (p instanceof MarginLayoutParams)
+            return new LayoutParams((MarginLayoutParams) p);
+        return new LayoutParams(p);
+    }
+
+    /**
+     * Margin layout params which remember the specs their view was last
+     * measured with
+     */
+    public static class LayoutParams extends MarginLayoutParams {
+
+        int widthSpec = -1;
+        int heightSpec = -1;
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(Context context, AttributeSet attrs) {
+            super(context, attrs);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(MarginLayoutParams source) {
+            super(source);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Presents a form's fields as rows of a ListView, so only the visible fields
+ * have views.  Rows are recycled between fields built the same way, i.e. with
+ * the same view class, layout and style.  The form keeps the state of every
+ * field which currently has no view.
+ */
+final class FormListAdapter extends BaseAdapter {
+
+    private final DJForm form;
+    private final Context context;
+    private final DJField[] fields;
+    private final int[] viewTypes;
+    private final int viewTypeCount;
+
+    FormListAdapter(DJForm form, Context context, DJField[] fields) {
+        this.form = form;
+        this.context = context;
+        this.fields = fields;
+
+        // Fields built the same way can share rows
+        final FormDefinition definition = form.getFormDefinition();
+        final List<String> signatures = new ArrayList<>();
+        viewTypes = new int[definition.size()];
+        for (int i = 0; i < viewTypes.length; i++) {
+            final String signature = definition.getViewClass(i).getName()
+                    + '/' + definition.getLayoutId(i) + '/' + definition.getStyleId(i);
+            int type = signatures.indexOf(signature);
+            if (type == -1) {
+                type = signatures.size();
+                signatures.add(signature);
+            }
+            viewTypes[i] = type;
+        }
+        viewTypeCount = Math.max(1, signatures.size());
+    }
+
+    @Override
+    public int getCount() {
+        return fields.length;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return fields[position];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return viewTypes[position];
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return viewTypeCount;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        return form.bindFieldView(position, convertView, context);
+    }
+}
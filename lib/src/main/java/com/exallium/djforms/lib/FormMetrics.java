@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import com.exallium.djforms.lib.binding.Resolution;
+import com.exallium.djforms.lib.binding.ResolutionListener;
+
+/**
+ * Told how long each phase of a form's life takes, in total and per field.
+ * Every method does nothing by default, so subclasses override only what they
+ * need.  Set one on a form with DJForm.setMetrics, or on every form with
+ * DJForm.setDefaultMetrics.  Forms without metrics skip all of this, down to
+ * reading the clock.
+ *
+ * Starts and ends always pair up, nested, on the calling thread, so they can
+ * open and close trace sections (see TraceMetrics).  Field events happen
+ * between the start and end of their phase, except CREATE_VIEW, whose views
+ * may also be created one at a time by getFormListView.
+ */
+public abstract class FormMetrics implements ResolutionListener {
+
+    public enum Phase {
+        /** getFormViewGroup, fields are timed creating their views */
+        FORM_VIEW_GROUP,
+        /** A field creating its view, through createFieldView */
+        CREATE_VIEW,
+        /** fillViews */
+        FILL_VIEWS,
+        /** isFormValid and getFieldValidity, fields are only timed if they changed since last validated */
+        VALIDATE,
+        /** save */
+        SAVE,
+        /** prefetch building views off the main thread, fields are timed building theirs */
+        PREFETCH
+    }
+
+    public void onPhaseStart(FormDefinition form, Phase phase) {}
+
+    /**
+     * @param nanos How long the phase took
+     */
+    public void onPhaseEnd(FormDefinition form, Phase phase, long nanos) {}
+
+    /**
+     * @param index The field's index in form
+     */
+    public void onFieldStart(FormDefinition form, Phase phase, int index) {}
+
+    /**
+     * @param index The field's index in form
+     * @param nanos How long the field took
+     */
+    public void onFieldEnd(FormDefinition form, Phase phase, int index, long nanos) {}
+
+    /**
+     * Only heard by the default metrics, as binding plans are shared by every form
+     */
+    @Override
+    public void onResolved(Class<?> modelClass, String name, Resolution resolution) {}
+
+    /*
+     * Helpers for DJForm, which do nothing when metrics is null
+     */
+
+    static long startPhase(FormMetrics metrics, FormDefinition form, Phase phase) {
+        if (metrics == null)
+            return 0;
+        metrics.onPhaseStart(form, phase);
+        return System.nanoTime();
+    }
+
+    static void endPhase(FormMetrics metrics, FormDefinition form, Phase phase, long start) {
+        if (metrics != null)
+            metrics.onPhaseEnd(form, phase, System.nanoTime() - start);
+    }
+
+    static long startField(FormMetrics metrics, FormDefinition form, Phase phase, int index) {
+        if (metrics == null)
+            return 0;
+        metrics.onFieldStart(form, phase, index);
+        return System.nanoTime();
+    }
+
+    static void endField(FormMetrics metrics, FormDefinition form, Phase phase, int index, long start) {
+        if (metrics != null)
+            metrics.onFieldEnd(form, phase, index, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import java.util.Arrays;
+
+/**
+ * A rule about one field of a form, worked out from other fields: either
+ * its value, with ComputedRule, or whether it is shown, with VisibilityRule.
+ *
+ * Rules name the fields they depend on up front, so a form only runs the
+ * rules affected by a change, in dependency order, and can refuse rules which
+ * depend on each other when its definition is built.  Rules are shared by
+ * every form of a class, so they must not hold on to a form or its Context.
+ */
+public abstract class FormRule {
+
+    private final String target;
+    private final String[] dependencies;
+
+    FormRule(String target, String[] dependencies) {
+        if (target == null)
+            throw new IllegalArgumentException("A rule needs a target field");
+        this.target = target;
+        this.dependencies = dependencies.clone();
+    }
+
+    /**
+     * @return The name of the field this rule is about
+     */
+    public final String getTarget() {
+        return target;
+    }
+
+    /**
+     * @return The names of the fields this rule reads
+     */
+    public final String[] getDependencies() {
+        return dependencies.clone();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + target + " <- " + Arrays.toString(dependencies) + ")";
+    }
+}
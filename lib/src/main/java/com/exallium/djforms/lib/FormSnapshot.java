@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.Date;
+
+/**
+ * The state of a form, packed to survive configuration changes and process
+ * death.  Taken with DJForm.snapshot and put back with DJForm.restore, or
+ * through DJForm.saveInstanceState and restoreInstanceState.
+ *
+ * Only the form class and a hash of its field names are kept to identify the
+ * definition, and states are parcelled as primitives where their fields allow
+ * (see DJField.toSnapshot), so even large forms stay small.
+ */
+public final class FormSnapshot implements Parcelable {
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte DATE = 5;
+    private static final byte TRUE = 6;
+    private static final byte FALSE = 7;
+    private static final byte VALUE = 8;
+
+    private final String formClass;
+    private final int namesHash;
+    // The packed state of each field, then the packed state it was loaded with
+    private final Object[] states;
+    private final Object[] loaded;
+
+    FormSnapshot(FormDefinition definition, Object[] states, Object[] loaded) {
+        this(definition.getFormClass().getName(), hashNames(definition), states, loaded);
+    }
+
+    private FormSnapshot(String formClass, int namesHash, Object[] states, Object[] loaded) {
+        this.formClass = formClass;
+        this.namesHash = namesHash;
+        this.states = states;
+        this.loaded = loaded;
+    }
+
+    /**
+     * @return true if this snapshot was taken from a form with the given definition
+     */
+    boolean matches(FormDefinition definition) {
+        return formClass.equals(definition.getFormClass().getName())
+                && states.length == definition.size()
+                && namesHash == hashNames(definition);
+    }
+
+    Object getState(int index) {
+        return states[index];
+    }
+
+    Object getLoadedState(int index) {
+        return loaded[index];
+    }
+
+    static String keyFor(FormDefinition definition) {
+        return "com.exallium.djforms:" + definition.getFormClass().getName();
+    }
+
+    private static int hashNames(FormDefinition definition) {
+        int hash = 1;
+        for (int i = 0; i < definition.size(); i++)
+            hash = 31 * hash + definition.getName(i).hashCode();
+        return hash;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeByte(VERSION);
+        dest.writeString(formClass);
+        dest.writeInt(namesHash);
+        dest.writeInt(states.length);
+        for (int i = 0; i < states.length; i++) {
+            write(dest, states[i]);
+            write(dest, loaded[i]);
+        }
+    }
+
+    private static void write(Parcel dest, Object packed) {
+        if (packed == null) {
+            dest.writeByte(NULL);
+        } else if (packed instanceof String) {
+            dest.writeByte(STRING);
+            dest.writeString((String) packed);
+        } else if (packed instanceof Integer) {
+            dest.writeByte(INT);
+            dest.writeInt((Integer) packed);
+        } else if (packed instanceof Long) {
+            dest.writeByte(LONG);
+            dest.writeLong((Long) packed);
+        } else if (packed instanceof Double) {
+            dest.writeByte(DOUBLE);
+            dest.writeDouble((Double) packed);
+        } else if (packed instanceof Date) {
+            dest.writeByte(DATE);
+            dest.writeLong(((Date) packed).getTime());
+        } else if (packed instanceof Boolean) {
+            dest.writeByte((Boolean) packed ? TRUE : FALSE);
+        } else {
+            dest.writeByte(VALUE);
+            dest.writeValue(packed);
+        }
+    }
+
+    private static Object read(Parcel source) {
+        final byte tag = source.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return source.readString();
+            case INT:
+                return source.readInt();
+            case LONG:
+                return source.readLong();
+            case DOUBLE:
+                return source.readDouble();
+            case DATE:
+                return new Date(source.readLong());
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case VALUE:
+                return source.readValue(FormSnapshot.class.getClassLoader());
+            default:
+                throw new IllegalStateException("Unknown state tag " + tag);
+        }
+    }
+
+    public static final Creator<FormSnapshot> CREATOR = new Creator<FormSnapshot>() {
+        @Override
+        public FormSnapshot createFromParcel(Parcel source) {
+            final byte version = source.readByte();
+            if (version != VERSION)
+                throw new IllegalStateException("Unknown snapshot version " + version);
+            final String formClass = source.readString();
+            final int namesHash = source.readInt();
+            final int size = source.readInt();
+            final Object[] states = new Object[size];
+            final Object[] loaded = new Object[size];
+            for (int i = 0; i < size; i++) {
+                states[i] = read(source);
+                loaded[i] = read(source);
+            }
+            return new FormSnapshot(formClass, namesHash, states, loaded);
+        }
+
+        @Override
+        public FormSnapshot[] newArray(int size) {
+            return new FormSnapshot[size];
+        }
+    };
+}
@@ -0,0 +1,410 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.util.Log;
+
+import com.exallium.djforms.lib.spec.FieldStates;
+import com.exallium.djforms.lib.spec.FormFields;
+
+import java.util.BitSet;
+
+/**
+ * The state of every field of a form, in FormDefinition order.  This is what
+ * fillViews writes, and what save and isFormValid read, so none of them need
+ * the form's views to exist.  Views are kept in sync with it both ways while
+ * they exist.
+ *
+ * A field's state is whatever DJField.toState produces, e.g. the raw text of
+ * an EditTextField.  FormState may be read and written from any thread.
+ *
+ * Each field's validity is cached alongside its state, and every change marks
+ * the field dirty, so validating a form only runs the validators of fields
+ * which changed since they were last validated.
+ *
+ * The state and model value each field was last loaded with by fillViews (or
+ * saved with by saveChanges) are kept too, to tell which fields were changed.
+ *
+ * A view may report a change without its state, which is then only read from
+ * the view when it's next needed.  Reads from other threads wait for the main
+ * thread to read it, for a short while, as the main thread may be waiting on
+ * them in turn.
+ */
+public final class FormState implements FieldStates {
+
+    private static final String TAG = FormState.class.getSimpleName();
+    // How long a read off the main thread waits for a changed view to be read
+    private static final long READ_VIEW_MILLIS = 500;
+
+    interface Listener {
+        /**
+         * Told when state is set from outside of the field's view
+         */
+        void onStateSet(int index);
+
+        /**
+         * Told after any change of state, including from the field's view
+         * @param index The field which changed, or -1 for every field
+         */
+        void onStateChanged(int index);
+
+        /**
+         * Asked on the main thread for the state in a field's view, after it
+         * reported a change without one
+         * @param index The field index
+         * @param known The state known until now
+         * @return The state in the view, or known if there's no view anymore
+         */
+        Object readView(int index, Object known);
+    }
+
+    private final FormDefinition definition;
+    private final Object[] states;
+    // Bumped on every change, so validity worked out for old state is never cached
+    private final int[] versions;
+    private final BitSet dirty;
+    // Changed in the view, not read from it yet
+    private final BitSet stale;
+    private final BitSet valid;
+    private final Object[] loadedStates;
+    private final Object[] loadedValues;
+    private Listener listener;
+
+    FormState(FormDefinition definition) {
+        this.definition = definition;
+        this.states = new Object[definition.size()];
+        this.versions = new int[states.length];
+        this.dirty = new BitSet(states.length);
+        this.stale = new BitSet(states.length);
+        this.valid = new BitSet(states.length);
+        this.loadedStates = new Object[states.length];
+        this.loadedValues = new Object[states.length];
+        dirty.set(0, states.length);
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public FormDefinition getDefinition() {
+        return definition;
+    }
+
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * @param index The field index
+     * @return The field's state, or null if it was never filled
+     */
+    @Override
+    public Object get(int index) {
+        catchUp(index);
+        synchronized (this) {
+            return states[index];
+        }
+    }
+
+    /**
+     * @param name The field name
+     * @return The field's state, or null if it was never filled
+     */
+    public Object get(String name) {
+        return get(indexOf(name));
+    }
+
+    /**
+     * Sets a field's state, and shows it in the field's view if it has one
+     * @param index The field index
+     * @param state The new state
+     */
+    public void set(int index, Object state) {
+        synchronized (this) {
+            change(index, state);
+        }
+        final Listener listener = this.listener;
+        if (listener != null) {
+            listener.onStateSet(index);
+            listener.onStateChanged(index);
+        }
+    }
+
+    /**
+     * @param name The field name
+     * @param state The new state
+     */
+    public void set(String name, Object state) {
+        set(indexOf(name), state);
+    }
+
+    /**
+     * Sets a field's state from its view
+     */
+    void update(int index, Object state) {
+        synchronized (this) {
+            change(index, state);
+        }
+        final Listener listener = this.listener;
+        if (listener != null)
+            listener.onStateChanged(index);
+    }
+
+    /**
+     * Replaces a field's state with an equivalent one, e.g. after a save, and
+     * shows it.  Nothing is replaced if the state changed meanwhile.
+     * @param index The field index
+     * @param expected The state to replace
+     * @param state The state to keep instead
+     */
+    void replace(int index, Object expected, Object state) {
+        synchronized (this) {
+            if (states[index] != expected)
+                return;
+            states[index] = state;
+        }
+        final Listener listener = this.listener;
+        if (listener != null)
+            listener.onStateSet(index);
+    }
+
+    /**
+     * Marks a field changed in its view, without reading the view yet
+     */
+    void touch(int index) {
+        synchronized (this) {
+            versions[index]++;
+            dirty.set(index);
+            stale.set(index);
+        }
+        final Listener listener = this.listener;
+        if (listener != null)
+            listener.onStateChanged(index);
+    }
+
+    /**
+     * Reads every view which changed since it was last read, on the main thread
+     */
+    void catchUp() {
+        int index;
+        synchronized (this) {
+            index = stale.nextSetBit(0);
+        }
+        while (index >= 0) {
+            catchUp(index);
+            synchronized (this) {
+                index = stale.nextSetBit(index + 1);
+            }
+        }
+    }
+
+    private void catchUp(final int index) {
+        synchronized (this) {
+            if (!stale.get(index))
+                return;
+        }
+        if (MainThread.isCurrent()) {
+            readView(index);
+            return;
+        }
+        final boolean read = MainThread.runAndWait(new Runnable() {
+            @Override
+            public void run() {
+                readView(index);
+            }
+        }, READ_VIEW_MILLIS);
+        if (!read)
+            Log.w(TAG, "Main thread busy, reading field " + index + " from before its last change");
+    }
+
+    private void readView(int index) {
+        final Listener listener = this.listener;
+        final Object known;
+        synchronized (this) {
+            if (listener == null || !stale.get(index))
+                return;
+            known = states[index];
+        }
+
+        final Object state = listener.readView(index, known);
+        synchronized (this) {
+            // Set meanwhile by someone else, whose state wins
+            if (!stale.get(index) || states[index] != known)
+                return;
+            stale.clear(index);
+            if (state == known)
+                return;
+            states[index] = state;
+            versions[index]++;
+            dirty.set(index);
+        }
+    }
+
+    /**
+     * Forgets the state of every field
+     */
+    public void clear() {
+        synchronized (this) {
+            for (int i = 0; i < states.length; i++)
+                change(i, null);
+        }
+        final Listener listener = this.listener;
+        if (listener != null)
+            listener.onStateChanged(-1);
+    }
+
+    /**
+     * @param index The field index
+     * @return true if the field's state differs from what it was loaded or last saved with
+     */
+    public boolean isChanged(int index) {
+        catchUp(index);
+        synchronized (this) {
+            return isStateChanged(index);
+        }
+    }
+
+    /**
+     * @param name The field name
+     * @return true if the field's state differs from what it was loaded or last saved with
+     */
+    public boolean isChanged(String name) {
+        return isChanged(indexOf(name));
+    }
+
+    /**
+     * @return The fields whose state differs from what they were loaded or last saved with
+     */
+    synchronized BitSet getChanged() {
+        final BitSet changed = new BitSet(states.length);
+        for (int i = 0; i < states.length; i++)
+            changed.set(i, isStateChanged(i));
+        return changed;
+    }
+
+    private boolean isStateChanged(int index) {
+        final Object state = states[index];
+        final Object loaded = loadedStates[index];
+        return state == null ? loaded != null : !state.equals(loaded);
+    }
+
+    /**
+     * Remembers the state and model value a field was loaded or saved with
+     */
+    synchronized void setLoaded(int index, Object state, Object value) {
+        loadedStates[index] = state;
+        loadedValues[index] = value;
+    }
+
+    /**
+     * @return The state the field was last loaded or saved with
+     */
+    synchronized Object getLoadedState(int index) {
+        return loadedStates[index];
+    }
+
+    /**
+     * @return The model value the field was last loaded or saved with
+     */
+    synchronized Object getLoadedValue(int index) {
+        return loadedValues[index];
+    }
+
+    private void change(int index, Object state) {
+        states[index] = state;
+        versions[index]++;
+        dirty.set(index);
+        stale.clear(index);
+    }
+
+    /**
+     * @return The first field at or after from which changed since it was last
+     * validated, or -1 if there is none
+     */
+    synchronized int nextDirty(int from) {
+        return dirty.nextSetBit(from);
+    }
+
+    /**
+     * Forgets a field's validity without changing its state, e.g. when a rule
+     * shows or hides it
+     */
+    synchronized void invalidate(int index) {
+        versions[index]++;
+        dirty.set(index);
+    }
+
+    /**
+     * Gets a field's validity, running its validator only if the field changed
+     * since it was last validated.  The validator runs outside of our lock.
+     * @param index The field index
+     * @param fields The form's fields, to validate with
+     * @param hidden true if a rule hides the field, which makes it valid
+     * @return true if the field is valid
+     */
+    boolean validate(int index, FormFields fields, boolean hidden) {
+        catchUp(index);
+        final int version;
+        final Object state;
+        synchronized (this) {
+            if (!dirty.get(index))
+                return valid.get(index);
+            version = versions[index];
+            state = states[index];
+        }
+
+        final boolean result = hidden || fields.isValid(index, state);
+
+        synchronized (this) {
+            // If the field changed meanwhile, it stays dirty
+            if (versions[index] == version) {
+                valid.set(index, result);
+                dirty.clear(index);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if every field was valid when last validated
+     */
+    synchronized boolean isAllValid() {
+        return valid.nextClearBit(0) >= states.length;
+    }
+
+    /**
+     * @return A copy of the cached validity of every field, in definition order
+     */
+    synchronized BitSet getValidity() {
+        return (BitSet) valid.clone();
+    }
+
+    private int indexOf(String name) {
+        final int index = definition.indexOf(name);
+        if (index == -1)
+            throw new IllegalArgumentException("No field named " + name);
+        return index;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import java.util.BitSet;
+
+/**
+ * What a FormRule sees of its form: the values of the fields it declared as
+ * dependencies.  Reading any other field is an error, as the rule wouldn't
+ * be run again when it changes.
+ */
+public final class FormValues {
+
+    private final FormDefinition definition;
+    private final DJField[] fields;
+    private final FormState state;
+    private FormRule rule;
+    private BitSet allowed;
+
+    FormValues(FormDefinition definition, DJField[] fields, FormState state) {
+        this.definition = definition;
+        this.fields = fields;
+        this.state = state;
+    }
+
+    void setRule(FormRule rule, BitSet allowed) {
+        this.rule = rule;
+        this.allowed = allowed;
+    }
+
+    /**
+     * @param name A dependency's name
+     * @return Its model value, as it would be saved, or null if it was never filled
+     */
+    public Object get(String name) {
+        final int index = indexOf(name);
+        final Object fieldState = state.get(index);
+        return fieldState == null ? null : fields[index].toValue(fieldState);
+    }
+
+    /**
+     * @param name A dependency's name
+     * @return Its state, e.g. the raw text of a text field, or null
+     */
+    public Object getState(String name) {
+        return state.get(indexOf(name));
+    }
+
+    private int indexOf(String name) {
+        final int index = definition.indexOf(name);
+        if (index == -1 || !allowed.get(index))
+            throw new IllegalArgumentException(rule + " doesn't depend on " + name);
+        return index;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import com.exallium.djforms.lib.binding.Resolution;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps counts and total times in memory, by phase, by field name within a
+ * phase, and by how properties were resolved.  Meant for tests and debug
+ * screens.  Safe to share between threads.
+ */
+public class MetricsRecorder extends FormMetrics {
+
+    private static final class Totals {
+        int count;
+        long nanos;
+    }
+
+    private final Map<Phase, Totals> phases = new EnumMap<>(Phase.class);
+    private final Map<Phase, Map<String, Totals>> fields = new EnumMap<>(Phase.class);
+    private final Map<Resolution, Integer> resolutions = new EnumMap<>(Resolution.class);
+
+    @Override
+    public synchronized void onPhaseEnd(FormDefinition form, Phase phase, long nanos) {
+        add(phases, phase, nanos);
+    }
+
+    @Override
+    public synchronized void onFieldEnd(FormDefinition form, Phase phase, int index, long nanos) {
+        Map<String, Totals> byName = fields.get(phase);
+        if (byName == null) {
+            byName = new HashMap<>();
+            fields.put(phase, byName);
+        }
+        add(byName, form.getName(index), nanos);
+    }
+
+    @Override
+    public synchronized void onResolved(Class<?> modelClass, String name, Resolution resolution) {
+        final Integer count = resolutions.get(resolution);
+        resolutions.put(resolution, count == null ? 1 : count + 1);
+    }
+
+    private static <K> void add(Map<K, Totals> map, K key, long nanos) {
+        Totals totals = map.get(key);
+        if (totals == null) {
+            totals = new Totals();
+            map.put(key, totals);
+        }
+        totals.count++;
+        totals.nanos += nanos;
+    }
+
+    /**
+     * @return How many times the phase ended
+     */
+    public synchronized int getCount(Phase phase) {
+        final Totals totals = phases.get(phase);
+        return totals == null ? 0 : totals.count;
+    }
+
+    /**
+     * @return The time spent in the phase, in total
+     */
+    public synchronized long getNanos(Phase phase) {
+        final Totals totals = phases.get(phase);
+        return totals == null ? 0 : totals.nanos;
+    }
+
+    /**
+     * @param name The field's model property name, as in FormDefinition.getName
+     * @return How many times the field was timed in the phase
+     */
+    public synchronized int getFieldCount(Phase phase, String name) {
+        final Totals totals = fieldTotals(phase, name);
+        return totals == null ? 0 : totals.count;
+    }
+
+    /**
+     * @param name The field's model property name
+     * @return The time the field spent in the phase, in total
+     */
+    public synchronized long getFieldNanos(Phase phase, String name) {
+        final Totals totals = fieldTotals(phase, name);
+        return totals == null ? 0 : totals.nanos;
+    }
+
+    /**
+     * @return How many properties were resolved this way.  Only recorded by the default metrics.
+     */
+    public synchronized int getResolutionCount(Resolution resolution) {
+        final Integer count = resolutions.get(resolution);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Forgets everything recorded so far
+     */
+    public synchronized void reset() {
+        phases.clear();
+        fields.clear();
+        resolutions.clear();
+    }
+
+    private Totals fieldTotals(Phase phase, String name) {
+        final Map<String, Totals> byName = fields.get(phase);
+        return byName == null ? null : byName.get(name);
+    }
+}
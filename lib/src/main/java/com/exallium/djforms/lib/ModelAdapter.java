@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.binding.BindingPlan;
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+
+import java.util.Map;
+
+/**
+ * Binds a kind of model to a form, by building the BindingPlan fillViews and
+ * save loop over.  Forms choose an adapter per model by overriding
+ * DJForm.getModelAdapter.
+ *
+ * <ul>
+ *     <li>POJO binds model properties through the form's AccessorBackend.</li>
+ *     <li>MAP reads and writes Map entries by property name.</li>
+ *     <li>CURSOR reads the current row of a Cursor, with column indices looked
+ *     up once per cursor.  Cursors can't be saved into.</li>
+ *     <li>CONTENT_VALUES reads and writes ContentValues by column name.</li>
+ * </ul>
+ *
+ * Values are read as the field's codec expects, so an IntField gets an
+ * Integer from any numeric column and a DateDialogField gets a Date from
+ * milliseconds since the epoch.  Dotted property names aren't followed, they
+ * name a key or column as is.
+ */
+public abstract class ModelAdapter {
+
+    public static final ModelAdapter POJO = new ModelAdapter() {
+        @Override
+        public BindingPlan getBindingPlan(FormDefinition definition, AccessorBackend backend, Object model) {
+            return definition.getBindingPlan(model.getClass(), backend);
+        }
+    };
+
+    public static final ModelAdapter MAP = new ModelAdapter() {
+        @Override
+        public Object getPlanKey(Object model) {
+            return Map.class;
+        }
+
+        @Override
+        public BindingPlan getBindingPlan(FormDefinition definition, AccessorBackend backend, Object model) {
+            final PropertyAccessor[] accessors = new PropertyAccessor[definition.size()];
+            for (int i = 0; i < accessors.length; i++)
+                accessors[i] = new MapAccessor(definition.getName(i), typeOf(definition, i));
+            return BindingPlan.of(accessors);
+        }
+    };
+
+    public static final ModelAdapter CURSOR = new ModelAdapter() {
+        /**
+         * Column indices belong to the cursor, so each cursor gets its own plan
+         */
+        @Override
+        public Object getPlanKey(Object model) {
+            return model;
+        }
+
+        @Override
+        public BindingPlan getBindingPlan(FormDefinition definition, AccessorBackend backend, Object model) {
+            final Cursor cursor = (Cursor) model;
+            final PropertyAccessor[] accessors = new PropertyAccessor[definition.size()];
+            for (int i = 0; i < accessors.length; i++) {
+                final String name = definition.getName(i);
+                accessors[i] = new CursorAccessor(name, cursor.getColumnIndex(name), typeOf(definition, i));
+            }
+            return BindingPlan.of(accessors);
+        }
+    };
+
+    public static final ModelAdapter CONTENT_VALUES = new ModelAdapter() {
+        @Override
+        public BindingPlan getBindingPlan(FormDefinition definition, AccessorBackend backend, Object model) {
+            final PropertyAccessor[] accessors = new PropertyAccessor[definition.size()];
+            for (int i = 0; i < accessors.length; i++)
+                accessors[i] = new ContentValuesAccessor(definition.getName(i), typeOf(definition, i));
+            return BindingPlan.of(accessors);
+        }
+    };
+
+    /**
+     * Models with the same key share a plan, so a form only asks for a new
+     * one when the key changes.  Keys are compared by identity and only
+     * weakly held.
+     * @param model The model about to be bound
+     * @return The model's class, by default
+     */
+    public Object getPlanKey(Object model) {
+        return model.getClass();
+    }
+
+    /**
+     * Builds, or looks up, the accessors for a model.  Called once per plan
+     * key, not per fill or save.
+     * @param definition The form's definition, with a property name per field
+     * @param backend The form's backend, for adapters which bind properties
+     * @param model The model about to be bound
+     * @return A plan with one accessor per field, in field order
+     */
+    public abstract BindingPlan getBindingPlan(FormDefinition definition, AccessorBackend backend, Object model);
+
+    /**
+     * @param model A model
+     * @return The built in adapter for the model
+     */
+    static ModelAdapter forModel(Object model) {
+        if (model instanceof Cursor)
+            return CURSOR;
+        if (model instanceof ContentValues)
+            return CONTENT_VALUES;
+        if (model instanceof Map)
+            return MAP;
+        return POJO;
+    }
+
+    private static ColumnType typeOf(FormDefinition definition, int index) {
+        return ColumnType.of(definition.getSpec().getField(index));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates the nested models and row forms of SubFormField and
+ * RepeatingGroupField.  Constructors are resolved once per class, misses
+ * included.
+ */
+final class NestedModels {
+
+    private static final String TAG = NestedModels.class.getSimpleName();
+
+    private static final Constructor<?> NONE;
+    static {
+        try {
+            NONE = Object.class.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static final ConcurrentMap<Class<?>, Constructor<?>> MODELS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, Constructor<?>> FORMS = new ConcurrentHashMap<>();
+
+    private NestedModels() {}
+
+    /**
+     * @param type The model class, possibly null
+     * @return A new model from its public no-argument constructor, or null if it has none
+     */
+    static Object create(Class<?> type) {
+        if (type == null)
+            return null;
+        Constructor<?> constructor = MODELS.get(type);
+        if (constructor == null) {
+            constructor = NONE;
+            if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+                try {
+                    constructor = type.getConstructor();
+                } catch (NoSuchMethodException e) {
+                    Log.w(TAG, type.getName() + " has no public no-argument constructor");
+                }
+            }
+            MODELS.putIfAbsent(type, constructor);
+        }
+        return constructor == NONE ? null : newInstance(constructor);
+    }
+
+    /**
+     * @param formClass A form class with a public (Context) constructor
+     * @return A new form of that class
+     */
+    @SuppressWarnings("unchecked")
+    static <F extends DJForm> F createForm(Class<F> formClass, Context context) {
+        Constructor<?> constructor = FORMS.get(formClass);
+        if (constructor == null) {
+            try {
+                constructor = formClass.getConstructor(Context.class);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(formClass.getName() + " needs a public (Context) constructor", e);
+            }
+            FORMS.putIfAbsent(formClass, constructor);
+        }
+        return (F) newInstance(constructor, context);
+    }
+
+    private static Object newInstance(Constructor<?> constructor, Object... args) {
+        try {
+            return constructor.newInstance(args);
+        } catch (InstantiationException e) {
+            throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+}
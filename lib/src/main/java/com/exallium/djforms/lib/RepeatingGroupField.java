@@ -0,0 +1,485 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+import com.exallium.djforms.lib.spec.FieldSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A field which binds a List of nested models, like an Order's line items,
+ * with one row form per item.  Each row's state travels in our form's
+ * FormState, so filling, saving, validation and snapshots cover every row.
+ *
+ * Rows only get views when they're shown: the group is a ListView, and only
+ * the rows on screen have a row form with views.  An order with hundreds of
+ * items creates a screenful of row forms, not one per item.  Give the
+ * ListView a height, e.g. through a style or its LayoutParams, as it scrolls
+ * on its own.
+ *
+ * <pre>
+ * public RepeatingGroupField&lt;LineItemForm&gt; lineItems;
+ *
+ * public OrderForm(Context context) {
+ *     super(context);
+ *     lineItems = new RepeatingGroupField&lt;&gt;(new LineItemForm(context), LineItem.class);
+ * }
+ * </pre>
+ *
+ * The row form given is used to convert rows without views, and more of its
+ * class are created for the rows on screen, so it needs a public (Context)
+ * constructor.  On save, each row is written in place into the item it was
+ * filled from, so removing a row doesn't shift the other rows onto the wrong
+ * items.  Rows added since are saved into items created from the item
+ * class's public no-argument constructor.
+ */
+public class RepeatingGroupField<F extends DJForm> extends DJField<ListView> {
+
+    private static final String TAG = RepeatingGroupField.class.getSimpleName();
+
+    private final F rowForm;
+    private final Class<F> rowFormClass;
+    private final Class<?> itemClass;
+    // Only while we have a view, and only touched on the main thread
+    private RowAdapter adapter = null;
+
+    public RepeatingGroupField(F rowForm, Class<?> itemClass) {
+        this(rowForm, itemClass, null);
+    }
+
+    /**
+     * @param rowForm A form for one item
+     * @param itemClass The class of the items, created for new rows on save
+     * @param name The model property, or dotted path, holding the List, or null
+     */
+    @SuppressWarnings("unchecked")
+    public RepeatingGroupField(F rowForm, Class<?> itemClass, String name) {
+        super(ListView.class, name);
+        this.rowForm = rowForm;
+        this.rowFormClass = (Class<F>) rowForm.getClass();
+        this.itemClass = itemClass;
+    }
+
+    /**
+     * @return The row form given to the constructor, which is never shown
+     */
+    public final F getRowForm() {
+        return rowForm;
+    }
+
+    /**
+     * @return The number of rows
+     */
+    public final int getRowCount() {
+        return rows(getAttachedState()).size();
+    }
+
+    /**
+     * Adds an empty row at the end.  The field must be part of a form.
+     */
+    public final void addRow() {
+        final List<Object> rows = new ArrayList<>(rows(getAttachedState()));
+        rows.add(emptyRow());
+        setAttachedState(Collections.unmodifiableList(rows));
+    }
+
+    /**
+     * Removes a row.  The field must be part of a form.
+     * @param index The row index
+     */
+    public final void removeRow(int index) {
+        final List<Object> rows = new ArrayList<>(rows(getAttachedState()));
+        rows.remove(index);
+        setAttachedState(Collections.unmodifiableList(rows));
+    }
+
+    @Override
+    protected void onViewCreated(ListView view) {
+        adapter = new RowAdapter(view.getContext());
+        view.setItemsCanFocus(true);
+        view.setAdapter(adapter);
+    }
+
+    @Override
+    protected void onViewRecycled(ListView view) {
+        view.setAdapter(null);
+        adapter = null;
+    }
+
+    @Override
+    protected boolean reportsStateChanges() {
+        return true;
+    }
+
+    /**
+     * @return The state of every row, as there is no single List to return
+     */
+    @Override
+    public Object getValue(ListView view) {
+        return getState(view);
+    }
+
+    @Override
+    public void setValue(ListView view, Object data) {
+        setState(view, data == null ? null : toState(data));
+    }
+
+    /*
+     * State is an unmodifiable List with the field states of each row, as
+     * unmodifiable Lists themselves.  Each row ends with the Source of its item.
+     */
+
+    @Override
+    protected Object getState(ListView view) {
+        return adapter != null ? adapter.getRows() : null;
+    }
+
+    @Override
+    protected void setState(ListView view, Object state) {
+        if (adapter != null)
+            adapter.setRows(rows(state));
+    }
+
+    @Override
+    protected Object toState(Object value) {
+        final Iterable<?> items = (Iterable<?>) value;
+        final List<Object> rows = new ArrayList<>();
+        for (Object item : items)
+            rows.add(item == null ? emptyRow() : row(rowForm.readStates(item), new Source(item)));
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Items are written in place, so there is no single value to give
+     * ChangeSets.  They get the row states instead.
+     */
+    @Override
+    protected Object toValue(Object state) {
+        return state;
+    }
+
+    /**
+     * Writes every row into its item.  Nothing is written if the field was
+     * never filled.  Every item is found or created before any row is
+     * written, so if one can't be created the List is left as it was.
+     */
+    @Override
+    protected void writeValue(PropertyAccessor accessor, Object model, Object state) {
+        if (state == null)
+            return;
+
+        final List<?> rows = (List<?>) state;
+        final Object current = accessor.canRead() ? accessor.get(model) : null;
+        final List<?> existing = current instanceof List ? (List<?>) current : Collections.emptyList();
+        final Set<Object> present = identitySet();
+        present.addAll(existing);
+
+        // Rows whose item is still in the List keep it, wherever it is
+        final Object[] items = new Object[rows.size()];
+        final Set<Object> claimed = identitySet();
+        for (int i = 0; i < items.length; i++) {
+            final Object item = sourceOf(rows.get(i)).item;
+            if (item != null && present.contains(item) && claimed.add(item))
+                items[i] = item;
+        }
+
+        // Rows from another model's List, or from a restored snapshot, go by
+        // position.  Added rows always get new items.
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] != null)
+                continue;
+            Object item = null;
+            if (sourceOf(rows.get(i)).item != null && i < existing.size() && !claimed.contains(existing.get(i)))
+                item = existing.get(i);
+            if (item == null)
+                item = NestedModels.create(itemClass);
+            if (item == null) {
+                Log.w(TAG, "Can't create a " + itemClass.getName() + " for " + accessor.getName());
+                return;
+            }
+            claimed.add(item);
+            items[i] = item;
+        }
+
+        for (int i = 0; i < items.length; i++)
+            rowForm.writeStates((List<?>) rows.get(i), items[i]);
+
+        if (current instanceof List) {
+            try {
+                @SuppressWarnings("unchecked")
+                final List<Object> list = (List<Object>) current;
+                list.clear();
+                list.addAll(Arrays.asList(items));
+                return;
+            } catch (UnsupportedOperationException e) {
+                // Replace it instead
+            }
+        }
+        accessor.set(model, new ArrayList<>(Arrays.asList(items)));
+    }
+
+    /**
+     * Rows which were saved into new items, or restored ones saved by
+     * position, remember those items so the next save writes the same ones.
+     * Saving never changes the rows it saves, as saveAll shares them between
+     * threads, so this only happens after our form saved its own state.
+     */
+    @Override
+    Object savedState(Object state, PropertyAccessor accessor, Object model) {
+        if (state == null || !accessor.canRead())
+            return state;
+        final List<?> rows = (List<?>) state;
+        final Object current = accessor.get(model);
+        if (!(current instanceof List) || ((List<?>) current).size() != rows.size())
+            return state;
+
+        final List<?> items = (List<?>) current;
+        List<Object> saved = null;
+        for (int i = 0; i < rows.size(); i++) {
+            final Object item = sourceOf(rows.get(i)).item;
+            if (item != null && item != Source.RESTORED) {
+                // Not the List we wrote, e.g. an item couldn't be created
+                if (items.get(i) != item)
+                    return state;
+            } else if (items.get(i) != null) {
+                if (saved == null)
+                    saved = new ArrayList<>(rows);
+                final List<?> row = (List<?>) rows.get(i);
+                saved.set(i, row(row.subList(0, row.size() - 1), new Source(items.get(i))));
+            }
+        }
+        return saved == null ? state : Collections.unmodifiableList(saved);
+    }
+
+    @Override
+    protected boolean isStateValid(Object state) {
+        for (Object row : rows(state))
+            if (!rowForm.areStatesValid((List<?>) row))
+                return false;
+        return true;
+    }
+
+    /**
+     * Rows are described by the row form's own getFormSpec
+     */
+    @Override
+    protected FieldSpec<?> describe(String name) {
+        return FieldSpec.text(name).optional();
+    }
+
+    /**
+     * Rows are parcelled without their items, only whether they had one
+     * @param state The state of every row
+     * @return The rows, each ending with true if it had an item
+     */
+    @Override
+    protected Object toSnapshot(Object state) {
+        if (state == null)
+            return null;
+        final List<Object> packed = new ArrayList<>();
+        for (Object row : (List<?>) state) {
+            final List<Object> states = new ArrayList<>((List<?>) row);
+            states.set(states.size() - 1, sourceOf(row).item != null);
+            packed.add(states);
+        }
+        return packed;
+    }
+
+    @Override
+    protected Object fromSnapshot(Object packed) {
+        if (packed == null)
+            return null;
+        final List<Object> rows = new ArrayList<>();
+        for (Object row : (List<?>) packed) {
+            final List<?> states = (List<?>) row;
+            final boolean hadItem = (Boolean) states.get(states.size() - 1);
+            rows.add(row(states.subList(0, states.size() - 1), new Source(hadItem ? Source.RESTORED : null)));
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    private static List<?> rows(Object state) {
+        return state != null ? (List<?>) state : Collections.emptyList();
+    }
+
+    private List<Object> emptyRow() {
+        return row(Arrays.asList(new Object[rowForm.getFormDefinition().size()]), new Source(null));
+    }
+
+    /**
+     * @param states The field states of a row
+     * @param source Where the row came from
+     * @return The row's state
+     */
+    private static List<Object> row(List<?> states, Source source) {
+        final Object[] row = states.toArray(new Object[states.size() + 1]);
+        row[states.size()] = source;
+        return Collections.unmodifiableList(Arrays.asList(row));
+    }
+
+    private static Source sourceOf(Object row) {
+        final List<?> states = (List<?>) row;
+        return (Source) states.get(states.size() - 1);
+    }
+
+    private static Set<Object> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    }
+
+    /**
+     * The item a row was filled from, or which our form last saved it into.
+     * Sources are equal if their items are the same one.
+     */
+    static final class Source {
+
+        // Stands in for an item known before the state was parcelled
+        static final Object RESTORED = new Object();
+
+        final Object item;
+
+        Source(Object item) {
+            this.item = item;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Source && ((Source) o).item == item;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(item);
+        }
+    }
+
+    /**
+     * Shows each row with a row form, created only for rows the ListView asks for.
+     * A change in a row's views replaces just that row, and the List of rows
+     * is only copied when our state is next read.
+     */
+    private final class RowAdapter extends BaseAdapter {
+
+        private final Context context;
+        private Object[] rows = new Object[0];
+        // What getRows last returned, until a row changes
+        private List<?> copy = Collections.emptyList();
+
+        RowAdapter(Context context) {
+            this.context = context;
+        }
+
+        void setRows(List<?> rows) {
+            this.rows = rows.toArray();
+            this.copy = rows;
+            notifyDataSetChanged();
+        }
+
+        List<?> getRows() {
+            if (copy == null)
+                copy = Collections.unmodifiableList(Arrays.asList(rows.clone()));
+            return copy;
+        }
+
+        /**
+         * Takes a change made in a row's views, without rebinding any rows
+         */
+        void update(int position, List<Object> row) {
+            rows[position] = row;
+            copy = null;
+        }
+
+        @Override
+        public int getCount() {
+            return rows.length;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return rows[position];
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            Row row = convertView != null ? (Row) convertView.getTag(R.id.djforms__row) : null;
+            if (row == null) {
+                row = new Row(NestedModels.createForm(rowFormClass, context));
+                row.form.getFormViewGroup().setTag(R.id.djforms__row, row);
+            }
+            row.bind(position, (List<?>) rows[position]);
+            return row.form.getFormViewGroup();
+        }
+
+        /**
+         * A row form on screen, and which row it's showing
+         */
+        private final class Row implements Runnable {
+
+            final F form;
+            private int position = -1;
+            private boolean binding = false;
+
+            Row(F form) {
+                this.form = form;
+                form.setStateObserver(this);
+            }
+
+            void bind(int position, List<?> states) {
+                this.position = position;
+                binding = true;
+                try {
+                    form.showStates(states);
+                } finally {
+                    binding = false;
+                }
+            }
+
+            @Override
+            public void run() {
+                if (binding || adapter != RowAdapter.this || position >= rows.length)
+                    return;
+                update(position, row(form.currentStates(), sourceOf(rows[position])));
+                notifyViewChanged();
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import java.util.BitSet;
+
+/**
+ * Runs a form's rules as its fields change.  Only the rules reading a changed
+ * field are run, in dependency order, and a computed field which changes
+ * runs the rules reading it in turn.  The views affected by a round of rules
+ * are updated together on the main thread, in one layout pass.
+ *
+ * Changes may be held while a form sets many fields at once, e.g. in
+ * fillViews, so the rules run once for all of them.
+ */
+final class RuleEngine {
+
+    private final DJForm form;
+    private final RuleGraph graph;
+    private final DJField[] fields;
+    private final FormState state;
+    private final FormValues values;
+
+    // Fields which changed since rules last ran
+    private final BitSet changed;
+    private final BitSet hidden;
+    // Fields whose views are out of date, waiting for the main thread
+    private final BitSet staleValues;
+    private final BitSet staleVisibility;
+    private int holds = 0;
+    private boolean running = false;
+    private boolean showPending = false;
+
+    private final Runnable show = new Runnable() {
+        @Override
+        public void run() {
+            final BitSet values;
+            final BitSet visibility;
+            synchronized (RuleEngine.this) {
+                values = (BitSet) staleValues.clone();
+                visibility = (BitSet) staleVisibility.clone();
+                staleValues.clear();
+                staleVisibility.clear();
+                showPending = false;
+            }
+            form.showRuleResults(values, visibility);
+        }
+    };
+
+    RuleEngine(DJForm form, RuleGraph graph, DJField[] fields, FormState state) {
+        this.form = form;
+        this.graph = graph;
+        this.fields = fields;
+        this.state = state;
+        this.values = new FormValues(state.getDefinition(), fields, state);
+        this.changed = new BitSet(fields.length);
+        this.hidden = new BitSet(fields.length);
+        this.staleValues = new BitSet(fields.length);
+        this.staleVisibility = new BitSet(fields.length);
+    }
+
+    /*
+     * Null-safe helpers for forms without rules
+     */
+
+    static void hold(RuleEngine engine) {
+        if (engine != null)
+            engine.hold();
+    }
+
+    static void release(RuleEngine engine) {
+        if (engine != null)
+            engine.release();
+    }
+
+    static boolean isHidden(RuleEngine engine, int index) {
+        return engine != null && engine.isHidden(index);
+    }
+
+    synchronized void hold() {
+        holds++;
+    }
+
+    void release() {
+        synchronized (this) {
+            if (--holds > 0)
+                return;
+        }
+        run();
+    }
+
+    /**
+     * @param index The field which changed, or -1 for every field
+     */
+    void onStateChanged(int index) {
+        synchronized (this) {
+            // Our own changes to computed fields are handled as we make them
+            if (running)
+                return;
+            if (index == -1)
+                changed.set(0, fields.length);
+            else
+                changed.set(index);
+            if (holds > 0)
+                return;
+        }
+        run();
+    }
+
+    synchronized boolean isHidden(int index) {
+        return hidden.get(index);
+    }
+
+    private void run() {
+        synchronized (this) {
+            if (running || changed.isEmpty())
+                return;
+            running = true;
+            try {
+                evaluate();
+            } finally {
+                running = false;
+            }
+            if (showPending || (staleValues.isEmpty() && staleVisibility.isEmpty()))
+                return;
+            showPending = true;
+        }
+        MainThread.run(show);
+    }
+
+    private void evaluate() {
+        final BitSet queue = new BitSet(graph.size());
+        for (int f = changed.nextSetBit(0); f != -1; f = changed.nextSetBit(f + 1))
+            for (int position : graph.getDependents(f))
+                queue.set(position);
+        changed.clear();
+
+        // Rules only ever queue rules after themselves
+        for (int position = queue.nextSetBit(0); position != -1; position = queue.nextSetBit(position + 1)) {
+            final FormRule rule = graph.getRule(position);
+            final int target = graph.getTarget(position);
+            values.setRule(rule, graph.getReads(position));
+            if (rule instanceof ComputedRule) {
+                final Object value = ((ComputedRule) rule).compute(values);
+                final Object computed = value == null ? null : fields[target].toState(value);
+                final Object current = state.get(target);
+                if (computed == null ? current == null : computed.equals(current))
+                    continue;
+                state.update(target, computed);
+                staleValues.set(target);
+                for (int next : graph.getDependents(target))
+                    queue.set(next);
+            } else {
+                final boolean visible = ((VisibilityRule) rule).isVisible(values);
+                if (visible != hidden.get(target))
+                    continue;
+                hidden.set(target, !visible);
+                state.invalidate(target);
+                staleVisibility.set(target);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rules of a form class, sorted so every ComputedRule comes before the
+ * rules reading its target.  Built once per FormDefinition, which is when
+ * unknown fields and cycles are caught.  Immutable.
+ */
+final class RuleGraph {
+
+    // In dependency order
+    private final FormRule[] rules;
+    private final int[] targets;
+    private final BitSet[] reads;
+    // For each field, the rules reading it, by position in rules
+    private final int[][] dependents;
+
+    private RuleGraph(FormRule[] rules, int[] targets, BitSet[] reads, int[][] dependents) {
+        this.rules = rules;
+        this.targets = targets;
+        this.reads = reads;
+        this.dependents = dependents;
+    }
+
+    /**
+     * @param names The field names of the form, in definition order
+     * @param declared The form's rules, in any order
+     * @return The graph, or null if there are no rules
+     * @throws IllegalArgumentException if a rule names a field the form doesn't have,
+     * or a field has two rules of the same kind
+     * @throws IllegalStateException if rules depend on each other
+     */
+    static RuleGraph build(String[] names, FormRule[] declared) {
+        if (declared == null || declared.length == 0)
+            return null;
+
+        final Map<String, Integer> indices = new HashMap<>();
+        for (int i = names.length - 1; i >= 0; i--)
+            indices.put(names[i], i);
+
+        final int size = declared.length;
+        final int[] declaredTargets = new int[size];
+        final BitSet[] declaredReads = new BitSet[size];
+        final int[] computedBy = new int[names.length];
+        final BitSet shown = new BitSet(names.length);
+        Arrays.fill(computedBy, -1);
+        for (int r = 0; r < size; r++) {
+            final FormRule rule = declared[r];
+            declaredTargets[r] = indexOf(indices, rule, rule.getTarget());
+            declaredReads[r] = new BitSet(names.length);
+            for (String dependency : rule.getDependencies())
+                declaredReads[r].set(indexOf(indices, rule, dependency));
+
+            if (rule instanceof ComputedRule) {
+                if (computedBy[declaredTargets[r]] != -1)
+                    throw new IllegalArgumentException("More than one ComputedRule for " + rule.getTarget());
+                computedBy[declaredTargets[r]] = r;
+            } else {
+                if (shown.get(declaredTargets[r]))
+                    throw new IllegalArgumentException("More than one VisibilityRule for " + rule.getTarget());
+                shown.set(declaredTargets[r]);
+            }
+        }
+
+        // Kahn's algorithm, over edges from each ComputedRule to the rules reading its target
+        final int[] waitingOn = new int[size];
+        for (int r = 0; r < size; r++)
+            for (int f = declaredReads[r].nextSetBit(0); f != -1; f = declaredReads[r].nextSetBit(f + 1))
+                if (computedBy[f] != -1)
+                    waitingOn[r]++;
+
+        final ArrayDeque<Integer> ready = new ArrayDeque<>();
+        for (int r = 0; r < size; r++)
+            if (waitingOn[r] == 0)
+                ready.add(r);
+
+        final List<Integer> order = new ArrayList<>(size);
+        while (!ready.isEmpty()) {
+            final int r = ready.poll();
+            order.add(r);
+            if (!(declared[r] instanceof ComputedRule))
+                continue;
+            for (int next = 0; next < size; next++)
+                if (declaredReads[next].get(declaredTargets[r]) && --waitingOn[next] == 0)
+                    ready.add(next);
+        }
+
+        if (order.size() < size) {
+            final List<FormRule> stuck = new ArrayList<>();
+            for (int r = 0; r < size; r++)
+                if (waitingOn[r] > 0)
+                    stuck.add(declared[r]);
+            throw new IllegalStateException("Rules depend on each other: " + stuck);
+        }
+
+        final FormRule[] rules = new FormRule[size];
+        final int[] targets = new int[size];
+        final BitSet[] reads = new BitSet[size];
+        final List<List<Integer>> readers = new ArrayList<>(names.length);
+        for (int f = 0; f < names.length; f++)
+            readers.add(new ArrayList<Integer>());
+        for (int position = 0; position < size; position++) {
+            final int r = order.get(position);
+            rules[position] = declared[r];
+            targets[position] = declaredTargets[r];
+            reads[position] = declaredReads[r];
+            for (int f = reads[position].nextSetBit(0); f != -1; f = reads[position].nextSetBit(f + 1))
+                readers.get(f).add(position);
+        }
+
+        final int[][] dependents = new int[names.length][];
+        for (int f = 0; f < names.length; f++) {
+            final List<Integer> list = readers.get(f);
+            dependents[f] = new int[list.size()];
+            for (int i = 0; i < dependents[f].length; i++)
+                dependents[f][i] = list.get(i);
+        }
+        return new RuleGraph(rules, targets, reads, dependents);
+    }
+
+    private static int indexOf(Map<String, Integer> indices, FormRule rule, String name) {
+        final Integer index = indices.get(name);
+        if (index == null)
+            throw new IllegalArgumentException(rule + " names " + name + ", which the form doesn't have");
+        return index;
+    }
+
+    int size() {
+        return rules.length;
+    }
+
+    FormRule getRule(int position) {
+        return rules[position];
+    }
+
+    int getTarget(int position) {
+        return targets[position];
+    }
+
+    /**
+     * @return The fields the rule at position may read
+     */
+    BitSet getReads(int position) {
+        return reads[position];
+    }
+
+    /**
+     * @return The positions of the rules reading field, in dependency order
+     */
+    int[] getDependents(int field) {
+        return dependents[field];
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.util.Log;
+import android.view.ViewGroup;
+
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.binding.PropertyAccessor;
+import com.exallium.djforms.lib.spec.FieldSpec;
+
+import java.util.List;
+
+/**
+ * A field which binds a nested model, like a Contact's Address, with a form
+ * of its own.  The nested form's views are shown inside ours, and its state
+ * travels in our form's FormState, so filling, saving, validation and
+ * snapshots cover it like any other field.
+ *
+ * Nested forms are created with their parent, e.g.
+ * <pre>
+ * public SubFormField&lt;AddressForm&gt; address;
+ *
+ * public ContactForm(Context context) {
+ *     super(context);
+ *     address = new SubFormField&lt;&gt;(new AddressForm(context));
+ * }
+ * </pre>
+ *
+ * The field's name may be a dotted path, like "billing.address".  On save, a
+ * missing nested model is created if its class has a public no-argument
+ * constructor.
+ */
+public class SubFormField<F extends DJForm> extends DJField<FormLayout> {
+
+    private static final String TAG = SubFormField.class.getSimpleName();
+
+    private final F form;
+    // Set while we put state into the nested form, so it isn't echoed back
+    private boolean showing = false;
+
+    private final Runnable observer = new Runnable() {
+        @Override
+        public void run() {
+            if (!showing)
+                notifyStateChanged();
+        }
+    };
+
+    public SubFormField(F form) {
+        this(form, null);
+    }
+
+    /**
+     * @param form The nested form
+     * @param name The model property, or dotted path, holding the nested model, or null
+     */
+    public SubFormField(F form, String name) {
+        super(FormLayout.class, name);
+        this.form = form;
+    }
+
+    /**
+     * @return The nested form
+     */
+    public final F getForm() {
+        return form;
+    }
+
+    @Override
+    protected void onViewCreated(FormLayout view) {
+        // The nested form follows us into whichever Context we're built in
+        final ViewGroup nested = form.attach(view.getContext());
+        if (nested.getParent() instanceof ViewGroup)
+            ((ViewGroup) nested.getParent()).removeView(nested);
+        view.addView(nested);
+        form.setStateObserver(observer);
+    }
+
+    @Override
+    protected void onViewRecycled(FormLayout view) {
+        form.setStateObserver(null);
+        view.removeAllViews();
+        form.detach();
+    }
+
+    @Override
+    protected boolean reportsStateChanges() {
+        return true;
+    }
+
+    /**
+     * @return The state of every field of the nested form, as there is no
+     * single nested model to return
+     */
+    @Override
+    public Object getValue(FormLayout view) {
+        return getState(view);
+    }
+
+    @Override
+    public void setValue(FormLayout view, Object data) {
+        setState(view, data == null ? null : toState(data));
+    }
+
+    /*
+     * State is the nested form's field states, as an unmodifiable List
+     */
+
+    @Override
+    protected Object getState(FormLayout view) {
+        return form.currentStates();
+    }
+
+    @Override
+    protected void setState(FormLayout view, Object state) {
+        showing = true;
+        try {
+            form.showStates((List<?>) state);
+        } finally {
+            showing = false;
+        }
+    }
+
+    @Override
+    protected Object toState(Object value) {
+        return form.readStates(value);
+    }
+
+    /**
+     * Nested models are written in place, so there is no single value to give
+     * ChangeSets.  They get the nested field states instead.
+     */
+    @Override
+    protected Object toValue(Object state) {
+        return state;
+    }
+
+    @Override
+    protected void writeValue(PropertyAccessor accessor, Object model, Object state) {
+        Object nested = accessor.canRead() ? accessor.get(model) : null;
+        if (nested == null) {
+            nested = NestedModels.create(AccessorBackend.typeOf(model.getClass(), accessor.getName()));
+            if (nested == null) {
+                Log.w(TAG, "Can't create a model for " + accessor.getName());
+                return;
+            }
+            form.writeStates((List<?>) state, nested);
+            accessor.set(model, nested);
+        } else {
+            form.writeStates((List<?>) state, nested);
+        }
+    }
+
+    @Override
+    protected boolean isStateValid(Object state) {
+        return form.areStatesValid((List<?>) state);
+    }
+
+    /**
+     * The nested form is described by its own getFormSpec
+     */
+    @Override
+    protected FieldSpec<?> describe(String name) {
+        return FieldSpec.text(name).optional();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Shows form phases, and the fields within them, as android.os.Trace sections
+ * in systrace.  Does nothing before Jelly Bean MR2, which has no Trace.
+ */
+public class TraceMetrics extends FormMetrics {
+
+    // Section names are cut off past this many characters
+    private static final int MAX_SECTION_NAME = 127;
+
+    private static final boolean ENABLED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    @Override
+    public void onPhaseStart(FormDefinition form, Phase phase) {
+        if (ENABLED)
+            Trace.beginSection(section(form.getFormClass().getSimpleName() + " " + phase));
+    }
+
+    @Override
+    public void onPhaseEnd(FormDefinition form, Phase phase, long nanos) {
+        if (ENABLED)
+            Trace.endSection();
+    }
+
+    @Override
+    public void onFieldStart(FormDefinition form, Phase phase, int index) {
+        if (ENABLED)
+            Trace.beginSection(section(phase + " " + form.getName(index)));
+    }
+
+    @Override
+    public void onFieldEnd(FormDefinition form, Phase phase, int index, long nanos) {
+        if (ENABLED)
+            Trace.endSection();
+    }
+
+    private static String section(String name) {
+        return name.length() > MAX_SECTION_NAME ? name.substring(0, MAX_SECTION_NAME) : name;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+/**
+ * The outcome of validating every field of a form, in FormDefinition order
+ */
+public final class ValidationResult {
+
+    private final FormDefinition definition;
+    private final boolean[] valid;
+
+    ValidationResult(FormDefinition definition, boolean[] valid) {
+        this.definition = definition;
+        this.valid = valid;
+    }
+
+    /**
+     * @return true if every field is valid
+     */
+    public boolean isValid() {
+        for (boolean fieldValid : valid)
+            if (!fieldValid) return false;
+        return true;
+    }
+
+    /**
+     * @param index The field index
+     * @return true if the field is valid
+     */
+    public boolean isFieldValid(int index) {
+        return valid[index];
+    }
+
+    /**
+     * @param name The field name
+     * @return true if the field is valid
+     */
+    public boolean isFieldValid(String name) {
+        final int index = definition.indexOf(name);
+        if (index == -1)
+            throw new IllegalArgumentException("No field named " + name);
+        return valid[index];
+    }
+
+    public FormDefinition getDefinition() {
+        return definition;
+    }
+
+    public int size() {
+        return valid.length;
+    }
+}
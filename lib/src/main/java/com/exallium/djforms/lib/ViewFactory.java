@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.util.SparseArray;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds field views with as little repeated work as possible.
+ *
+ * View constructors are resolved once per view class, and themed contexts are
+ * created once per (context, style) pair.  Themed contexts are only weakly
+ * held, both by context and by value, so nothing here keeps an Activity
+ * alive: once every view using a wrapper is gone the wrapper can go too.
+ */
+final class ViewFactory {
+
+    private static final ConcurrentMap<Class<?>, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+    private static final Map<Context, SparseArray<WeakReference<Context>>> THEMED = new WeakHashMap<>();
+
+    private ViewFactory() {}
+
+    /**
+     * Creates a view through its (Context) constructor
+     * @param viewClass The view class
+     * @param context The context to build for
+     * @param styleId A style to theme the view with, or DJField.NO_STYLE
+     * @return The new view
+     */
+    static <V extends View> V newView(Class<V> viewClass, Context context, int styleId)
+            throws NoSuchMethodException, InstantiationException, IllegalAccessException, InvocationTargetException {
+        final Context viewContext = styleId != DJField.NO_STYLE ? themed(context, styleId) : context;
+        return constructorOf(viewClass).newInstance(viewContext);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V extends View> Constructor<V> constructorOf(Class<V> viewClass) throws NoSuchMethodException {
+        Constructor<?> constructor = CONSTRUCTORS.get(viewClass);
+        if (constructor == null) {
+            constructor = viewClass.getConstructor(Context.class);
+            CONSTRUCTORS.putIfAbsent(viewClass, constructor);
+        }
+        return (Constructor<V>) constructor;
+    }
+
+    /**
+     * @return The shared ContextThemeWrapper for context and styleId
+     */
+    static Context themed(Context context, int styleId) {
+        synchronized (THEMED) {
+            SparseArray<WeakReference<Context>> wrappers = THEMED.get(context);
+            if (wrappers == null) {
+                wrappers = new SparseArray<>();
+                THEMED.put(context, wrappers);
+            }
+
+            final WeakReference<Context> cached = wrappers.get(styleId);
+            Context wrapper = cached != null ? cached.get() : null;
+            if (wrapper == null) {
+                wrapper = new ContextThemeWrapper(context, styleId);
+                wrappers.put(styleId, new WeakReference<>(wrapper));
+            }
+            return wrapper;
+        }
+    }
+
+    /**
+     * @return true if view was built for context, directly or through a wrapper
+     */
+    static boolean isBuiltFor(View view, Context context) {
+        Context current = view.getContext();
+        while (current != null) {
+            if (current == context)
+                return true;
+            if (!(current instanceof ContextWrapper))
+                return false;
+            current = ((ContextWrapper) current).getBaseContext();
+        }
+        return false;
+    }
+}
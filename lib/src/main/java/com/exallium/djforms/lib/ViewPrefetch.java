@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.util.Log;
+import android.view.View;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Builds the bare views of a form definition on an Executor, ahead of the
+ * form's getFormViewGroup.  Each field's view moves from PENDING through
+ * BUILDING to READY, and whichever thread gets to a field first claims it:
+ * the main thread takes a READY view, or builds the field itself if it is
+ * not ready, in which case the prefetch skips or drops it.  Nothing here
+ * ever waits on the other thread.
+ */
+final class ViewPrefetch implements Runnable {
+
+    private static final String TAG = ViewPrefetch.class.getSimpleName();
+
+    private static final int PENDING = 0;
+    private static final int BUILDING = 1;
+    private static final int READY = 2;
+    private static final int TAKEN = 3;
+
+    private final FormDefinition definition;
+    private final Context context;
+    private final FormMetrics metrics;
+    private final AtomicIntegerArray states;
+    private final AtomicReferenceArray<View> views;
+
+    ViewPrefetch(FormDefinition definition, Context context, FormMetrics metrics) {
+        this.definition = definition;
+        this.context = context;
+        this.metrics = metrics;
+        this.states = new AtomicIntegerArray(definition.size());
+        this.views = new AtomicReferenceArray<>(definition.size());
+    }
+
+    void start(Executor executor) {
+        executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+        final long start = FormMetrics.startPhase(metrics, definition, FormMetrics.Phase.PREFETCH);
+        try {
+            for (int i = 0; i < definition.size(); i++) {
+                if (!states.compareAndSet(i, PENDING, BUILDING))
+                    continue;
+
+                final long fieldStart = FormMetrics.startField(metrics, definition, FormMetrics.Phase.PREFETCH, i);
+                try {
+                    views.set(i, DJField.newView(definition.getViewClass(i), definition.getLayoutId(i),
+                            definition.getStyleId(i), context));
+                } catch (RuntimeException e) {
+                    // The main thread builds it again, and reports the failure there
+                    Log.w(TAG, "Failed to prefetch " + definition.getName(i), e);
+                } finally {
+                    FormMetrics.endField(metrics, definition, FormMetrics.Phase.PREFETCH, i, fieldStart);
+                }
+
+                if (!states.compareAndSet(i, BUILDING, READY))
+                    views.set(i, null);
+            }
+        } finally {
+            FormMetrics.endPhase(metrics, definition, FormMetrics.Phase.PREFETCH, start);
+        }
+    }
+
+    /**
+     * Claims a field's view
+     * @return The prefetched view, or null if it isn't ready, in which case
+     *         the caller should build it
+     */
+    View take(int index) {
+        while (true) {
+            final int state = states.get(index);
+            if (state == TAKEN)
+                return null;
+            if (states.compareAndSet(index, state, TAKEN)) {
+                final View view = views.getAndSet(index, null);
+                return state == READY ? view : null;
+            }
+        }
+    }
+
+    /**
+     * Claims every field left, so the prefetch stops and lets go of its views
+     */
+    void cancel() {
+        for (int i = 0; i < definition.size(); i++)
+            take(i);
+    }
+
+    /**
+     * @return true if the view was built for context, so may be taken
+     */
+    boolean isFor(Context context) {
+        return this.context == context;
+    }
+}
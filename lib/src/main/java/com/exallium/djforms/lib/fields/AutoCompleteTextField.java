@@ -24,6 +24,8 @@
 
 package com.exallium.djforms.lib.fields;
 
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.widget.AutoCompleteTextView;
 import android.widget.BaseAdapter;
 import android.widget.Filterable;
@@ -47,24 +49,75 @@ public class AutoCompleteTextField<T extends BaseAdapter & Filterable> extends D
         this.adapter = adapter;
     }
 
+    // Keeps the form state in step with what's typed
+    private final TextWatcher stateWatcher = new TextWatcher() {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            notifyStateChanged();
+        }
+    };
+
     @Override
     protected void onViewCreated(AutoCompleteTextView view){
         view.setAdapter(adapter);
+        view.addTextChangedListener(stateWatcher);
+    }
+
+    /**
+     * The stateWatcher reports every change
+     */
+    @Override
+    protected boolean reportsStateChanges() {
+        return true;
     }
 
     @Override
-    protected boolean isValid(AutoCompleteTextView view) {
-        return view.getText().length() != 0;
+    protected void onViewRecycled(AutoCompleteTextView view) {
+        view.removeTextChangedListener(stateWatcher);
+        view.setText("");
+        view.setError(null);
     }
 
     @Override
     public Object getValue(AutoCompleteTextView view) {
-        return view.getText().toString();
+        return toValue(getState(view));
     }
 
     @Override
     public void setValue(AutoCompleteTextView view, Object data) {
-        view.setText(data.toString());
+        setState(view, toState(data));
+    }
+
+    @Override
+    protected Object getState(AutoCompleteTextView view) {
+        return view.getText().toString();
+    }
+
+    @Override
+    protected void setState(AutoCompleteTextView view, Object state) {
+        if (state != null)
+            view.setText((String) state);
+    }
+
+    @Override
+    protected Object toValue(Object state) {
+        return state == null ? "" : state;
+    }
+
+    @Override
+    protected Object toState(Object value) {
+        return value.toString();
+    }
+
+    @Override
+    protected boolean isStateValid(Object state) {
+        return state != null && ((String) state).length() != 0;
     }
 
 }
@@ -29,13 +29,19 @@ import android.view.View;
 import android.widget.DatePicker;
 import android.widget.EditText;
 import com.exallium.djforms.lib.R;
+import com.exallium.djforms.lib.codec.DateCodec;
+import com.exallium.djforms.lib.codec.ValueCodec;
+import com.exallium.djforms.lib.spec.Fallback;
+import com.exallium.djforms.lib.spec.FieldSpec;
 
+import java.lang.reflect.Method;
 import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * DateDialogField is made specifically to show a datepicker dialog
@@ -43,7 +49,15 @@ import java.util.Locale;
  */
 public class DateDialogField extends EditTextField {
 
-    private static DateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.CANADA);
+    public static final String DEFAULT_PATTERN = "MMM dd, yyyy";
+
+    // Whether each field class overrides getDateFormat, looked up once per class
+    private static final ConcurrentMap<Class<?>, Boolean> OVERRIDES_DATE_FORMAT = new ConcurrentHashMap<>();
+
+    private static final DateCodec DEFAULT_CODEC = DateCodec.of(DEFAULT_PATTERN, Locale.CANADA);
+
+    // Subclasses which still override getDateFormat parse and format through it
+    private final ValueCodec<Date> codec = overridesDateFormat(getClass()) ? new FormatCodec() : DEFAULT_CODEC;
 
     public DateDialogField() {
         this(null);
@@ -65,26 +79,68 @@ public class DateDialogField extends EditTextField {
     }
 
     /**
-     * Get a DateFormat object describing how you want to input
-     * data into the EditText
-     * @return a DateFormat instance.
+     * The codec for the text in the EditText, DEFAULT_PATTERN for
+     * Locale.CANADA by default.  Override to use another pattern or locale,
+     * e.g. DateCodec.of("yyyy-MM-dd", Locale.US)
+     * @return a DateCodec instance, or one using getDateFormat if a subclass
+     * overrides it
+     */
+    @Override
+    protected ValueCodec<?> getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return The calling thread's DateFormat for our codec, or for
+     * DEFAULT_PATTERN if our codec isn't a DateCodec.  Overrides are still
+     * used to parse and format, each use locking the DateFormat.
+     * @deprecated Not safe to share between threads, override getCodec to
+     * change the format instead
      */
+    @Deprecated
     protected DateFormat getDateFormat() {
-        return dateFormat;
+        final ValueCodec<?> codec = getCodec();
+        return (codec instanceof DateCodec ? (DateCodec) codec : DEFAULT_CODEC).getFormat();
+    }
+
+    private static boolean overridesDateFormat(Class<?> fieldClass) {
+        Boolean overrides = OVERRIDES_DATE_FORMAT.get(fieldClass);
+        if (overrides == null) {
+            overrides = findsDateFormat(fieldClass);
+            OVERRIDES_DATE_FORMAT.putIfAbsent(fieldClass, overrides);
+        }
+        return overrides;
+    }
+
+    private static boolean findsDateFormat(Class<?> fieldClass) {
+        for (Class<?> c = fieldClass; c != DateDialogField.class; c = c.getSuperclass())
+            for (Method method : c.getDeclaredMethods())
+                if (method.getName().equals("getDateFormat") && method.getParameterTypes().length == 0)
+                    return true;
+        return false;
     }
 
     /**
-     * Basic validator.  If you want more refined control (say, over a
-     * range of dates) it's best to do it in a subclass
-     * @param view The view contained.
-     * @return true if we're good to go, false otherwise
+     * Parses and formats through an overridden getDateFormat
      */
-    @Override
-    protected boolean isValid(EditText view) {
-        try {
-            return super.isValid(view) && getDateFormat().parse(view.getText().toString()) != null;
-        } catch (ParseException e) {
-            return false;
+    private final class FormatCodec extends ValueCodec<Date> {
+
+        @Override
+        @SuppressWarnings({"deprecation"})
+        public Date parse(CharSequence text) throws ParseException {
+            final DateFormat format = getDateFormat();
+            synchronized (format) {
+                return format.parse(text.toString());
+            }
+        }
+
+        @Override
+        @SuppressWarnings({"deprecation"})
+        public String format(Date value) {
+            final DateFormat format = getDateFormat();
+            synchronized (format) {
+                return format.format(value);
+            }
         }
     }
 
@@ -98,23 +154,31 @@ public class DateDialogField extends EditTextField {
                     now.set(Calendar.YEAR, year);
                     now.set(Calendar.MONTH, monthOfYear + 1);
                     now.set(Calendar.DAY_OF_MONTH, dayOfMonth);
-                    ((EditText) eView).setText(getDateFormat().format(now.getTime()));
+                    ((EditText) eView).setText((String) toState(now.getTime()));
                 }
             }, now.get(Calendar.YEAR), now.get(Calendar.MONTH) - 1, now.get(Calendar.DAY_OF_MONTH)).show();
         }
     };
 
+    /**
+     * Dates which don't parse are saved as now
+     * @param name The model property name
+     * @return The field's spec
+     */
     @Override
-    public Object getValue(EditText view) {
-        try {
-            return getDateFormat().parse((String) super.getValue(view));
-        } catch (ParseException e) {
-            return new Date();
-        }
+    @SuppressWarnings({"unchecked"})
+    protected FieldSpec<?> describe(String name) {
+        return ((FieldSpec<Date>) super.describe(name)).orElse(Fallback.NOW);
     }
 
+    /**
+     * Parsed dates are cached by their text, so each model gets its own copy
+     * @param state The text
+     * @return A Date no other model shares
+     */
     @Override
-    public void setValue(EditText view, Object data) {
-        view.setText(getDateFormat().format((Date) data));
+    protected Object toValue(Object state) {
+        final Date date = (Date) super.toValue(state);
+        return date == null ? null : new Date(date.getTime());
     }
 }
@@ -24,11 +24,21 @@
 
 package com.exallium.djforms.lib.fields;
 
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.widget.EditText;
 import com.exallium.djforms.lib.DJField;
+import com.exallium.djforms.lib.codec.ParseCache;
+import com.exallium.djforms.lib.codec.Parsed;
+import com.exallium.djforms.lib.codec.ValueCodec;
+import com.exallium.djforms.lib.spec.FieldSpec;
+
+import java.util.Date;
 
 public class EditTextField extends DJField<EditText> {
 
+    private volatile ParseCache<?> parseCache = null;
+
     public EditTextField() {
         super(EditText.class);
     }
@@ -41,30 +51,170 @@ public class EditTextField extends DJField<EditText> {
         super(EditText.class, name, styleId);
     }
 
+    // Keeps the form state in step with what's typed, only reading the text when it's needed
+    private final TextWatcher stateWatcher = new TextWatcher() {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            notifyViewChanged();
+        }
+    };
+
     /**
-     * Does nothing, but we don't want abstract stuff
+     * Watches the text, so the form state follows it
      * @param view The view to initialize
      */
     @Override
-    protected void onViewCreated(EditText view) {}
+    protected void onViewCreated(EditText view) {
+        view.addTextChangedListener(stateWatcher);
+    }
 
     /**
-     * Simple case check if we have anything in our edittext
-     * @param view The View to Validate
-     * @return True if we're good to go, false otherwise
+     * The stateWatcher reports every change
      */
     @Override
-    protected boolean isValid(EditText view) {
-        return view.length() != 0;
+    protected boolean reportsStateChanges() {
+        return true;
+    }
+
+    /**
+     * Clears out whatever was entered
+     * @param view The view being recycled
+     */
+    @Override
+    protected void onViewRecycled(EditText view) {
+        view.removeTextChangedListener(stateWatcher);
+        view.setText("");
+        view.setError(null);
     }
 
     @Override
     public Object getValue(EditText view) {
-        return view.getText().toString();
+        return toValue(getState(view));
     }
 
     @Override
     public void setValue(EditText view, Object data) {
-        view.setText(data.toString());
+        setState(view, toState(data));
+    }
+
+    /**
+     * The state of a text field is its text
+     * @param view The view
+     * @return The text, as a String
+     */
+    @Override
+    protected Object getState(EditText view) {
+        return view.getText().toString();
+    }
+
+    @Override
+    protected void setState(EditText view, Object state) {
+        if (state != null)
+            view.setText((String) state);
+    }
+
+    /**
+     * Text fields which stand for something other than text, like a number or
+     * a date, return a codec for it here.  Must return the same codec every
+     * time.
+     * @return The codec, or null to use the text as is
+     */
+    protected ValueCodec<?> getCodec() {
+        return null;
+    }
+
+    /**
+     * Parses text with our codec.  The last text parsed is remembered, so each
+     * edit is only parsed once however often it's validated and saved.
+     * @param text The text
+     * @return The outcome of parsing the text
+     */
+    protected final Parsed<?> parse(String text) {
+        ParseCache<?> cache = parseCache;
+        if (cache == null) {
+            cache = new ParseCache<>(getCodec());
+            parseCache = cache;
+        }
+        return cache.parse(text);
+    }
+
+    @Override
+    protected Object toValue(Object state) {
+        final String text = textOf(state);
+        if (getCodec() == null)
+            return text;
+        return getSpec().toValue(parse(text));
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked"})
+    protected Object toState(Object value) {
+        final ValueCodec<Object> codec = (ValueCodec<Object>) getCodec();
+        return codec == null ? value.toString() : codec.format(value);
+    }
+
+    /**
+     * Text fields are required text which parses with our codec, if any.
+     * Override to make the field optional or constrain its values, e.g.
+     * super.describe(name).optional(); isStateValid follows the spec.
+     * @param name The model property name
+     * @return The field's spec
+     */
+    @Override
+    protected FieldSpec<?> describe(String name) {
+        final ValueCodec<?> codec = getCodec();
+        return codec == null ? FieldSpec.text(name) : FieldSpec.of(name, codec);
+    }
+
+    /**
+     * Checks the text against our spec, parsing it through our cache
+     * @param state The text
+     * @return True if we're good to go, false otherwise
+     */
+    @Override
+    protected boolean isStateValid(Object state) {
+        final String text = textOf(state);
+        return getCodec() == null ? getSpec().isValid(text) : getSpec().accepts(parse(text));
+    }
+
+    /**
+     * Text our codec parses is parcelled as its value, when the value formats
+     * back to the very same text
+     * @param state The text
+     * @return The parsed value, or the text
+     */
+    @Override
+    @SuppressWarnings({"unchecked"})
+    protected Object toSnapshot(Object state) {
+        final ValueCodec<Object> codec = (ValueCodec<Object>) getCodec();
+        if (codec == null || state == null)
+            return state;
+        final Parsed<?> parsed = parse((String) state);
+        final Object value = parsed.isValid() ? parsed.getValue() : null;
+        if ((value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Date)
+                && codec.format(value).equals(state))
+            return value;
+        return state;
+    }
+
+    @Override
+    protected Object fromSnapshot(Object packed) {
+        return packed == null || packed instanceof String ? packed : toState(packed);
+    }
+
+    /**
+     * A field which was never filled has no state, which reads the same as
+     * a fresh, empty EditText.
+     * @param state The field state
+     * @return The text
+     */
+    protected static String textOf(Object state) {
+        return state == null ? "" : (String) state;
     }
 }
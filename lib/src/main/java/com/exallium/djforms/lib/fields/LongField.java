@@ -0,0 +1,53 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.fields;
+
+import com.exallium.djforms.lib.R;
+import com.exallium.djforms.lib.codec.LongCodec;
+import com.exallium.djforms.lib.codec.ValueCodec;
+
+/**
+ * Whole numbers which fit a long.  Saved through PropertyAccessor.setLong,
+ * see IntField.
+ */
+public class LongField extends EditTextField {
+
+    public LongField() {
+        this(null);
+    }
+
+    public LongField(String name) {
+        this(name, R.style.Form_NumberField);
+    }
+
+    public LongField(String name, int styleId) {
+        super(name, styleId);
+    }
+
+    @Override
+    protected ValueCodec<?> getCodec() {
+        return LongCodec.INSTANCE;
+    }
+}
@@ -24,10 +24,12 @@
 
 package com.exallium.djforms.lib.fields;
 
-import android.widget.EditText;
 import com.exallium.djforms.lib.R;
 
-public class NumberField extends EditTextField {
+/**
+ * Same as LongField, kept for existing forms
+ */
+public class NumberField extends LongField {
 
     public NumberField() {
         this(null);
@@ -40,9 +42,4 @@ public class NumberField extends EditTextField {
     public NumberField(String name, int styleId) {
         super(name, styleId);
     }
-
-    @Override
-    public Object getValue(EditText view) {
-        return Long.parseLong((String) super.getValue(view));
-    }
 }
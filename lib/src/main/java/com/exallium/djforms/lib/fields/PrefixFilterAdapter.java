@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.fields;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * An adapter for AutoCompleteTextField meant for large lists of suggestions,
+ * where ArrayAdapter's scan of every item on every keystroke starts to hurt.
+ *
+ * Items are matched case insensitively on the start of their toString().  A
+ * PrefixIndex is built on the filter thread the first time the adapter is
+ * filtered, and each query after that is a pair of binary searches, narrowed
+ * to the previous result when the query only got longer.  Results are ranges
+ * of the index, so no lists are built and memory use is fixed by the size of
+ * the item set.
+ * @param <T> The item type
+ */
+public class PrefixFilterAdapter<T> extends BaseAdapter implements Filterable {
+
+    private final LayoutInflater inflater;
+    private final int resource;
+    private final Locale locale;
+    private Collection<? extends T> source;
+    private volatile PrefixIndex<T> index = null;
+    private volatile int maxResults = Integer.MAX_VALUE;
+
+    // The published result, only touched on the main thread
+    private PrefixIndex<T> shown = null;
+    private int start = 0;
+    private int count = 0;
+
+    private final PrefixFilter filter = new PrefixFilter();
+
+    /**
+     * @param context The context to inflate rows in
+     * @param items The suggestions, which are copied
+     */
+    public PrefixFilterAdapter(Context context, Collection<? extends T> items) {
+        this(context, android.R.layout.simple_dropdown_item_1line, items, Locale.getDefault());
+    }
+
+    /**
+     * @param context The context to inflate rows in
+     * @param resource A layout whose root is a TextView, for each row
+     * @param items The suggestions, which are copied
+     * @param locale The locale to match case insensitively in
+     */
+    public PrefixFilterAdapter(Context context, int resource, Collection<? extends T> items, Locale locale) {
+        this.inflater = LayoutInflater.from(context);
+        this.resource = resource;
+        this.locale = locale;
+        this.source = new ArrayList<>(items);
+    }
+
+    /**
+     * Caps the number of suggestions shown for a query
+     * @param maxResults The most suggestions to show
+     */
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * @return The index, built on first use.  Filtering happens on a single
+     * worker thread, so it's only ever built once.
+     */
+    private PrefixIndex<T> index() {
+        PrefixIndex<T> index = this.index;
+        if (index == null) {
+            index = new PrefixIndex<>(source, locale);
+            this.index = index;
+            source = null;
+        }
+        return index;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public T getItem(int position) {
+        return shown.get(start + position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        final TextView view = convertView != null
+                ? (TextView) convertView
+                : (TextView) inflater.inflate(resource, parent, false);
+        view.setText(getItem(position).toString());
+        return view;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private final class PrefixFilter extends Filter {
+
+        // The last query and its range, only touched on the filter thread
+        private String lastQuery = null;
+        private int lastStart;
+        private int lastEnd;
+
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            final PrefixIndex<T> index = index();
+            final String query = index.normalize(constraint == null ? "" : constraint);
+
+            int from = 0;
+            int to = index.size();
+            if (lastQuery != null && query.startsWith(lastQuery)) {
+                from = lastStart;
+                to = lastEnd;
+            }
+
+            lastStart = index.start(query, from, to);
+            lastEnd = index.end(query, lastStart, to);
+            lastQuery = query;
+
+            final FilterResults results = new FilterResults();
+            results.values = new Result<>(index, lastStart, Math.min(lastEnd - lastStart, maxResults));
+            results.count = ((Result) results.values).count;
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings({"unchecked"})
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            final Result<T> result = (Result<T>) results.values;
+            shown = result.index;
+            start = result.start;
+            count = result.count;
+            if (count > 0)
+                notifyDataSetChanged();
+            else
+                notifyDataSetInvalidated();
+        }
+    }
+
+    private static final class Result<T> {
+        final PrefixIndex<T> index;
+        final int start;
+        final int count;
+
+        Result(PrefixIndex<T> index, int start, int count) {
+            this.index = index;
+            this.start = start;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib.fields;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Case insensitive prefix lookups over a fixed set of items, matched on their
+ * toString().  The keys are sorted once, up front, after which everything
+ * starting with a prefix sits in one contiguous range, found with two binary
+ * searches and no allocation.  Extending a prefix can only shrink its range,
+ * so the new range can be searched for inside the old one.
+ *
+ * An index is immutable once built and safe to use from any thread.
+ * @param <T> The item type
+ */
+public final class PrefixIndex<T> {
+
+    private final Locale locale;
+    private final String[] keys;
+    private final Object[] items;
+
+    /**
+     * Builds the index, which sorts every key.  Best done off the main thread
+     * for large sets.
+     * @param items The items to index
+     * @param locale The locale keys and prefixes are lower cased in
+     */
+    public PrefixIndex(Collection<? extends T> items, Locale locale) {
+        this.locale = locale;
+
+        final Entry[] entries = new Entry[items.size()];
+        int i = 0;
+        for (T item : items)
+            entries[i++] = new Entry(normalize(item.toString()), item);
+        Arrays.sort(entries);
+
+        this.keys = new String[entries.length];
+        this.items = new Object[entries.length];
+        for (i = 0; i < entries.length; i++) {
+            keys[i] = entries[i].key;
+            this.items[i] = entries[i].item;
+        }
+    }
+
+    /**
+     * @return The number of items indexed
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param position A position in key order
+     * @return The item at that position
+     */
+    @SuppressWarnings({"unchecked"})
+    public T get(int position) {
+        return (T) items[position];
+    }
+
+    /**
+     * Puts text in the form keys are stored in.  Prefixes passed to start and
+     * end must have been through here.
+     * @param text Any text
+     * @return The text, lower cased
+     */
+    public String normalize(CharSequence text) {
+        return text.toString().toLowerCase(locale);
+    }
+
+    /**
+     * @param prefix A normalized prefix
+     * @param from The first position to search, inclusive
+     * @param to The last position to search, exclusive
+     * @return The first position in [from, to) whose key is at or after prefix
+     */
+    public int start(String prefix, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(prefix) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @param prefix A normalized prefix
+     * @param from A position returned by start for the same prefix
+     * @param to The last position to search, exclusive
+     * @return The first position in [from, to) whose key doesn't start with prefix
+     */
+    public int end(String prefix, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (keys[middle].startsWith(prefix))
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final String key;
+        final Object item;
+
+        Entry(String key, Object item) {
+            this.key = key;
+            this.item = item;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return key.compareTo(other.key);
+        }
+    }
+}
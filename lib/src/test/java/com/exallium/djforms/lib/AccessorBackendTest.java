@@ -0,0 +1,228 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.widget.EditText;
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.binding.BindingPlan;
+import com.exallium.djforms.lib.fields.DateDialogField;
+import com.exallium.djforms.lib.fields.EditTextField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the DjFormTest cases through every AccessorBackend and checks they
+ * all leave models and views in exactly the same state.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class AccessorBackendTest {
+
+    private static final AccessorBackend[] BACKENDS = {
+            AccessorBackend.REFLECTION, AccessorBackend.GENERATED, AccessorBackend.SPECIALIZED
+    };
+
+    public static final class FieldModel {
+        public String name;
+        public Date date;
+        public String aThirdField;
+    }
+
+    public static final class PrimitiveModel {
+        public int count = 5;
+        public String label = "label";
+    }
+
+    public static final class PrimitiveBean {
+        private int count = 5;
+
+        public int getCount() { return count; }
+
+        public void setCount(int count) { this.count = count; }
+    }
+
+    public static final class BackendForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public DateDialogField date = new DateDialogField();
+        public EditTextField thirdField = new EditTextField("aThirdField");
+
+        private final AccessorBackend backend;
+
+        public BackendForm(Context context, AccessorBackend backend) {
+            super(context);
+            this.backend = backend;
+        }
+
+        @Override
+        protected AccessorBackend getAccessorBackend() {
+            return backend;
+        }
+    }
+
+    private BackendForm validForm(AccessorBackend backend) {
+        BackendForm form = new BackendForm(Robolectric.application, backend);
+        form.getFormViewGroup();
+        form.name.getFieldView(Robolectric.application).setText("Hello");
+        form.date.getFieldView(Robolectric.application).setText("May 25, 2015");
+        form.thirdField.getFieldView(Robolectric.application).setText("olleH");
+        return form;
+    }
+
+    @Test
+    public void testSaveFieldModel() {
+        FieldModel expected = new FieldModel();
+        validForm(AccessorBackend.REFLECTION).save(expected);
+        assertEquals("Hello", expected.name);
+        assertEquals("olleH", expected.aThirdField);
+
+        for (AccessorBackend backend : BACKENDS) {
+            FieldModel model = new FieldModel();
+            validForm(backend).save(model);
+            assertEquals(expected.name, model.name);
+            assertEquals(expected.date, model.date);
+            assertEquals(expected.aThirdField, model.aThirdField);
+        }
+    }
+
+    @Test
+    public void testSaveBeanModel() {
+        BeanModel expected = new BeanModel();
+        validForm(AccessorBackend.REFLECTION).save(expected);
+        assertEquals("Hello", expected.getName());
+        assertEquals("olleH", expected.getAThirdField());
+
+        for (AccessorBackend backend : BACKENDS) {
+            BeanModel model = new BeanModel();
+            validForm(backend).save(model);
+            assertEquals(expected.getName(), model.getName());
+            assertEquals(expected.getDate(), model.getDate());
+            assertEquals(expected.getAThirdField(), model.getAThirdField());
+        }
+    }
+
+    @Test
+    public void testFillViews() {
+        BeanModel bean = new BeanModel();
+        bean.setName("Hello");
+        bean.setDate(new Date(0));
+        bean.setAThirdField("olleH");
+
+        FieldModel fields = new FieldModel();
+        fields.name = "Hello";
+        fields.date = new Date(0);
+        fields.aThirdField = "olleH";
+
+        String[] expected = null;
+        for (AccessorBackend backend : BACKENDS) {
+            for (Object model : new Object[] { bean, fields }) {
+                BackendForm form = new BackendForm(Robolectric.application, backend);
+                form.getFormViewGroup();
+                form.fillViews(model);
+
+                String[] texts = {
+                        text(form.name.getFieldView(Robolectric.application)),
+                        text(form.date.getFieldView(Robolectric.application)),
+                        text(form.thirdField.getFieldView(Robolectric.application))
+                };
+                if (expected == null)
+                    expected = texts;
+                assertArrayEquals(expected, texts);
+            }
+        }
+        assertEquals("Hello", expected[0]);
+        assertEquals("olleH", expected[2]);
+    }
+
+    @Test
+    public void testGeneratedBackendUsesBinder() {
+        int before = BeanModel$$DJModelBinder.calls;
+        validForm(AccessorBackend.GENERATED).save(new BeanModel());
+        assertEquals(before + 3, BeanModel$$DJModelBinder.calls);
+
+        before = BeanModel$$DJModelBinder.calls;
+        validForm(AccessorBackend.REFLECTION).save(new BeanModel());
+        assertEquals(before, BeanModel$$DJModelBinder.calls);
+    }
+
+    @Test
+    public void testMissingPropertiesAreSkipped() {
+        for (AccessorBackend backend : BACKENDS) {
+            BindingPlan plan = BindingPlan.get(BackendForm.class, new String[] { "missing" }, Object.class, backend);
+            assertFalse(plan.getAccessor(0).canRead());
+            assertFalse(plan.getAccessor(0).canWrite());
+            assertNull(plan.getAccessor(0).get(new Object()));
+            plan.getAccessor(0).set(new Object(), "ignored");
+        }
+    }
+
+    @Test
+    public void testValuesPropertiesCantTakeAreSkipped() {
+        String[] names = { "count", "label" };
+        for (AccessorBackend backend : BACKENDS) {
+            PrimitiveModel model = new PrimitiveModel();
+            BindingPlan plan = BindingPlan.get(BackendForm.class, names, PrimitiveModel.class, backend);
+            plan.getAccessor(0).set(model, null);
+            plan.getAccessor(0).set(model, "text");
+            plan.getAccessor(0).set(model, 7L);
+            plan.getAccessor(1).set(model, 7);
+            assertEquals(5, model.count);
+            assertEquals("label", model.label);
+
+            plan.getAccessor(0).set(model, (short) 7);
+            plan.getAccessor(1).set(model, null);
+            assertEquals(7, model.count);
+            assertNull(model.label);
+
+            PrimitiveBean bean = new PrimitiveBean();
+            plan = BindingPlan.get(BackendForm.class, names, PrimitiveBean.class, backend);
+            plan.getAccessor(0).set(bean, null);
+            plan.getAccessor(0).set(bean, "text");
+            assertEquals(5, bean.getCount());
+        }
+    }
+
+    @Test
+    public void testPlansAreSharedPerBackend() {
+        String[] names = { "name", "date", "aThirdField" };
+        for (AccessorBackend backend : BACKENDS) {
+            assertSame(BindingPlan.get(BackendForm.class, names, FieldModel.class, backend),
+                    BindingPlan.get(BackendForm.class, names, FieldModel.class, backend));
+        }
+        assertNotSame(BindingPlan.get(BackendForm.class, names, FieldModel.class, AccessorBackend.REFLECTION),
+                BindingPlan.get(BackendForm.class, names, FieldModel.class, AccessorBackend.SPECIALIZED));
+    }
+
+    private static String text(EditText view) {
+        return view.getText().toString();
+    }
+}
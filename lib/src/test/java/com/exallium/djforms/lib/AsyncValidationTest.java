@@ -0,0 +1,238 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.widget.EditText;
+import com.exallium.djforms.lib.fields.EditTextField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class AsyncValidationTest {
+
+    public static final class AsyncForm extends DJForm {
+        public EditTextField first = new EditTextField();
+        public EditTextField second = new EditTextField();
+
+        public AsyncForm(Context context) {
+            super(context);
+        }
+    }
+
+    /**
+     * Holds on to submitted work until the test runs it
+     */
+    private static final class QueueExecutor implements Executor {
+        final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            List<Runnable> work = new ArrayList<>(queue);
+            queue.clear();
+            for (Runnable runnable : work)
+                runnable.run();
+        }
+    }
+
+    private static final class Recorder implements OnFormValidatedListener {
+        final List<ValidationResult> results = new ArrayList<>();
+        volatile Thread thread;
+
+        @Override
+        public void onFormValidated(ValidationResult result) {
+            results.add(result);
+            thread = Thread.currentThread();
+        }
+    }
+
+    @Test
+    public void testValidatesOffTheMainThread() throws Exception {
+        AsyncForm form = new AsyncForm(Robolectric.application);
+        form.getFormState().set("first", "Hello");
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread[] worker = new Thread[1];
+        form.setValidationExecutor(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        command.run();
+                        done.countDown();
+                    }
+                });
+                // Started by the test, so the result can't be posted while the
+                // scheduler is still running the launch
+                worker[0] = thread;
+            }
+        });
+
+        Recorder recorder = new Recorder();
+        Robolectric.pauseMainLooper();
+        try {
+            form.validateAsync(recorder);
+            Robolectric.getUiThreadScheduler().advanceBy(0);
+            assertNotNull(worker[0]);
+            worker[0].start();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(recorder.results.isEmpty());
+
+            Robolectric.getUiThreadScheduler().advanceBy(0);
+        } finally {
+            Robolectric.unPauseMainLooper();
+        }
+
+        assertEquals(1, recorder.results.size());
+        assertNotSame(worker[0], recorder.thread);
+        ValidationResult result = recorder.results.get(0);
+        assertFalse(result.isValid());
+        assertTrue(result.isFieldValid("first"));
+        assertFalse(result.isFieldValid(1));
+    }
+
+    @Test
+    public void testRequestsAreDebounced() {
+        AsyncForm form = new AsyncForm(Robolectric.application);
+        QueueExecutor executor = new QueueExecutor();
+        form.setValidationExecutor(executor);
+        form.setValidationDelay(300);
+
+        Recorder recorder = new Recorder();
+        form.validateAsync(recorder);
+        Robolectric.getUiThreadScheduler().advanceBy(200);
+        form.getFormState().set("first", "Hello");
+        Robolectric.getUiThreadScheduler().advanceBy(200);
+        assertTrue(executor.queue.isEmpty());
+
+        form.getFormState().set("second", "World");
+        Robolectric.getUiThreadScheduler().advanceBy(300);
+        assertEquals(1, executor.queue.size());
+
+        executor.runAll();
+        assertEquals(1, recorder.results.size());
+        assertTrue(recorder.results.get(0).isValid());
+    }
+
+    @Test
+    public void testQuietViewsAreReadBeforeLaunching() {
+        FieldValidityTest.QuietForm form = new FieldValidityTest.QuietForm(Robolectric.application);
+        form.getFormViewGroup();
+        QueueExecutor executor = new QueueExecutor();
+        form.setValidationExecutor(executor);
+        form.setValidationDelay(300);
+        EditText view = form.quiet.getFieldView(Robolectric.application);
+
+        view.setText("Hello");
+        Recorder recorder = new Recorder();
+        form.validateAsync(recorder);
+        // Emptied while the request waits out the delay, without telling the form
+        view.setText("");
+        Robolectric.getUiThreadScheduler().advanceBy(300);
+        Robolectric.getUiThreadScheduler().advanceBy(300);
+        executor.runAll();
+
+        assertEquals(1, recorder.results.size());
+        assertFalse(recorder.results.get(0).isValid());
+        assertEquals(form.isFormValid(), recorder.results.get(0).isValid());
+    }
+
+    @Test
+    public void testLegacyValidatorsAreCalledBeforeLaunching() throws Exception {
+        FieldValidityTest.LegacyForm form = new FieldValidityTest.LegacyForm(Robolectric.application);
+        form.getFormViewGroup();
+        QueueExecutor executor = new QueueExecutor();
+        form.setValidationExecutor(executor);
+        form.legacy.getFieldView(Robolectric.application).setText("bad");
+
+        Recorder recorder = new Recorder();
+        form.validateAsync(recorder);
+        assertEquals(1, executor.queue.size());
+        // Off the main thread, where the view can't be asked
+        Thread worker = new Thread(executor.queue.remove(0));
+        worker.start();
+        worker.join(5000);
+        Robolectric.getUiThreadScheduler().advanceBy(0);
+
+        assertEquals(1, recorder.results.size());
+        assertFalse(recorder.results.get(0).isValid());
+    }
+
+    @Test
+    public void testChangeDuringValidationStartsOver() {
+        AsyncForm form = new AsyncForm(Robolectric.application);
+        QueueExecutor executor = new QueueExecutor();
+        form.setValidationExecutor(executor);
+
+        Recorder recorder = new Recorder();
+        form.validateAsync(recorder);
+        assertEquals(1, executor.queue.size());
+        Runnable stale = executor.queue.remove(0);
+
+        form.getFormState().set("first", "Hello");
+        form.getFormState().set("second", "World");
+        stale.run();
+        assertTrue(recorder.results.isEmpty());
+
+        executor.runAll();
+        assertEquals(1, recorder.results.size());
+        assertTrue(recorder.results.get(0).isValid());
+    }
+
+    @Test
+    public void testCancel() {
+        AsyncForm form = new AsyncForm(Robolectric.application);
+        QueueExecutor executor = new QueueExecutor();
+        form.setValidationExecutor(executor);
+
+        Recorder recorder = new Recorder();
+        form.validateAsync(recorder);
+        form.cancelValidation();
+        executor.runAll();
+
+        // Nothing is pending any more, so changes don't start new runs either
+        form.getFormState().set("first", "Hello");
+        executor.runAll();
+        assertTrue(recorder.results.isEmpty());
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import com.exallium.djforms.lib.fields.DateDialogField;
+import com.exallium.djforms.lib.fields.EditTextField;
+import com.exallium.djforms.lib.fields.IntField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class BatchSaveTest {
+
+    public static final class Order {
+        public String name;
+        public int quantity;
+        public Date date;
+    }
+
+    public static final class PickyOrder {
+        private String name;
+        public int quantity;
+        public Date date;
+
+        public String getName() { return name; }
+
+        public void setName(String name) {
+            if (name.isEmpty())
+                throw new IllegalArgumentException("No name");
+            this.name = name;
+        }
+    }
+
+    public static final class OrderForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public IntField quantity = new IntField();
+        public DateDialogField date = new DateDialogField();
+
+        public OrderForm(Context context) {
+            super(context);
+        }
+    }
+
+    /**
+     * Has no adapter for one particular order
+     */
+    public static final class FussyOrderForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public IntField quantity = new IntField();
+        public DateDialogField date = new DateDialogField();
+
+        volatile Object unadaptable;
+
+        public FussyOrderForm(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected ModelAdapter getModelAdapter(Object model) {
+            if (model == unadaptable)
+                throw new IllegalStateException("No adapter");
+            return super.getModelAdapter(model);
+        }
+    }
+
+    private static List<Order> orders(int count) {
+        final List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            orders.add(new Order());
+        return orders;
+    }
+
+    @Test
+    public void testSaveTemplateIntoLargeBatch() {
+        final OrderForm form = new OrderForm(Robolectric.application);
+        final FormState template = form.newFormState();
+        template.set("name", "Widget");
+        template.set("quantity", "12");
+        template.set("date", "May 25, 2015");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Order> orders = orders(10000);
+            final BatchResult result = form.saveAll(Collections.singletonList(template), orders, executor);
+
+            assertTrue(result.isSuccessful());
+            assertEquals(10000, result.getCount());
+            for (Order order : orders) {
+                assertEquals("Widget", order.name);
+                assertEquals(12, order.quantity);
+            }
+            assertNotSame(orders.get(0).date, orders.get(9999).date);
+            assertEquals(orders.get(0).date, orders.get(9999).date);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaveStatePerModel() {
+        final OrderForm form = new OrderForm(Robolectric.application);
+        final List<FormState> states = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final FormState state = form.newFormState();
+            state.set("name", "Order " + i);
+            state.set("quantity", Integer.toString(i));
+            states.add(state);
+        }
+
+        final List<Order> orders = orders(3);
+        assertTrue(form.saveAll(states, orders).isSuccessful());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Order " + i, orders.get(i).name);
+            assertEquals(i, orders.get(i).quantity);
+        }
+
+        // The form's own state is left alone
+        assertNull(form.getFormState().get("name"));
+    }
+
+    @Test
+    public void testFailuresAreReportedByIndex() {
+        final OrderForm form = new OrderForm(Robolectric.application);
+        final List<FormState> states = new ArrayList<>();
+        for (String name : Arrays.asList("a", "", "c", "")) {
+            final FormState state = form.newFormState();
+            state.set("name", name);
+            state.set("quantity", "1");
+            states.add(state);
+        }
+
+        final List<PickyOrder> orders = new ArrayList<>();
+        for (int i = 0; i < states.size(); i++)
+            orders.add(new PickyOrder());
+
+        final BatchResult result = form.saveAll(states, orders);
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertEquals(3, result.getFailures().get(1).getIndex());
+        assertEquals("name", result.getFailures().get(0).getProperty());
+        assertSame(orders.get(1), result.getFailures().get(0).getModel());
+        assertEquals("c", orders.get(2).getName());
+    }
+
+    private static FormState template(DJForm form) {
+        final FormState template = form.newFormState();
+        template.set("name", "Widget");
+        template.set("quantity", "12");
+        return template;
+    }
+
+    private static BatchResult saveInSlices(DJForm form, List<Order> orders, Executor executor) {
+        final FormDefinition definition = form.getFormDefinition();
+        return new BatchSaver(form, definition, definition.fieldsOf(form))
+                .save(Collections.singletonList(template(form)), orders, executor, 4);
+    }
+
+    private static void assertAllSaved(List<Order> orders) {
+        for (Order order : orders) {
+            assertEquals("Widget", order.name);
+            assertEquals(12, order.quantity);
+        }
+    }
+
+    @Test
+    public void testSaveFromTheExecutorsOwnThread() throws Exception {
+        final OrderForm form = new OrderForm(Robolectric.application);
+        final List<Order> orders = orders(1000);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Every slice handed to the executor queues behind this task
+            final Future<BatchResult> result = executor.submit(new Callable<BatchResult>() {
+                @Override
+                public BatchResult call() {
+                    return saveInSlices(form, orders, executor);
+                }
+            });
+            assertTrue(result.get(5, TimeUnit.SECONDS).isSuccessful());
+            assertAllSaved(orders);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSlicesTheExecutorRejectsAreSavedByTheCaller() {
+        final OrderForm form = new OrderForm(Robolectric.application);
+        final List<Order> orders = orders(1000);
+        final BatchResult result = saveInSlices(form, orders, new Executor() {
+            private boolean accepted = false;
+
+            @Override
+            public void execute(Runnable command) {
+                if (accepted)
+                    throw new RejectedExecutionException();
+                accepted = true;
+                new Thread(command).start();
+            }
+        });
+        assertTrue(result.isSuccessful());
+        assertEquals(1000, result.getCount());
+        assertAllSaved(orders);
+    }
+
+    private static final Executor THREADS = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            new Thread(command).start();
+        }
+    };
+
+    @Test
+    public void testRecordsWhichCantBeBoundAreReported() {
+        final FussyOrderForm form = new FussyOrderForm(Robolectric.application);
+        final List<Order> orders = orders(1000);
+        orders.set(10, null);
+        form.unadaptable = orders.get(600);
+
+        final BatchResult result = saveInSlices(form, orders, THREADS);
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(10, result.getFailures().get(0).getIndex());
+        assertNull(result.getFailures().get(0).getModel());
+        assertNull(result.getFailures().get(0).getProperty());
+        assertEquals(600, result.getFailures().get(1).getIndex());
+        assertTrue(result.getFailures().get(1).getCause() instanceof IllegalStateException);
+
+        // The rest of their slices were still saved
+        orders.remove(600);
+        orders.remove(10);
+        assertAllSaved(orders);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedSizes() {
+        final OrderForm form = new OrderForm(Robolectric.application);
+        form.saveAll(Arrays.asList(form.newFormState(), form.newFormState()), orders(3));
+    }
+}
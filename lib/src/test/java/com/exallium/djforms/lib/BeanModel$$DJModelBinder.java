@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import com.exallium.djforms.lib.binding.ModelBinder;
+
+/**
+ * Stands in for the binder djforms-compiler would generate for BeanModel, so
+ * the GENERATED backend can be tested without running the processor.
+ */
+public final class BeanModel$$DJModelBinder extends ModelBinder {
+
+    static int calls = 0;
+
+    @Override
+    public int indexOf(String name) {
+        switch (name) {
+            case "name": case "Name": return 0;
+            case "date": case "Date": return 1;
+            case "aThirdField": case "AThirdField": return 2;
+            default: return -1;
+        }
+    }
+
+    @Override
+    public boolean canRead(int index) {
+        return index >= 0 && index <= 2;
+    }
+
+    @Override
+    public boolean canWrite(int index) {
+        return index >= 0 && index <= 2;
+    }
+
+    @Override
+    public Object get(Object model, int index) {
+        calls++;
+        final BeanModel m = (BeanModel) model;
+        switch (index) {
+            case 0: return m.getName();
+            case 1: return m.getDate();
+            case 2: return m.getAThirdField();
+            default: return null;
+        }
+    }
+
+    @Override
+    public void set(Object model, int index, Object value) {
+        calls++;
+        final BeanModel m = (BeanModel) model;
+        switch (index) {
+            case 0:
+                if (value instanceof String)
+                    m.setName((String) value);
+                return;
+            case 1:
+                if (value instanceof java.util.Date)
+                    m.setDate((java.util.Date) value);
+                return;
+            case 2:
+                if (value instanceof String)
+                    m.setAThirdField((String) value);
+                return;
+        }
+    }
+}
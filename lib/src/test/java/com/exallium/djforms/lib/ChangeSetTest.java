@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import com.exallium.djforms.lib.fields.EditTextField;
+import com.exallium.djforms.lib.fields.IntField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class ChangeSetTest {
+
+    public static final class Contact {
+        public String name;
+        public String email;
+        public int age;
+    }
+
+    public static final class ContactForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public EditTextField email = new EditTextField();
+        public IntField age = new IntField();
+
+        int saves = 0;
+
+        public ContactForm(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void postSave(Object model) {
+            saves++;
+        }
+    }
+
+    private static Contact contact() {
+        Contact contact = new Contact();
+        contact.name = "Alex";
+        contact.email = "alex@example.com";
+        contact.age = 30;
+        return contact;
+    }
+
+    @Test
+    public void testNothingChanged() {
+        ContactForm form = new ContactForm(Robolectric.application);
+        Contact contact = contact();
+        form.fillViews(contact);
+
+        assertFalse(form.hasChanges());
+        ChangeSet changes = form.saveChanges(contact);
+        assertTrue(changes.isEmpty());
+        assertEquals(0, form.saves);
+    }
+
+    @Test
+    public void testOnlyChangedFieldsAreWritten() {
+        ContactForm form = new ContactForm(Robolectric.application);
+        form.fillViews(contact());
+        form.getFormState().set("age", "31");
+        assertTrue(form.hasChanges());
+
+        // Saving into a different object shows which properties were written
+        Contact target = new Contact();
+        ChangeSet changes = form.saveChanges(target);
+
+        assertEquals(Arrays.asList("age"), changes.getPropertyNames());
+        assertEquals(30, changes.getOldValue(0));
+        assertEquals(31, changes.getNewValue(0));
+        assertEquals(31, target.age);
+        assertNull(target.name);
+        assertEquals(1, form.saves);
+    }
+
+    @Test
+    public void testChangesFromViews() {
+        ContactForm form = new ContactForm(Robolectric.application);
+        form.getFormViewGroup();
+        Contact contact = contact();
+        form.fillViews(contact);
+        form.email.getFieldView(Robolectric.application).setText("hart@example.com");
+
+        ChangeSet changes = form.saveChanges(contact);
+        assertEquals(1, changes.size());
+        assertEquals(0, changes.indexOf("email"));
+        assertEquals("alex@example.com", changes.getOldValue(0));
+        assertEquals("hart@example.com", contact.email);
+    }
+
+    @Test
+    public void testSavedChangesBecomeTheBaseline() {
+        ContactForm form = new ContactForm(Robolectric.application);
+        Contact contact = contact();
+        form.fillViews(contact);
+        form.getFormState().set("name", "Sam");
+
+        assertEquals(1, form.saveChanges(contact).size());
+        assertFalse(form.hasChanges());
+        assertTrue(form.saveChanges(contact).isEmpty());
+
+        // Changing a field back to what it was saved with is no change
+        form.getFormState().set("name", "Pat");
+        form.getFormState().set("name", "Sam");
+        assertFalse(form.getFormState().isChanged("name"));
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import com.exallium.djforms.lib.fields.EditTextField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class ChangeStreamTest {
+
+    public static final class ChangeForm extends DJForm {
+        public EditTextField first = new EditTextField();
+        public EditTextField second = new EditTextField();
+        public EditTextField third = new EditTextField();
+
+        public ChangeForm(Context context) {
+            super(context);
+        }
+    }
+
+    /**
+     * Holds on to submitted work until the test runs it
+     */
+    private static final class QueueExecutor implements Executor {
+        final List<Runnable> queue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        void runAll() {
+            List<Runnable> work = new ArrayList<>(queue);
+            queue.clear();
+            for (Runnable runnable : work)
+                runnable.run();
+        }
+    }
+
+    private static final class Recorder implements OnFormChangedListener {
+        final List<FormChange> changes = new ArrayList<>();
+
+        @Override
+        public void onFormChanged(FormChange change) {
+            changes.add(change);
+        }
+    }
+
+    @Test
+    public void testEditsAreDebouncedIntoOneChange() {
+        ChangeForm form = new ChangeForm(Robolectric.application);
+        Recorder recorder = new Recorder();
+        form.observeChanges(recorder).setDebounce(300);
+
+        form.getFormState().set("first", "H");
+        Robolectric.getUiThreadScheduler().advanceBy(200);
+        form.getFormState().set("first", "He");
+        Robolectric.getUiThreadScheduler().advanceBy(200);
+        form.getFormState().set("second", "World");
+        Robolectric.getUiThreadScheduler().advanceBy(200);
+        assertTrue(recorder.changes.isEmpty());
+
+        Robolectric.getUiThreadScheduler().advanceBy(100);
+        assertEquals(1, recorder.changes.size());
+        FormChange change = recorder.changes.get(0);
+        assertSame(form, change.getForm());
+        assertEquals(Arrays.asList("first", "second"), change.getChangedNames());
+        assertTrue(change.isChanged(0));
+        assertFalse(change.isChanged("third"));
+        assertEquals(2, change.size());
+
+        Robolectric.getUiThreadScheduler().advanceBy(1000);
+        assertEquals(1, recorder.changes.size());
+    }
+
+    @Test
+    public void testFillViewsIsOneChange() {
+        ChangeForm form = new ChangeForm(Robolectric.application);
+        Recorder recorder = new Recorder();
+        Robolectric.pauseMainLooper();
+        try {
+            form.observeChanges(recorder);
+            form.getFormState().set("first", "Hello");
+            form.getFormState().set("third", "World");
+            Robolectric.getUiThreadScheduler().advanceBy(0);
+        } finally {
+            Robolectric.unPauseMainLooper();
+        }
+
+        assertEquals(1, recorder.changes.size());
+        assertEquals(Arrays.asList("first", "third"), recorder.changes.get(0).getChangedNames());
+    }
+
+    @Test
+    public void testFieldFilter() {
+        ChangeForm form = new ChangeForm(Robolectric.application);
+        Recorder recorder = new Recorder();
+        form.observeChanges(recorder).setFields("second");
+
+        form.getFormState().set("first", "Hello");
+        assertTrue(recorder.changes.isEmpty());
+
+        form.getFormState().set("second", "World");
+        assertEquals(1, recorder.changes.size());
+        assertEquals(Arrays.asList("second"), recorder.changes.get(0).getChangedNames());
+
+        try {
+            form.observeChanges(recorder).setFields("fourth");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // No such field
+        }
+    }
+
+    @Test
+    public void testSlowListenerGetsMergedChanges() {
+        ChangeForm form = new ChangeForm(Robolectric.application);
+        QueueExecutor executor = new QueueExecutor();
+        Recorder recorder = new Recorder();
+        form.observeChanges(recorder).setExecutor(executor);
+
+        form.getFormState().set("first", "Hello");
+        assertEquals(1, executor.queue.size());
+
+        // The listener is still busy, so these wait for it
+        form.getFormState().set("second", "World");
+        form.getFormState().set("third", "!");
+        form.getFormState().set("second", "Word");
+        assertEquals(1, executor.queue.size());
+
+        executor.runAll();
+        assertEquals(1, recorder.changes.size());
+        assertEquals(Arrays.asList("first", "second", "third"), recorder.changes.get(0).getChangedNames());
+        assertTrue(executor.queue.isEmpty());
+    }
+
+    @Test
+    public void testRejectedDeliveriesRunHere() {
+        ChangeForm form = new ChangeForm(Robolectric.application);
+        Recorder recorder = new Recorder();
+        form.observeChanges(recorder).setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+
+        form.getFormState().set("first", "Hello");
+        assertEquals(1, recorder.changes.size());
+
+        // Still delivering after the rejection
+        form.getFormState().set("second", "World");
+        assertEquals(2, recorder.changes.size());
+        assertEquals(Arrays.asList("second"), recorder.changes.get(1).getChangedNames());
+    }
+
+    @Test
+    public void testChangesDuringDeliveryFollowIt() {
+        final ChangeForm form = new ChangeForm(Robolectric.application);
+        final List<FormChange> changes = new ArrayList<>();
+        form.observeChanges(new OnFormChangedListener() {
+            @Override
+            public void onFormChanged(FormChange change) {
+                changes.add(change);
+                if (changes.size() == 1) {
+                    form.getFormState().set("second", "World");
+                    form.getFormState().set("third", "!");
+                    // Not delivered again while we're busy
+                    assertEquals(1, changes.size());
+                }
+            }
+        });
+
+        form.getFormState().set("first", "Hello");
+        assertEquals(2, changes.size());
+        assertEquals(Arrays.asList("first"), changes.get(0).getChangedNames());
+        assertEquals(Arrays.asList("second", "third"), changes.get(1).getChangedNames());
+    }
+
+    @Test
+    public void testCancel() {
+        ChangeForm form = new ChangeForm(Robolectric.application);
+        Recorder recorder = new Recorder();
+        Recorder other = new Recorder();
+        ChangeSubscription subscription = form.observeChanges(recorder).setDebounce(300);
+        form.observeChanges(other);
+
+        form.getFormState().set("first", "Hello");
+        subscription.cancel();
+        Robolectric.getUiThreadScheduler().advanceBy(1000);
+        form.getFormState().set("second", "World");
+        Robolectric.getUiThreadScheduler().advanceBy(1000);
+
+        assertTrue(recorder.changes.isEmpty());
+        assertEquals(2, other.changes.size());
+    }
+}
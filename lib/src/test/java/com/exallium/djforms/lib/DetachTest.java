@@ -0,0 +1,180 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.ListView;
+import com.exallium.djforms.lib.fields.EditTextField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class DetachTest {
+
+    public static final class AddressForm extends DJForm {
+        public EditTextField street = new EditTextField();
+        public EditTextField city = new EditTextField();
+
+        public AddressForm(Context context) {
+            super(context);
+        }
+    }
+
+    public static final class ProfileForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public EditTextField email = new EditTextField();
+        public SubFormField<AddressForm> address;
+
+        public ProfileForm(Context context) {
+            super(context);
+            address = new SubFormField<>(new AddressForm(context));
+        }
+    }
+
+    /**
+     * Stands in for an Activity, which a retained form must not keep alive
+     */
+    private static final class ActivityContext extends ContextWrapper {
+        ActivityContext() {
+            super(Robolectric.application);
+        }
+    }
+
+    /**
+     * What a form built in a Context holds on to, watched weakly
+     */
+    private static final class Watched {
+        WeakReference<Context> context;
+        final List<WeakReference<View>> views = new ArrayList<>();
+    }
+
+    /**
+     * Builds the form's views in a throwaway Context, types into them and
+     * detaches, leaving nothing on the stack which points at the views
+     */
+    private static Watched showAndDetach(ProfileForm form, boolean asList) {
+        Context context = new ActivityContext();
+        Watched watched = new Watched();
+        watched.context = new WeakReference<>(context);
+
+        ViewGroup viewGroup = form.attach(context);
+        if (asList) {
+            assertTrue(viewGroup instanceof ListView);
+            form.getFormListView();
+        }
+        watched.views.add(new WeakReference<View>(viewGroup));
+        for (DJField<?> field : new DJField<?>[] {form.name, form.email, form.address}) {
+            View view = field.getFieldView(context);
+            if (view != null)
+                watched.views.add(new WeakReference<>(view));
+        }
+        watched.views.add(new WeakReference<View>(form.address.getForm().city.getFieldView(context)));
+
+        form.name.getFieldView(context).setText("Alex");
+        form.address.getForm().city.getFieldView(context).setText("Halifax");
+        form.detach();
+        return watched;
+    }
+
+    @Test
+    public void testDetachKeepsState() {
+        ProfileForm form = new ProfileForm(Robolectric.application);
+        form.getFormViewGroup();
+        form.email.getFieldView(Robolectric.application).setText("alex@example.com");
+
+        form.detach();
+        assertNull(((DJField) form.email).peekView());
+        assertEquals("alex@example.com", form.getFormState().get("email"));
+        try {
+            form.getFormViewGroup();
+            fail();
+        } catch (IllegalStateException expected) {
+            // Detached forms have no Context until attached
+        }
+
+        ViewGroup viewGroup = form.attach(Robolectric.application);
+        assertEquals(3, viewGroup.getChildCount());
+        EditText email = form.email.getFieldView(Robolectric.application);
+        assertEquals("alex@example.com", email.getText().toString());
+        assertSame(viewGroup, form.attach(Robolectric.application));
+    }
+
+    @Test
+    public void testDetachedFormKeepsNoViewsOrContext() {
+        ProfileForm form = new ProfileForm(Robolectric.application);
+        Watched watched = showAndDetach(form, false);
+
+        LeakAssert.assertCollected("views", watched.views);
+        LeakAssert.assertCollected("contexts", watched.context);
+
+        // The form itself lives on with what was typed, nested forms included
+        assertEquals("Alex", form.getFormState().get("name"));
+        form.attach(Robolectric.application);
+        assertEquals("Halifax", form.address.getForm().city.getFieldView(Robolectric.application)
+                .getText().toString());
+    }
+
+    @Test
+    public void testDetachedListFormKeepsNoViewsOrContext() {
+        ProfileForm form = new ProfileForm(Robolectric.application);
+        form.getFormListView();
+        form.detach();
+        Watched watched = showAndDetach(form, true);
+
+        LeakAssert.assertCollected("views", watched.views);
+        LeakAssert.assertCollected("contexts", watched.context);
+
+        // Reattaching builds the same kind of view as before
+        assertTrue(form.attach(Robolectric.application) instanceof ListView);
+    }
+
+    @Test
+    public void testAttachToNewContextRebuilds() {
+        ProfileForm form = new ProfileForm(Robolectric.application);
+        ViewGroup first = form.getFormViewGroup();
+        View firstName = form.name.getFieldView(Robolectric.application);
+
+        Context other = new ActivityContext();
+        ViewGroup second = form.attach(other);
+        assertNotSame(first, second);
+        assertEquals(0, first.getChildCount());
+        assertNotSame(firstName, form.name.getFieldView(other));
+        assertSame(other, form.name.getFieldView(other).getContext());
+    }
+}
@@ -88,10 +88,15 @@ public class DjFormTest {
         assertEquals(viewGroup, form.getFormViewGroup());
     }
 
-    @Test(expected=IllegalStateException.class)
+    @Test
     public void testIsFormValidBeforeGetFormView() {
         ExampleForm form = new ExampleForm(Robolectric.application);
-        form.isFormValid();
+        assertFalse(form.isFormValid());
+
+        form.getFormState().set("name", "Hello");
+        form.getFormState().set("date", "May 25, 2015");
+        form.getFormState().set("aThirdField", "olleH");
+        assertTrue(form.isFormValid());
     }
 
     @Test
@@ -0,0 +1,198 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.widget.EditText;
+import com.exallium.djforms.lib.fields.EditTextField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class FieldValidityTest {
+
+    public static final class CountingField extends EditTextField {
+        int validations = 0;
+
+        @Override
+        protected boolean isStateValid(Object state) {
+            validations++;
+            return super.isStateValid(state);
+        }
+    }
+
+    /**
+     * A custom field which never calls notifyStateChanged
+     */
+    public static final class QuietField extends DJField<EditText> {
+
+        public QuietField() {
+            super(EditText.class);
+        }
+
+        @Override
+        protected void onViewCreated(EditText view) {}
+
+        @Override
+        protected boolean isStateValid(Object state) {
+            return state != null && ((String) state).length() != 0;
+        }
+
+        @Override
+        public Object getValue(EditText view) {
+            return view.getText().toString();
+        }
+
+        @Override
+        public void setValue(EditText view, Object data) {
+            view.setText(data.toString());
+        }
+    }
+
+    /**
+     * A field written before isStateValid, which validates its view
+     */
+    public static final class LegacyField extends EditTextField {
+        @Override
+        @SuppressWarnings("deprecation")
+        public boolean isValid(EditText view) {
+            return !view.getText().toString().equals("bad");
+        }
+    }
+
+    public static final class LegacyForm extends DJForm {
+        public LegacyField legacy = new LegacyField();
+
+        public LegacyForm(Context context) {
+            super(context);
+        }
+    }
+
+    public static final class CountingForm extends DJForm {
+        public CountingField first = new CountingField();
+        public CountingField second = new CountingField();
+        public CountingField third = new CountingField();
+
+        public CountingForm(Context context) {
+            super(context);
+        }
+
+        int validations() {
+            return first.validations + second.validations + third.validations;
+        }
+    }
+
+    public static final class QuietForm extends DJForm {
+        public QuietField quiet = new QuietField();
+
+        public QuietForm(Context context) {
+            super(context);
+        }
+    }
+
+    @Test
+    public void testOnlyChangedFieldsAreValidated() {
+        CountingForm form = new CountingForm(Robolectric.application);
+        assertFalse(form.isFormValid());
+        assertEquals(3, form.validations());
+
+        assertFalse(form.isFormValid());
+        assertEquals(3, form.validations());
+
+        form.getFormState().set("second", "Hello");
+        assertFalse(form.isFormValid());
+        assertEquals(4, form.validations());
+        assertEquals(2, form.second.validations);
+    }
+
+    @Test
+    public void testFieldValidity() {
+        CountingForm form = new CountingForm(Robolectric.application);
+        form.getFormState().set("first", "Hello");
+        form.getFormState().set("third", "World");
+
+        BitSet validity = form.getFieldValidity();
+        assertTrue(validity.get(0));
+        assertFalse(validity.get(1));
+        assertTrue(validity.get(2));
+        assertEquals(3, form.validations());
+
+        // Answered from the cache
+        form.getFieldValidity();
+        assertEquals(3, form.validations());
+
+        // The copy handed out isn't ours
+        validity.set(1);
+        assertFalse(form.getFieldValidity().get(1));
+    }
+
+    @Test
+    public void testTypingMarksFieldChanged() {
+        CountingForm form = new CountingForm(Robolectric.application);
+        form.getFormViewGroup();
+        form.getFormState().set("first", "Hello");
+        form.getFormState().set("second", "Hello");
+        assertFalse(form.isFormValid());
+        int validations = form.validations();
+
+        form.third.getFieldView(Robolectric.application).setText("World");
+        assertTrue(form.isFormValid());
+        assertEquals(validations + 1, form.validations());
+    }
+
+    @Test
+    public void testQuietFieldsAreCaughtUp() {
+        QuietForm form = new QuietForm(Robolectric.application);
+        form.getFormViewGroup();
+        assertFalse(form.isFormValid());
+
+        form.quiet.getFieldView(Robolectric.application).setText("Hello");
+        assertTrue(form.isFormValid());
+        assertEquals("Hello", form.getFormState().get("quiet"));
+    }
+
+    @Test
+    public void testLegacyValidatorsAreCalledWhileFieldsHaveViews() {
+        LegacyForm form = new LegacyForm(Robolectric.application);
+        form.getFormViewGroup();
+        EditText view = form.legacy.getFieldView(Robolectric.application);
+
+        view.setText("bad");
+        assertFalse(form.isFormValid());
+        assertFalse(form.getFieldValidity().get(0));
+
+        view.setText("good");
+        assertTrue(form.isFormValid());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.ContextWrapper;
+import android.content.Context;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import com.exallium.djforms.lib.fields.DateDialogField;
+import com.exallium.djforms.lib.fields.EditTextField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class FieldViewPoolTest {
+
+    public static final class PoolForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public DateDialogField date = new DateDialogField();
+
+        public PoolForm(Context context) {
+            super(context);
+        }
+    }
+
+    private static PoolForm newForm(FieldViewPool pool) {
+        PoolForm form = new PoolForm(Robolectric.application);
+        form.setViewPool(pool);
+        return form;
+    }
+
+    @Test
+    public void testThemedContextIsShared() {
+        PoolForm first = newForm(null);
+        PoolForm second = newForm(null);
+        first.getFormViewGroup();
+        second.getFormViewGroup();
+
+        assertNotSame(first.date.getFieldView(Robolectric.application),
+                second.date.getFieldView(Robolectric.application));
+        assertSame(first.date.getFieldView(Robolectric.application).getContext(),
+                second.date.getFieldView(Robolectric.application).getContext());
+    }
+
+    @Test
+    public void testReleasedViewsAreReused() {
+        FieldViewPool pool = new FieldViewPool();
+        PoolForm first = newForm(pool);
+        first.getFormViewGroup();
+        EditText name = first.name.getFieldView(Robolectric.application);
+        EditText date = first.date.getFieldView(Robolectric.application);
+        name.setText("Hello");
+        date.setText("May 25, 2015");
+
+        first.release();
+        assertEquals(2, pool.size());
+        assertNull(name.getParent());
+
+        PoolForm second = newForm(pool);
+        ViewGroup viewGroup = second.getFormViewGroup();
+        assertEquals(0, pool.size());
+        assertSame(name, viewGroup.getChildAt(0));
+        assertSame(date, viewGroup.getChildAt(1));
+        assertSame(name, second.name.getFieldView(Robolectric.application));
+
+        // State was reset on the way through the pool
+        assertEquals(0, name.length());
+        assertEquals(0, date.length());
+        assertFalse(second.isFormValid());
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        FieldViewPool pool = new FieldViewPool(1);
+        PoolForm first = newForm(pool);
+        PoolForm second = newForm(pool);
+        first.getFormViewGroup();
+        second.getFormViewGroup();
+
+        first.release();
+        second.release();
+        assertEquals(2, pool.size());
+
+        pool.clear();
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void testViewsAreOnlyReusedForTheirContext() {
+        FieldViewPool pool = new FieldViewPool();
+        PoolForm first = newForm(pool);
+        first.getFormViewGroup();
+        EditText name = first.name.getFieldView(Robolectric.application);
+        first.release();
+
+        PoolForm other = new PoolForm(new ContextWrapper(Robolectric.application));
+        other.setViewPool(pool);
+        other.getFormViewGroup();
+        assertNotSame(name, other.name.getFieldView(Robolectric.application));
+    }
+
+    @Test
+    public void testReleaseWithoutPool() {
+        PoolForm form = newForm(null);
+        ViewGroup first = form.getFormViewGroup();
+        EditText name = form.name.getFieldView(Robolectric.application);
+
+        form.release();
+        assertEquals(0, first.getChildCount());
+
+        ViewGroup second = form.getFormViewGroup();
+        assertNotSame(first, second);
+        assertNotSame(name, form.name.getFieldView(Robolectric.application));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.widget.EditText;
+import com.exallium.djforms.lib.codec.DateCodec;
+import com.exallium.djforms.lib.fields.DateDialogField;
+import com.exallium.djforms.lib.fields.EditTextField;
+import com.exallium.djforms.lib.fields.IntField;
+import com.exallium.djforms.lib.spec.Fallback;
+import com.exallium.djforms.lib.spec.FieldSpec;
+import com.exallium.djforms.lib.spec.FormSpec;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class FormDefinitionTest {
+
+    public static final class DefinitionForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public DateDialogField date = new DateDialogField();
+        public EditTextField thirdField = new EditTextField("aThirdField");
+
+        public DefinitionForm(Context context) {
+            super(context);
+        }
+    }
+
+    public static final class OptionalNoteField extends EditTextField {
+        @Override
+        protected FieldSpec<?> describe(String name) {
+            return super.describe(name).optional();
+        }
+    }
+
+    /**
+     * Names its field at runtime
+     */
+    public static final class RenamedForm extends DJForm {
+        public EditTextField note;
+
+        public RenamedForm(Context context, String name) {
+            super(context);
+            note = new EditTextField(name);
+        }
+    }
+
+    public static final class NoteForm extends DJForm {
+        public IntField quantity = new IntField();
+        public OptionalNoteField note = new OptionalNoteField();
+
+        public NoteForm(Context context) {
+            super(context);
+        }
+    }
+
+    @Test
+    public void testDefinitionIsSharedByClass() {
+        DefinitionForm first = new DefinitionForm(Robolectric.application);
+        DefinitionForm second = new DefinitionForm(Robolectric.application);
+        assertSame(first.getFormDefinition(), second.getFormDefinition());
+    }
+
+    @Test
+    public void testNamesAndOrder() {
+        FormDefinition definition = new DefinitionForm(Robolectric.application).getFormDefinition();
+
+        assertEquals(3, definition.size());
+        assertEquals("name", definition.getName(0));
+        assertEquals("date", definition.getName(1));
+        assertEquals("aThirdField", definition.getName(2));
+        assertEquals("thirdField", definition.getMemberName(2));
+        assertEquals(2, definition.indexOf("aThirdField"));
+        assertEquals(-1, definition.indexOf("thirdField"));
+    }
+
+    @Test
+    public void testStyleAndLayoutMetadata() {
+        FormDefinition definition = new DefinitionForm(Robolectric.application).getFormDefinition();
+
+        assertEquals(DJField.NO_STYLE, definition.getStyleId(0));
+        assertEquals(R.style.Form_DatePickerField, definition.getStyleId(1));
+        assertEquals(DJField.NO_LAYOUT, definition.getLayoutId(1));
+        assertEquals(EditText.class, definition.getViewClass(1));
+    }
+
+    @Test
+    public void testLaterInstancesAreNamed() {
+        new DefinitionForm(Robolectric.application).getFormDefinition();
+
+        DefinitionForm form = new DefinitionForm(Robolectric.application);
+        form.getFormViewGroup();
+        assertEquals("name", form.name.getName());
+        assertEquals("date", form.date.getName());
+        assertEquals("aThirdField", form.thirdField.getName());
+    }
+
+    @Test
+    public void testFormSpecMatchesSharedSpec() {
+        FormSpec shared = FormSpec.of(
+                FieldSpec.text("name"),
+                FieldSpec.of("date", DateCodec.of(DateDialogField.DEFAULT_PATTERN, Locale.CANADA))
+                        .orElse(Fallback.NOW),
+                FieldSpec.text("aThirdField"));
+        assertEquals(shared, new DefinitionForm(Robolectric.application).getFormSpec());
+    }
+
+    @Test
+    public void testValidationFollowsSpec() {
+        NoteForm form = new NoteForm(Robolectric.application);
+        assertFalse(form.getFormSpec().getField(1).isRequired());
+
+        form.getFormState().set("quantity", "3");
+        assertTrue(form.isFormValid());
+        assertTrue(form.getFormSpec().isValid(new String[]{"3", null}));
+    }
+
+    @Test
+    public void testLaterInstancesMustNameFieldsAlike() {
+        new RenamedForm(Robolectric.application, "body").getFormState();
+        assertEquals("body", new RenamedForm(Robolectric.application, "body").getFormState()
+                .getDefinition().getSpec().getField(0).getName());
+        try {
+            new RenamedForm(Robolectric.application, "text").getFormState();
+            fail();
+        } catch (IllegalStateException expected) {
+            // Would be bound as body
+        }
+    }
+}
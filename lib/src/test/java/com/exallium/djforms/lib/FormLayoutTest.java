@@ -0,0 +1,183 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ListView;
+import com.exallium.djforms.lib.fields.EditTextField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class FormLayoutTest {
+
+    private static final int WIDTH = 480;
+    private static final int ROW_HEIGHT = 40;
+
+    private static final class CountingView extends View {
+        int measures = 0;
+        int layouts = 0;
+
+        CountingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measures++;
+            setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), ROW_HEIGHT);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            layouts++;
+        }
+    }
+
+    public static final class LayoutForm extends DJForm {
+        public EditTextField first = new EditTextField();
+        public EditTextField second = new EditTextField();
+
+        public LayoutForm(Context context) {
+            super(context);
+        }
+    }
+
+    private static CountingView[] addRows(FormLayout layout, int count) {
+        CountingView[] rows = new CountingView[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new CountingView(Robolectric.application);
+            layout.addView(rows[i]);
+        }
+        return rows;
+    }
+
+    private static void measureAndLayout(FormLayout layout, int width) {
+        layout.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        layout.layout(0, 0, layout.getMeasuredWidth(), layout.getMeasuredHeight());
+    }
+
+    @Test
+    public void testDefaultFormContainer() {
+        ViewGroup viewGroup = new LayoutForm(Robolectric.application).getFormViewGroup();
+        assertTrue(viewGroup instanceof FormLayout);
+        assertTrue(viewGroup.getChildAt(0).getLayoutParams() instanceof FormLayout.LayoutParams);
+    }
+
+    @Test
+    public void testEachRowIsMeasuredOncePerPass() {
+        FormLayout layout = new FormLayout(Robolectric.application);
+        CountingView[] rows = addRows(layout, 5);
+
+        measureAndLayout(layout, WIDTH);
+        for (CountingView row : rows) {
+            assertEquals(1, row.measures);
+            assertEquals(1, row.layouts);
+        }
+        assertEquals(5 * ROW_HEIGHT, layout.getMeasuredHeight());
+    }
+
+    @Test
+    public void testUnchangedRowsKeepTheirMeasurements() {
+        FormLayout layout = new FormLayout(Robolectric.application);
+        CountingView[] rows = addRows(layout, 5);
+        measureAndLayout(layout, WIDTH);
+
+        rows[2].requestLayout();
+        measureAndLayout(layout, WIDTH);
+        assertEquals(2, rows[2].measures);
+        assertEquals(1, rows[0].measures);
+        assertEquals(1, rows[4].measures);
+
+        // A new width changes every row
+        measureAndLayout(layout, WIDTH / 2);
+        for (CountingView row : rows)
+            assertEquals(WIDTH / 2, row.getMeasuredWidth());
+    }
+
+    @Test
+    public void testRowsAreStackedWithMargins() {
+        FormLayout layout = new FormLayout(Robolectric.application);
+        CountingView[] rows = addRows(layout, 3);
+        FormLayout.LayoutParams params = (FormLayout.LayoutParams) rows[1].getLayoutParams();
+        params.topMargin = 8;
+        params.bottomMargin = 4;
+        rows[1].setLayoutParams(params);
+        rows[2].setVisibility(View.GONE);
+
+        measureAndLayout(layout, WIDTH);
+        assertEquals(0, rows[2].measures);
+        assertEquals(2 * ROW_HEIGHT + 12, layout.getMeasuredHeight());
+    }
+
+    private static final class SpecList extends ListView {
+        int heightSpec;
+
+        SpecList(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            heightSpec = heightMeasureSpec;
+            setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), ROW_HEIGHT);
+        }
+    }
+
+    @Test
+    public void testRowsGetTheHeightLeft() {
+        FormLayout layout = new FormLayout(Robolectric.application);
+        addRows(layout, 2);
+        SpecList list = new SpecList(Robolectric.application);
+        layout.addView(list);
+
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.EXACTLY));
+        assertEquals(View.MeasureSpec.AT_MOST, View.MeasureSpec.getMode(list.heightSpec));
+        assertEquals(300 - 2 * ROW_HEIGHT, View.MeasureSpec.getSize(list.heightSpec));
+    }
+
+    @Test
+    public void testUnboundedListsAreMeasuredWhole() {
+        FormLayout layout = new FormLayout(Robolectric.application);
+        SpecList list = new SpecList(Robolectric.application);
+        layout.addView(list);
+        CountingView row = addRows(layout, 1)[0];
+
+        measureAndLayout(layout, WIDTH);
+        assertEquals(View.MeasureSpec.AT_MOST, View.MeasureSpec.getMode(list.heightSpec));
+        assertTrue(View.MeasureSpec.getSize(list.heightSpec) > 100000);
+        assertEquals(1, row.measures);
+    }
+}
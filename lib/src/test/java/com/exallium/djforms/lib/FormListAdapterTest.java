@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.ListView;
+import com.exallium.djforms.lib.fields.EditTextField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class FormListAdapterTest {
+
+    public static final class ListModel {
+        public String first;
+        public String second;
+        public String third;
+    }
+
+    public static final class ListForm extends DJForm {
+        public EditTextField first = new EditTextField();
+        public EditTextField second = new EditTextField();
+        public EditTextField third = new EditTextField();
+
+        public ListForm(Context context) {
+            super(context);
+        }
+    }
+
+    private static ListModel newModel() {
+        ListModel model = new ListModel();
+        model.first = "one";
+        model.second = "two";
+        model.third = "three";
+        return model;
+    }
+
+    @Test
+    public void testFieldsShareOneViewType() {
+        ListForm form = new ListForm(Robolectric.application);
+        ListView listView = form.getFormListView();
+        FormListAdapter adapter = (FormListAdapter) listView.getAdapter();
+
+        assertEquals(3, adapter.getCount());
+        assertEquals(1, adapter.getViewTypeCount());
+        assertEquals(0, adapter.getItemViewType(2));
+        assertSame(listView, form.getFormListView());
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testCannotMixRenderingModes() {
+        ListForm form = new ListForm(Robolectric.application);
+        form.getFormViewGroup();
+        form.getFormListView();
+    }
+
+    @Test
+    public void testFillAndSaveWithoutViews() {
+        ListForm form = new ListForm(Robolectric.application);
+        form.getFormListView();
+
+        assertFalse(form.isFormValid());
+        form.fillViews(newModel());
+        assertTrue(form.isFormValid());
+
+        ListModel saved = new ListModel();
+        form.save(saved);
+        assertEquals("one", saved.first);
+        assertEquals("two", saved.second);
+        assertEquals("three", saved.third);
+    }
+
+    @Test
+    public void testStateSurvivesRecycling() {
+        ListForm form = new ListForm(Robolectric.application);
+        FormListAdapter adapter = (FormListAdapter) form.getFormListView().getAdapter();
+        form.fillViews(newModel());
+
+        // One row on screen, scrolled through every field
+        View row = adapter.getView(0, null, null);
+        assertEquals("one", ((EditText) row).getText().toString());
+        ((EditText) row).setText("edited");
+
+        assertSame(row, adapter.getView(1, row, null));
+        assertEquals("two", ((EditText) row).getText().toString());
+        assertNull(((DJField) form.first).peekView());
+
+        assertSame(row, adapter.getView(2, row, null));
+        assertEquals("three", ((EditText) row).getText().toString());
+        ((EditText) row).setText("");
+        assertFalse(form.isFormValid());
+
+        assertSame(row, adapter.getView(0, row, null));
+        assertEquals("edited", ((EditText) row).getText().toString());
+
+        ListModel saved = new ListModel();
+        form.save(saved);
+        assertEquals("edited", saved.first);
+        assertEquals("two", saved.second);
+        assertEquals("", saved.third);
+    }
+}
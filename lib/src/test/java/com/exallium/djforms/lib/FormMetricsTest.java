@@ -0,0 +1,180 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.binding.Resolution;
+import com.exallium.djforms.lib.fields.EditTextField;
+import com.exallium.djforms.lib.fields.IntField;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class FormMetricsTest {
+
+    public static final class Item {
+        public String name;
+        private int count;
+
+        public int getCount() { return count; }
+
+        public void setCount(int count) { this.count = count; }
+    }
+
+    // Only ever bound in testResolutionsAreCounted, as plans are shared
+    public static final class ResolvedItem {
+        public String name;
+        private int count;
+
+        public int getCount() { return count; }
+
+        public void setCount(int count) { this.count = count; }
+    }
+
+    public static final class ItemForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public IntField count = new IntField();
+        public EditTextField note = new EditTextField();
+
+        public ItemForm(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected AccessorBackend getAccessorBackend() {
+            return AccessorBackend.REFLECTION;
+        }
+    }
+
+    private static final class Nesting extends FormMetrics {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onPhaseStart(FormDefinition form, Phase phase) {
+            events.add("start " + phase);
+        }
+
+        @Override
+        public void onPhaseEnd(FormDefinition form, Phase phase, long nanos) {
+            events.add("end " + phase);
+        }
+
+        @Override
+        public void onFieldStart(FormDefinition form, Phase phase, int index) {
+            events.add("start " + form.getName(index));
+        }
+
+        @Override
+        public void onFieldEnd(FormDefinition form, Phase phase, int index, long nanos) {
+            events.add("end " + form.getName(index));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DJForm.setDefaultMetrics(null);
+    }
+
+    @Test
+    public void testPhasesAndFieldsAreTimed() {
+        ItemForm form = new ItemForm(Robolectric.application);
+        MetricsRecorder recorder = new MetricsRecorder();
+        form.setMetrics(recorder);
+
+        form.getFormViewGroup();
+        assertEquals(1, recorder.getCount(FormMetrics.Phase.FORM_VIEW_GROUP));
+        assertEquals(1, recorder.getFieldCount(FormMetrics.Phase.CREATE_VIEW, "count"));
+        assertTrue(recorder.getNanos(FormMetrics.Phase.FORM_VIEW_GROUP)
+                >= recorder.getFieldNanos(FormMetrics.Phase.CREATE_VIEW, "count"));
+
+        Item item = new Item();
+        item.name = "Bolt";
+        item.count = 3;
+        form.fillViews(item);
+        form.save(item);
+        assertEquals(1, recorder.getCount(FormMetrics.Phase.FILL_VIEWS));
+        assertEquals(1, recorder.getFieldCount(FormMetrics.Phase.FILL_VIEWS, "name"));
+        // Item has no note, so it isn't timed
+        assertEquals(0, recorder.getFieldCount(FormMetrics.Phase.SAVE, "note"));
+        assertEquals(1, recorder.getFieldCount(FormMetrics.Phase.SAVE, "count"));
+    }
+
+    @Test
+    public void testOnlyChangedFieldsAreTimedValidating() {
+        ItemForm form = new ItemForm(Robolectric.application);
+        MetricsRecorder recorder = new MetricsRecorder();
+        form.setMetrics(recorder);
+
+        form.isFormValid();
+        form.getFormState().set("count", "4");
+        form.isFormValid();
+
+        assertEquals(2, recorder.getCount(FormMetrics.Phase.VALIDATE));
+        assertEquals(1, recorder.getFieldCount(FormMetrics.Phase.VALIDATE, "name"));
+        assertEquals(2, recorder.getFieldCount(FormMetrics.Phase.VALIDATE, "count"));
+    }
+
+    @Test
+    public void testEventsNest() {
+        ItemForm form = new ItemForm(Robolectric.application);
+        Nesting nesting = new Nesting();
+        form.setMetrics(nesting);
+        form.isFormValid();
+
+        List<String> expected = new ArrayList<>();
+        expected.add("start VALIDATE");
+        for (String name : new String[]{"name", "count", "note"}) {
+            expected.add("start " + name);
+            expected.add("end " + name);
+        }
+        expected.add("end VALIDATE");
+        assertEquals(expected, nesting.events);
+    }
+
+    @Test
+    public void testResolutionsAreCounted() {
+        MetricsRecorder recorder = new MetricsRecorder();
+        DJForm.setDefaultMetrics(recorder);
+
+        ItemForm form = new ItemForm(Robolectric.application);
+        form.fillViews(new ResolvedItem());
+
+        assertEquals(1, recorder.getResolutionCount(Resolution.FIELD));
+        assertEquals(1, recorder.getResolutionCount(Resolution.METHODS));
+        assertEquals(1, recorder.getResolutionCount(Resolution.MISSING));
+        assertEquals(1, recorder.getCount(FormMetrics.Phase.FILL_VIEWS));
+    }
+}
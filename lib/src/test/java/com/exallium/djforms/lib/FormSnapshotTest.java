@@ -0,0 +1,144 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Parcel;
+import com.exallium.djforms.lib.fields.DateDialogField;
+import com.exallium.djforms.lib.fields.DoubleField;
+import com.exallium.djforms.lib.fields.EditTextField;
+import com.exallium.djforms.lib.fields.IntField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class FormSnapshotTest {
+
+    public static final class Order {
+        public String name;
+        public int quantity;
+        public double rate;
+        public Date date;
+    }
+
+    public static final class OrderForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public IntField quantity = new IntField();
+        public DoubleField rate = new DoubleField();
+        public DateDialogField date = new DateDialogField();
+
+        public OrderForm(Context context) {
+            super(context);
+        }
+    }
+
+    public static final class OtherForm extends DJForm {
+        public EditTextField name = new EditTextField();
+
+        public OtherForm(Context context) {
+            super(context);
+        }
+    }
+
+    private static FormSnapshot parcel(FormSnapshot snapshot) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            snapshot.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return FormSnapshot.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void testNumbersAndDatesArePackedAsPrimitives() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        FormState state = form.getFormState();
+        state.set("name", "Widget");
+        state.set("quantity", "12");
+        state.set("rate", "1.50");
+        state.set("date", "May 25, 2015");
+
+        FormSnapshot snapshot = form.snapshot();
+        assertEquals("Widget", snapshot.getState(0));
+        assertEquals(12, snapshot.getState(1));
+        // "1.50" wouldn't come back as the same text, so it stays text
+        assertEquals("1.50", snapshot.getState(2));
+        assertTrue(snapshot.getState(3) instanceof Date);
+    }
+
+    @Test
+    public void testRestoreAfterParcelling() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        Order order = new Order();
+        order.name = "Widget";
+        order.quantity = 12;
+        order.rate = 2.5;
+        order.date = new Date(115, 4, 25);
+        form.fillViews(order);
+        form.getFormState().set("quantity", "13");
+
+        Bundle bundle = new Bundle();
+        form.saveInstanceState(bundle);
+        FormSnapshot snapshot = parcel((FormSnapshot) bundle.getParcelable(FormSnapshot.keyFor(form.getFormDefinition())));
+
+        // The form is rebuilt without its model
+        OrderForm restored = new OrderForm(Robolectric.application);
+        restored.restore(snapshot);
+        restored.getFormViewGroup();
+        assertEquals("Widget", restored.name.getFieldView(Robolectric.application).getText().toString());
+        assertEquals("13", restored.quantity.getFieldView(Robolectric.application).getText().toString());
+        assertEquals("May 25, 2015", restored.date.getFieldView(Robolectric.application).getText().toString());
+
+        ChangeSet changes = restored.saveChanges(new Order());
+        assertEquals(1, changes.size());
+        assertEquals("quantity", changes.getPropertyName(0));
+        assertEquals(12, changes.getOldValue(0));
+    }
+
+    @Test
+    public void testNoSnapshotInBundle() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        assertFalse(form.restoreInstanceState(null));
+        assertFalse(form.restoreInstanceState(new Bundle()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSnapshotOfAnotherForm() {
+        OtherForm other = new OtherForm(Robolectric.application);
+        other.getFormState().set("name", "Widget");
+        new OrderForm(Robolectric.application).restore(other.snapshot());
+    }
+}
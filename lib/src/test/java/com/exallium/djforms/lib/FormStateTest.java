@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.widget.EditText;
+import com.exallium.djforms.lib.fields.EditTextField;
+import com.exallium.djforms.lib.fields.NumberField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class FormStateTest {
+
+    public static final class StateModel {
+        public String name;
+        public Long count;
+    }
+
+    public static final class StateForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public NumberField count = new NumberField();
+
+        public StateForm(Context context) {
+            super(context);
+        }
+    }
+
+    /**
+     * Counts how often its text is read
+     */
+    public static final class ReadCountingField extends EditTextField {
+        int reads = 0;
+
+        @Override
+        protected Object getState(EditText view) {
+            reads++;
+            return super.getState(view);
+        }
+    }
+
+    public static final class ReadCountingForm extends DJForm {
+        public ReadCountingField name = new ReadCountingField();
+
+        public ReadCountingForm(Context context) {
+            super(context);
+        }
+    }
+
+    private static StateModel newModel() {
+        StateModel model = new StateModel();
+        model.name = "Hello";
+        model.count = 42L;
+        return model;
+    }
+
+    @Test
+    public void testFillAndSaveWithoutViews() {
+        StateForm form = new StateForm(Robolectric.application);
+        form.fillViews(newModel());
+
+        assertEquals("Hello", form.getFormState().get("name"));
+        assertEquals("42", form.getFormState().get(1));
+        assertTrue(form.isFormValid());
+
+        StateModel saved = new StateModel();
+        form.save(saved);
+        assertEquals("Hello", saved.name);
+        assertEquals(Long.valueOf(42), saved.count);
+    }
+
+    @Test
+    public void testViewsFollowState() {
+        StateForm form = new StateForm(Robolectric.application);
+        form.fillViews(newModel());
+        form.getFormViewGroup();
+
+        EditText name = form.name.getFieldView(Robolectric.application);
+        assertEquals("Hello", name.getText().toString());
+
+        form.getFormState().set("name", "Goodbye");
+        assertEquals("Goodbye", name.getText().toString());
+    }
+
+    @Test
+    public void testStateFollowsViews() {
+        StateForm form = new StateForm(Robolectric.application);
+        form.getFormViewGroup();
+
+        form.name.getFieldView(Robolectric.application).setText("Typed");
+        assertEquals("Typed", form.getFormState().get("name"));
+    }
+
+    @Test
+    public void testTypingOnlyReadsTextWhenNeeded() {
+        ReadCountingForm form = new ReadCountingForm(Robolectric.application);
+        form.getFormViewGroup();
+        EditText view = form.name.getFieldView(Robolectric.application);
+        int reads = form.name.reads;
+
+        view.setText("T");
+        view.setText("Ty");
+        view.setText("Typ");
+        assertEquals(reads, form.name.reads);
+
+        assertEquals("Typ", form.getFormState().get("name"));
+        assertEquals("Typ", form.getFormState().get("name"));
+        assertTrue(form.getFormState().isChanged("name"));
+        assertEquals(reads + 1, form.name.reads);
+    }
+
+    @Test
+    public void testWorksOffTheMainThread() throws Exception {
+        final StateForm form = new StateForm(Robolectric.application);
+        form.getFormViewGroup();
+        form.name.getFieldView(Robolectric.application).setText("Typed");
+
+        final StateModel saved = new StateModel();
+        final boolean[] valid = new boolean[1];
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                form.getFormState().set("count", "7");
+                valid[0] = form.isFormValid();
+                form.save(saved);
+            }
+        });
+        worker.start();
+        worker.join();
+
+        assertTrue(valid[0]);
+        assertEquals("Typed", saved.name);
+        assertEquals(Long.valueOf(7), saved.count);
+    }
+
+    @Test
+    public void testReleaseClearsState() {
+        StateForm form = new StateForm(Robolectric.application);
+        form.getFormViewGroup();
+        form.fillViews(newModel());
+        form.release();
+
+        assertNull(form.getFormState().get("name"));
+        assertFalse(form.isFormValid());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that objects can be garbage collected, by watching them through
+ * WeakReferences while the collector runs.  Take the references in a separate
+ * method, so no local variable of the test keeps the objects reachable.
+ */
+final class LeakAssert {
+
+    private static final int ATTEMPTS = 20;
+
+    private LeakAssert() {}
+
+    /**
+     * Fails unless every reference is cleared within a few collections
+     * @param what What the references point to, for the failure message
+     * @param references The references to watch
+     */
+    static void assertCollected(String what, List<? extends WeakReference<?>> references) {
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            if (allCleared(references))
+                return;
+            collect();
+        }
+        int alive = 0;
+        for (WeakReference<?> reference : references)
+            if (reference.get() != null)
+                alive++;
+        if (alive != 0)
+            fail(alive + " of " + references.size() + " " + what + " were never collected");
+    }
+
+    static void assertCollected(String what, WeakReference<?> reference) {
+        final List<WeakReference<?>> references = new ArrayList<>(1);
+        references.add(reference);
+        assertCollected(what, references);
+    }
+
+    private static boolean allCleared(List<? extends WeakReference<?>> references) {
+        for (WeakReference<?> reference : references)
+            if (reference.get() != null)
+                return false;
+        return true;
+    }
+
+    private static void collect() {
+        // Garbage encourages a collection where System.gc() alone is only a hint
+        byte[][] garbage = new byte[16][];
+        for (int i = 0; i < garbage.length; i++)
+            garbage[i] = new byte[1 << 16];
+        System.gc();
+        System.runFinalization();
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
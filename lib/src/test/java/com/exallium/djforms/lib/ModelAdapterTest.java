@@ -0,0 +1,153 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.MatrixCursor;
+import com.exallium.djforms.lib.fields.BigDecimalField;
+import com.exallium.djforms.lib.fields.EditTextField;
+import com.exallium.djforms.lib.fields.IntField;
+import com.exallium.djforms.lib.fields.LongField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class ModelAdapterTest {
+
+    public static final class RowForm extends DJForm {
+        public EditTextField name = new EditTextField();
+        public IntField quantity = new IntField();
+        public LongField updated = new LongField("updated_at");
+        public BigDecimalField price = new BigDecimalField();
+
+        public RowForm(Context context) {
+            super(context);
+        }
+    }
+
+    /**
+     * Counts column lookups
+     */
+    private static final class CountingCursor extends CursorWrapper {
+        int lookups = 0;
+
+        CountingCursor(Cursor cursor) {
+            super(cursor);
+        }
+
+        @Override
+        public int getColumnIndex(String columnName) {
+            lookups++;
+            return super.getColumnIndex(columnName);
+        }
+    }
+
+    @Test
+    public void testFillFromCursor() {
+        MatrixCursor rows = new MatrixCursor(new String[] {"_id", "price", "quantity", "name"});
+        rows.addRow(new Object[] {1L, "9.99", 3L, "Widget"});
+        rows.addRow(new Object[] {2L, "0.50", null, "Sprocket"});
+        CountingCursor cursor = new CountingCursor(rows);
+
+        RowForm form = new RowForm(Robolectric.application);
+        FormState state = form.getFormState();
+        assertTrue(cursor.moveToFirst());
+        form.fillViews(cursor);
+        assertEquals("Widget", state.get("name"));
+        assertEquals("3", state.get("quantity"));
+        assertEquals("9.99", state.get("price"));
+        // No such column
+        assertNull(state.get("updated_at"));
+
+        assertTrue(cursor.moveToNext());
+        form.fillViews(cursor);
+        assertEquals("Sprocket", state.get("name"));
+        assertEquals("0.50", state.get("price"));
+
+        // Columns were looked up for the first row only
+        assertEquals(4, cursor.lookups);
+
+        // A new cursor gets its columns looked up afresh
+        CountingCursor other = new CountingCursor(rows);
+        form.fillViews(other);
+        assertEquals(4, other.lookups);
+    }
+
+    @Test
+    public void testSaveIntoContentValues() {
+        RowForm form = new RowForm(Robolectric.application);
+        form.getFormState().set("name", "Widget");
+        form.getFormState().set("quantity", "3");
+        form.getFormState().set("price", "9.99");
+
+        ContentValues values = new ContentValues();
+        form.save(values);
+        assertEquals("Widget", values.get("name"));
+        assertEquals(3, values.get("quantity"));
+        assertEquals("9.99", values.get("price"));
+        assertTrue(values.containsKey("updated_at"));
+        assertNull(values.get("updated_at"));
+
+        RowForm copy = new RowForm(Robolectric.application);
+        copy.fillViews(values);
+        assertEquals("3", copy.getFormState().get("quantity"));
+        assertEquals("9.99", copy.getFormState().get("price"));
+    }
+
+    @Test
+    public void testMapRoundTrip() {
+        Map<String, Object> json = new HashMap<>();
+        json.put("name", "Widget");
+        // Parsers often hand back the widest type
+        json.put("quantity", 3L);
+        json.put("updated_at", 1432512000000.0);
+
+        RowForm form = new RowForm(Robolectric.application);
+        form.fillViews(json);
+        assertEquals("3", form.getFormState().get("quantity"));
+        assertEquals("1432512000000", form.getFormState().get("updated_at"));
+
+        form.getFormState().set("price", "9.99");
+        Map<String, Object> saved = new HashMap<>();
+        form.save(saved);
+        assertEquals("Widget", saved.get("name"));
+        assertEquals(3, saved.get("quantity"));
+        assertEquals(1432512000000L, saved.get("updated_at"));
+        assertEquals(new BigDecimal("9.99"), saved.get("price"));
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.ListView;
+import com.exallium.djforms.lib.fields.EditTextField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class NestedFormTest {
+
+    public static final class Address {
+        public String street;
+        public String city;
+    }
+
+    public static final class LineItem {
+        // Not on the form
+        public long id;
+        public String product;
+        public String quantity;
+    }
+
+    /**
+     * Can't be created for new rows
+     */
+    public static final class FixedItem {
+        public String product;
+        public String quantity;
+
+        public FixedItem(String product) {
+            this.product = product;
+        }
+    }
+
+    public static final class FixedOrder {
+        public List<FixedItem> lineItems = new ArrayList<>();
+    }
+
+    public static final class FixedOrderForm extends DJForm {
+        public RepeatingGroupField<LineItemForm> lineItems;
+
+        public FixedOrderForm(Context context) {
+            super(context);
+            lineItems = new RepeatingGroupField<>(new LineItemForm(context), FixedItem.class);
+        }
+    }
+
+    public static final class Order {
+        public String customer;
+        public Address address;
+        public Address billing;
+        public List<LineItem> lineItems = new ArrayList<>();
+    }
+
+    public static final class AddressForm extends DJForm {
+        public EditTextField street = new EditTextField();
+        public EditTextField city = new EditTextField();
+
+        public AddressForm(Context context) {
+            super(context);
+        }
+    }
+
+    public static final class LineItemForm extends DJForm {
+        static int created = 0;
+
+        public EditTextField product = new EditTextField();
+        public EditTextField quantity = new EditTextField();
+
+        public LineItemForm(Context context) {
+            super(context);
+            created++;
+        }
+    }
+
+    public static final class OrderForm extends DJForm {
+        public EditTextField customer = new EditTextField();
+        public EditTextField billingCity = new EditTextField("billing.city");
+        public SubFormField<AddressForm> address;
+        public RepeatingGroupField<LineItemForm> lineItems;
+
+        public OrderForm(Context context) {
+            super(context);
+            address = new SubFormField<>(new AddressForm(context));
+            lineItems = new RepeatingGroupField<>(new LineItemForm(context), LineItem.class);
+        }
+    }
+
+    private static Order newOrder(int items) {
+        Order order = new Order();
+        order.customer = "Alex";
+        order.address = new Address();
+        order.address.street = "1 Main St";
+        order.address.city = "Halifax";
+        order.billing = new Address();
+        order.billing.city = "Toronto";
+        for (int i = 0; i < items; i++) {
+            LineItem item = new LineItem();
+            item.id = 100 + i;
+            item.product = "Product " + i;
+            item.quantity = String.valueOf(i + 1);
+            order.lineItems.add(item);
+        }
+        return order;
+    }
+
+    @Test
+    public void testFillAndSaveWithoutViews() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        form.fillViews(newOrder(2));
+        assertEquals("Toronto", form.getFormState().get("billing.city"));
+        assertEquals(2, form.lineItems.getRowCount());
+        assertTrue(form.isFormValid());
+
+        // Nested models which are missing are created
+        Order saved = new Order();
+        form.save(saved);
+        assertEquals("Alex", saved.customer);
+        assertEquals("Toronto", saved.billing.city);
+        assertEquals("1 Main St", saved.address.street);
+        assertEquals("Halifax", saved.address.city);
+        assertEquals(2, saved.lineItems.size());
+        assertEquals("Product 1", saved.lineItems.get(1).product);
+        assertEquals("2", saved.lineItems.get(1).quantity);
+    }
+
+    @Test
+    public void testSubFormViewsFollowState() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        ViewGroup viewGroup = form.getFormViewGroup();
+        assertEquals(4, viewGroup.getChildCount());
+
+        Order order = newOrder(0);
+        form.fillViews(order);
+        EditText city = form.address.getForm().city.getFieldView(Robolectric.application);
+        assertEquals("Halifax", city.getText().toString());
+        assertFalse(form.getFormState().isChanged("address"));
+
+        city.setText("Ottawa");
+        assertTrue(form.getFormState().isChanged("address"));
+
+        // Written in place
+        Address address = order.address;
+        form.save(order);
+        assertSame(address, order.address);
+        assertEquals("Ottawa", address.city);
+        assertEquals("1 Main St", address.street);
+    }
+
+    @Test
+    public void testRowsOnlyHaveViewsWhenShown() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        ListView listView = form.lineItems.getFieldView(Robolectric.application);
+        Order order = newOrder(500);
+        form.fillViews(order);
+        form.getFormViewGroup();
+
+        LineItemForm.created = 0;
+        assertEquals(500, listView.getAdapter().getCount());
+
+        // One row on screen, scrolled from the first item to the last
+        View row = listView.getAdapter().getView(0, null, null);
+        assertSame(row, listView.getAdapter().getView(499, row, null));
+        assertEquals(1, LineItemForm.created);
+
+        EditText quantity = (EditText) ((ViewGroup) row).getChildAt(1);
+        assertEquals("500", quantity.getText().toString());
+        quantity.setText("7");
+
+        LineItem last = order.lineItems.get(499);
+        form.save(order);
+        assertEquals(500, order.lineItems.size());
+        assertSame(last, order.lineItems.get(499));
+        assertEquals("7", last.quantity);
+        assertEquals("1", order.lineItems.get(0).quantity);
+    }
+
+    @Test
+    public void testTypingReplacesOnlyItsRow() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        ListView listView = form.lineItems.getFieldView(Robolectric.application);
+        form.fillViews(newOrder(3));
+        form.getFormViewGroup();
+        List<?> before = (List<?>) form.getFormState().get("lineItems");
+
+        View row = listView.getAdapter().getView(1, null, null);
+        ((EditText) ((ViewGroup) row).getChildAt(1)).setText("7");
+
+        List<?> after = (List<?>) form.getFormState().get("lineItems");
+        assertSame(after, form.getFormState().get("lineItems"));
+        assertSame(before.get(0), after.get(0));
+        assertSame(before.get(2), after.get(2));
+        assertEquals("7", ((List<?>) after.get(1)).get(1));
+        // Still the same item
+        assertEquals(((List<?>) before.get(1)).get(2), ((List<?>) after.get(1)).get(2));
+        assertEquals(((List<?>) before.get(1)).get(2).hashCode(), ((List<?>) after.get(1)).get(2).hashCode());
+    }
+
+    @Test
+    public void testAddingAndRemovingRows() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        Order order = newOrder(2);
+        form.fillViews(order);
+
+        form.lineItems.addRow();
+        assertEquals(3, form.lineItems.getRowCount());
+        assertFalse(form.isFormValid());
+
+        form.lineItems.removeRow(2);
+        assertTrue(form.isFormValid());
+
+        form.lineItems.removeRow(0);
+
+        form.save(order);
+        assertEquals(1, order.lineItems.size());
+        assertEquals("Product 1", order.lineItems.get(0).product);
+    }
+
+    @Test
+    public void testRowsKeepTheirItems() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        Order order = newOrder(3);
+        List<LineItem> items = new ArrayList<>(order.lineItems);
+        form.fillViews(order);
+
+        form.lineItems.removeRow(0);
+        form.lineItems.addRow();
+        form.save(order);
+        assertEquals(3, order.lineItems.size());
+        assertSame(items.get(1), order.lineItems.get(0));
+        assertSame(items.get(2), order.lineItems.get(1));
+        assertEquals(101, order.lineItems.get(0).id);
+        assertEquals("Product 1", order.lineItems.get(0).product);
+        assertEquals(102, order.lineItems.get(1).id);
+        assertEquals("Product 2", order.lineItems.get(1).product);
+        LineItem added = order.lineItems.get(2);
+        assertFalse(items.contains(added));
+
+        // The item created for the new row is kept, even after more rows go
+        form.lineItems.removeRow(0);
+        form.save(order);
+        assertEquals(2, order.lineItems.size());
+        assertSame(items.get(2), order.lineItems.get(0));
+        assertSame(added, order.lineItems.get(1));
+    }
+
+    @Test
+    public void testSavingAllLeavesRowsAlone() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        form.fillViews(new Order());
+        form.lineItems.addRow();
+        Object rows = form.getFormState().get("lineItems");
+
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            orders.add(new Order());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertTrue(form.saveAll(Collections.singletonList(form.getFormState()), orders, executor).isSuccessful());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertNotSame(orders.get(0).lineItems.get(0), orders.get(99).lineItems.get(0));
+        assertSame(rows, form.getFormState().get("lineItems"));
+        List<?> row = (List<?>) ((List<?>) rows).get(0);
+        assertNull(((RepeatingGroupField.Source) row.get(row.size() - 1)).item);
+    }
+
+    @Test
+    public void testRestoredRowsGoByPosition() {
+        OrderForm form = new OrderForm(Robolectric.application);
+        form.fillViews(newOrder(2));
+        form.lineItems.addRow();
+
+        OrderForm restored = new OrderForm(Robolectric.application);
+        restored.restore(form.snapshot());
+        assertTrue(restored.getFormState().isChanged("lineItems"));
+
+        Order order = newOrder(2);
+        List<LineItem> items = new ArrayList<>(order.lineItems);
+        restored.save(order);
+        assertEquals(3, order.lineItems.size());
+        assertSame(items.get(0), order.lineItems.get(0));
+        assertSame(items.get(1), order.lineItems.get(1));
+        assertEquals("Product 1", order.lineItems.get(1).product);
+    }
+
+    @Test
+    public void testNothingIsWrittenIfAnItemCantBeCreated() {
+        FixedOrderForm form = new FixedOrderForm(Robolectric.application);
+        FixedOrder order = new FixedOrder();
+        order.lineItems.add(new FixedItem("Widget"));
+        form.fillViews(order);
+        form.lineItems.addRow();
+
+        FixedOrder other = new FixedOrder();
+        FixedItem kept = new FixedItem("Gadget");
+        other.lineItems.add(kept);
+        form.save(other);
+        assertEquals(1, other.lineItems.size());
+        assertSame(kept, other.lineItems.get(0));
+        assertEquals("Gadget", kept.product);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class PrefetchTest {
+
+    /**
+     * Remembers which thread built it
+     */
+    public static class ThreadView extends EditText {
+        final Thread builtOn = Thread.currentThread();
+        int initialized;
+
+        public ThreadView(Context context) {
+            super(context);
+        }
+    }
+
+    public static final class ThreadField extends DJField<ThreadView> {
+
+        public ThreadField() {
+            super(ThreadView.class);
+        }
+
+        @Override
+        protected void onViewCreated(ThreadView view) {
+            view.initialized++;
+        }
+
+        @Override
+        public Object getValue(ThreadView view) {
+            return view.getText().toString();
+        }
+
+        @Override
+        public void setValue(ThreadView view, Object data) {
+            view.setText(data.toString());
+        }
+    }
+
+    public static final class PrefetchForm extends DJForm {
+        public ThreadField first = new ThreadField();
+        public ThreadField second = new ThreadField();
+
+        public PrefetchForm(Context context) {
+            super(context);
+        }
+    }
+
+    /**
+     * Holds on to work until told to run it
+     */
+    private static final class HeldExecutor implements Executor {
+        final List<Runnable> held = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            held.add(command);
+        }
+
+        void runOn(Thread thread) throws InterruptedException {
+            thread.start();
+            thread.join();
+        }
+
+        Thread thread() {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (Runnable runnable : held)
+                        runnable.run();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testPrefetchedViewsAreAttached() throws InterruptedException {
+        PrefetchForm form = new PrefetchForm(Robolectric.application);
+        HeldExecutor executor = new HeldExecutor();
+        form.prefetch(executor);
+        assertEquals(1, executor.held.size());
+
+        Thread background = executor.thread();
+        executor.runOn(background);
+
+        ViewGroup viewGroup = form.getFormViewGroup();
+        ThreadView first = form.first.getFieldView(Robolectric.application);
+        assertSame(first, viewGroup.getChildAt(0));
+        assertSame(background, first.builtOn);
+        assertSame(background, form.second.getFieldView(Robolectric.application).builtOn);
+
+        // Initialized once, on the main thread
+        assertEquals(1, first.initialized);
+        form.getFormState().set(0, "Hello");
+        assertEquals("Hello", first.getText().toString());
+    }
+
+    @Test
+    public void testUnfinishedPrefetchFallsBack() throws InterruptedException {
+        MetricsRecorder recorder = new MetricsRecorder();
+        PrefetchForm form = new PrefetchForm(Robolectric.application);
+        form.setMetrics(recorder);
+        HeldExecutor executor = new HeldExecutor();
+        form.prefetch(executor);
+
+        form.getFormViewGroup();
+        assertSame(Thread.currentThread(), form.first.getFieldView(Robolectric.application).builtOn);
+        assertSame(Thread.currentThread(), form.second.getFieldView(Robolectric.application).builtOn);
+
+        // Starting late, the prefetch finds every field claimed
+        executor.runOn(executor.thread());
+        assertEquals(1, recorder.getCount(FormMetrics.Phase.PREFETCH));
+        assertEquals(0, recorder.getFieldCount(FormMetrics.Phase.PREFETCH, "first"));
+    }
+
+    @Test
+    public void testPrefetchAfterRenderingDoesNothing() {
+        PrefetchForm form = new PrefetchForm(Robolectric.application);
+        form.getFormViewGroup();
+
+        HeldExecutor executor = new HeldExecutor();
+        form.prefetch(executor);
+        form.prefetch(executor);
+        assertTrue(executor.held.isEmpty());
+    }
+
+    @Test
+    public void testReleaseCancelsPrefetch() throws InterruptedException {
+        MetricsRecorder recorder = new MetricsRecorder();
+        PrefetchForm form = new PrefetchForm(Robolectric.application);
+        form.setMetrics(recorder);
+        HeldExecutor executor = new HeldExecutor();
+        form.prefetch(executor);
+        form.release();
+
+        executor.runOn(executor.thread());
+        assertEquals(0, recorder.getFieldCount(FormMetrics.Phase.PREFETCH, "second"));
+    }
+}
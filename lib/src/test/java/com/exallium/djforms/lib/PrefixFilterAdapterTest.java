@@ -0,0 +1,112 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.exallium.djforms.lib;
+
+import com.exallium.djforms.lib.fields.AutoCompleteTextField;
+import com.exallium.djforms.lib.fields.PrefixFilterAdapter;
+import com.exallium.djforms.lib.fields.PrefixIndex;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class PrefixFilterAdapterTest {
+
+    private static final List<String> PRODUCTS = Arrays.asList(
+            "Banana", "apple", "Apricot", "Applesauce", "avocado", "Blueberry", "APPLE PIE");
+
+    private static List<String> shown(PrefixFilterAdapter<String> adapter) {
+        List<String> shown = new ArrayList<>();
+        for (int i = 0; i < adapter.getCount(); i++)
+            shown.add(adapter.getItem(i));
+        return shown;
+    }
+
+    @Test
+    public void testFiltering() {
+        PrefixFilterAdapter<String> adapter = new PrefixFilterAdapter<>(Robolectric.application, PRODUCTS);
+        assertEquals(0, adapter.getCount());
+
+        adapter.getFilter().filter("AP");
+        assertEquals(Arrays.asList("apple", "APPLE PIE", "Applesauce", "Apricot"), shown(adapter));
+
+        adapter.getFilter().filter("appl");
+        assertEquals(Arrays.asList("apple", "APPLE PIE", "Applesauce"), shown(adapter));
+
+        adapter.getFilter().filter("apples");
+        assertEquals(Arrays.asList("Applesauce"), shown(adapter));
+
+        // Not an extension of the last query, so searched from scratch
+        adapter.getFilter().filter("b");
+        assertEquals(Arrays.asList("Banana", "Blueberry"), shown(adapter));
+
+        adapter.getFilter().filter("bz");
+        assertEquals(0, adapter.getCount());
+
+        adapter.getFilter().filter("");
+        assertEquals(PRODUCTS.size(), adapter.getCount());
+    }
+
+    @Test
+    public void testMaxResults() {
+        PrefixFilterAdapter<String> adapter = new PrefixFilterAdapter<>(Robolectric.application, PRODUCTS);
+        adapter.setMaxResults(2);
+        adapter.getFilter().filter("a");
+        assertEquals(Arrays.asList("apple", "APPLE PIE"), shown(adapter));
+    }
+
+    @Test
+    public void testIndex() {
+        PrefixIndex<String> index = new PrefixIndex<>(PRODUCTS, Locale.US);
+        String prefix = index.normalize("Av");
+        int start = index.start(prefix, 0, index.size());
+        int end = index.end(prefix, start, index.size());
+        assertEquals(1, end - start);
+        assertEquals("avocado", index.get(start));
+
+        prefix = index.normalize("zebra");
+        start = index.start(prefix, 0, index.size());
+        assertEquals(index.size(), start);
+        assertEquals(start, index.end(prefix, start, index.size()));
+    }
+
+    @Test
+    public void testPlugsIntoAutoCompleteTextField() {
+        PrefixFilterAdapter<String> adapter = new PrefixFilterAdapter<>(Robolectric.application, PRODUCTS);
+        AutoCompleteTextField<PrefixFilterAdapter<String>> field = new AutoCompleteTextField<>(adapter);
+        assertNotNull(field.getFieldView(Robolectric.application));
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import com.exallium.djforms.lib.binding.AccessorBackend;
+import com.exallium.djforms.lib.codec.IntCodec;
+import com.exallium.djforms.lib.codec.LongCodec;
+import com.exallium.djforms.lib.fields.BigDecimalField;
+import com.exallium.djforms.lib.fields.DoubleField;
+import com.exallium.djforms.lib.fields.IntField;
+import com.exallium.djforms.lib.fields.LongField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class PrimitiveFieldTest {
+
+    private static final AccessorBackend[] BACKENDS = {
+            AccessorBackend.REFLECTION, AccessorBackend.GENERATED, AccessorBackend.SPECIALIZED
+    };
+
+    public static final class PrimitiveModel {
+        public int quantity;
+        public long total;
+        public double rate;
+        public BigDecimal price;
+    }
+
+    public static final class WideningModel {
+        public double quantity;
+        public Long total;
+        public Object rate;
+        public Number price;
+    }
+
+    public static final class BeanPrimitiveModel {
+        private long quantity;
+
+        public long getQuantity() { return quantity; }
+
+        public void setQuantity(long quantity) { this.quantity = quantity; }
+    }
+
+    public static final class PrimitiveForm extends DJForm {
+        public IntField quantity = new IntField();
+        public LongField total = new LongField();
+        public DoubleField rate = new DoubleField();
+        public BigDecimalField price = new BigDecimalField();
+
+        private final AccessorBackend backend;
+
+        public PrimitiveForm(Context context, AccessorBackend backend) {
+            super(context);
+            this.backend = backend;
+        }
+
+        @Override
+        protected AccessorBackend getAccessorBackend() {
+            return backend;
+        }
+    }
+
+    private static PrimitiveForm filledForm(AccessorBackend backend) {
+        PrimitiveForm form = new PrimitiveForm(Robolectric.application, backend);
+        form.getFormState().set("quantity", "3");
+        form.getFormState().set("total", "-9000000000");
+        form.getFormState().set("rate", "0.25");
+        form.getFormState().set("price", "19.99");
+        return form;
+    }
+
+    @Test
+    public void testSaveIntoPrimitives() {
+        for (AccessorBackend backend : BACKENDS) {
+            PrimitiveForm form = filledForm(backend);
+            assertTrue(form.isFormValid());
+
+            PrimitiveModel model = new PrimitiveModel();
+            form.save(model);
+            assertEquals(3, model.quantity);
+            assertEquals(-9000000000L, model.total);
+            assertEquals(0.25, model.rate, 0);
+            assertEquals(new BigDecimal("19.99"), model.price);
+        }
+    }
+
+    @Test
+    public void testSaveWidensOrSkips() {
+        for (AccessorBackend backend : BACKENDS) {
+            WideningModel model = new WideningModel();
+            filledForm(backend).save(model);
+            assertEquals(3.0, model.quantity, 0);
+            assertEquals(Long.valueOf(-9000000000L), model.total);
+            assertEquals(0.25, model.rate);
+            assertEquals(new BigDecimal("19.99"), model.price);
+        }
+    }
+
+    @Test
+    public void testSaveThroughSetter() {
+        for (AccessorBackend backend : BACKENDS) {
+            BeanPrimitiveModel model = new BeanPrimitiveModel();
+            filledForm(backend).save(model);
+            assertEquals(3, model.getQuantity());
+        }
+    }
+
+    @Test
+    public void testFillFromPrimitives() {
+        PrimitiveModel model = new PrimitiveModel();
+        model.quantity = 12;
+        model.total = 34;
+        model.rate = 1.5;
+        model.price = new BigDecimal("1E+3");
+
+        PrimitiveForm form = new PrimitiveForm(Robolectric.application, AccessorBackend.REFLECTION);
+        form.fillViews(model);
+        assertEquals("12", form.getFormState().get("quantity"));
+        assertEquals("34", form.getFormState().get("total"));
+        assertEquals("1.5", form.getFormState().get("rate"));
+        assertEquals("1000", form.getFormState().get("price"));
+    }
+
+    @Test
+    public void testInvalidNumbers() {
+        PrimitiveForm form = filledForm(AccessorBackend.REFLECTION);
+        form.getFormState().set("quantity", "3000000000");
+        form.getFormState().set("rate", "abc");
+        assertFalse(form.getFieldValidity().get(0));
+        assertFalse(form.getFieldValidity().get(2));
+        assertTrue(form.getFieldValidity().get(1));
+    }
+
+    @Test
+    public void testSaveEmptyIntoPrimitives() {
+        for (AccessorBackend backend : BACKENDS) {
+            PrimitiveModel model = new PrimitiveModel();
+            model.quantity = 1;
+            model.total = 2;
+            model.rate = 3;
+
+            // Never filled, then cleared
+            PrimitiveForm form = new PrimitiveForm(Robolectric.application, backend);
+            form.save(model);
+            form.getFormState().set("quantity", "");
+            form.getFormState().set("total", "");
+            form.getFormState().set("rate", "abc");
+            form.save(model);
+            form.saveChanges(model);
+
+            // Primitives can't hold null, so they're left alone
+            assertEquals(1, model.quantity);
+            assertEquals(2, model.total);
+            assertEquals(3, model.rate, 0);
+            assertNull(model.price);
+
+            BeanPrimitiveModel bean = new BeanPrimitiveModel();
+            bean.setQuantity(4);
+            form.save(bean);
+            assertEquals(4, bean.getQuantity());
+        }
+    }
+
+    @Test
+    public void testParseCharSequence() throws ParseException {
+        assertEquals(Long.valueOf(Long.MIN_VALUE), LongCodec.INSTANCE.parse(new StringBuilder("-9223372036854775808")));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), LongCodec.INSTANCE.parse("+9223372036854775807"));
+        assertEquals(Integer.valueOf(-42), IntCodec.INSTANCE.parse("-42"));
+        for (String bad : new String[] { "", "-", "+", "1.0", " 1", "9223372036854775808", "12a" }) {
+            try {
+                LongCodec.INSTANCE.parse(bad);
+                fail("Parsed " + bad);
+            } catch (ParseException expected) {
+            }
+        }
+        try {
+            IntCodec.INSTANCE.parse("2147483648");
+            fail("Parsed past Integer.MAX_VALUE");
+        } catch (ParseException expected) {
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import com.exallium.djforms.lib.fields.DoubleField;
+import com.exallium.djforms.lib.fields.EditTextField;
+import com.exallium.djforms.lib.fields.IntField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class RulesTest {
+
+    public static final class Invoice {
+        public int quantity;
+        public double price;
+        public double subtotal;
+        public double tax;
+        public double total;
+        public String gift;
+        public String giftMessage;
+        public String giftWrap;
+    }
+
+    static int subtotals = 0;
+    static int totals = 0;
+
+    private static boolean isGift(FormValues values) {
+        return "yes".equals(values.getState("gift"));
+    }
+
+    static final FormRule[] INVOICE_RULES = {
+            // Declared out of order, the form sorts them
+            new ComputedRule("total", "subtotal", "tax") {
+                @Override
+                protected Object compute(FormValues values) {
+                    totals++;
+                    final Double subtotal = (Double) values.get("subtotal");
+                    final Double tax = (Double) values.get("tax");
+                    return subtotal == null || tax == null ? null : subtotal + tax;
+                }
+            },
+            new ComputedRule("subtotal", "quantity", "price") {
+                @Override
+                protected Object compute(FormValues values) {
+                    subtotals++;
+                    final Integer quantity = (Integer) values.get("quantity");
+                    final Double price = (Double) values.get("price");
+                    return quantity == null || price == null ? null : quantity * price;
+                }
+            },
+            new VisibilityRule("giftMessage", "gift") {
+                @Override
+                protected boolean isVisible(FormValues values) {
+                    return isGift(values);
+                }
+            },
+            new VisibilityRule("giftWrap", "gift") {
+                @Override
+                protected boolean isVisible(FormValues values) {
+                    return isGift(values);
+                }
+            }
+    };
+
+    public static final class InvoiceForm extends DJForm {
+        public IntField quantity = new IntField();
+        public DoubleField price = new DoubleField();
+        public DoubleField subtotal = new DoubleField();
+        public DoubleField tax = new DoubleField();
+        public DoubleField total = new DoubleField();
+        public EditTextField gift = new EditTextField();
+        public EditTextField giftMessage = new EditTextField();
+        public EditTextField giftWrap = new EditTextField();
+
+        public InvoiceForm(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected FormRule[] getRules() {
+            return INVOICE_RULES;
+        }
+    }
+
+    public static final class CycleForm extends DJForm {
+        public EditTextField first = new EditTextField();
+        public EditTextField second = new EditTextField();
+
+        public CycleForm(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected FormRule[] getRules() {
+            return new FormRule[] {
+                    new ComputedRule("first", "second") {
+                        @Override
+                        protected Object compute(FormValues values) {
+                            return values.get("second");
+                        }
+                    },
+                    new ComputedRule("second", "first") {
+                        @Override
+                        protected Object compute(FormValues values) {
+                            return values.get("first");
+                        }
+                    }
+            };
+        }
+    }
+
+    public static final class UnknownFieldForm extends DJForm {
+        public EditTextField first = new EditTextField();
+
+        public UnknownFieldForm(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected FormRule[] getRules() {
+            return new FormRule[] {
+                    new VisibilityRule("first", "missing") {
+                        @Override
+                        protected boolean isVisible(FormValues values) {
+                            return true;
+                        }
+                    }
+            };
+        }
+    }
+
+    /**
+     * Counts the layout requests reaching it
+     */
+    static final class CountingParent extends FormLayout {
+        int requests;
+
+        CountingParent(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            requests++;
+            super.requestLayout();
+        }
+    }
+
+    @Test
+    public void testComputedFieldsFollowTheirDependencies() {
+        InvoiceForm form = new InvoiceForm(Robolectric.application);
+        form.getFormState().set("quantity", "3");
+        form.getFormState().set("price", "2.5");
+        form.getFormState().set("tax", "1.0");
+
+        Invoice invoice = new Invoice();
+        form.save(invoice);
+        assertEquals(7.5, invoice.subtotal, 0);
+        assertEquals(8.5, invoice.total, 0);
+
+        // Shown in the views once they exist, and kept up as inputs change
+        form.getFormViewGroup();
+        form.quantity.getFieldView(Robolectric.application).setText("4");
+        assertEquals("10.0", form.subtotal.getFieldView(Robolectric.application).getText().toString());
+        assertEquals("11.0", form.total.getFieldView(Robolectric.application).getText().toString());
+    }
+
+    @Test
+    public void testOnlyAffectedRulesRun() {
+        InvoiceForm form = new InvoiceForm(Robolectric.application);
+        Invoice invoice = new Invoice();
+        invoice.quantity = 2;
+        invoice.price = 5;
+        invoice.tax = 1;
+
+        // Rules first run when the form's fields are read
+        form.getFormState();
+
+        // Filling runs each rule once, not once per field
+        subtotals = 0;
+        totals = 0;
+        form.fillViews(invoice);
+        assertEquals(1, subtotals);
+        assertEquals(1, totals);
+
+        form.getFormState().set("tax", "2.0");
+        assertEquals(1, subtotals);
+        assertEquals(2, totals);
+        assertEquals("12.0", form.getFormState().get("total"));
+
+        form.getFormState().set("gift", "no");
+        assertEquals(1, subtotals);
+        assertEquals(2, totals);
+    }
+
+    @Test
+    public void testHiddenFieldsAreGoneAndValid() {
+        InvoiceForm form = new InvoiceForm(Robolectric.application);
+        Invoice invoice = new Invoice();
+        invoice.quantity = 1;
+        invoice.price = 1;
+        invoice.gift = "no";
+        form.fillViews(invoice);
+        form.getFormViewGroup();
+
+        View giftMessage = form.giftMessage.getFieldView(Robolectric.application);
+        assertEquals(View.GONE, giftMessage.getVisibility());
+        assertTrue(form.isFormValid());
+
+        form.gift.getFieldView(Robolectric.application).setText("yes");
+        assertEquals(View.VISIBLE, giftMessage.getVisibility());
+        assertFalse(form.isFormValid());
+    }
+
+    @Test
+    public void testViewUpdatesAreLaidOutOnce() {
+        InvoiceForm form = new InvoiceForm(Robolectric.application);
+        form.getFormState().set("gift", "no");
+        CountingParent parent = new CountingParent(Robolectric.application);
+        ViewGroup viewGroup = form.getFormViewGroup();
+        parent.addView(viewGroup);
+        parent.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        parent.layout(0, 0, parent.getMeasuredWidth(), parent.getMeasuredHeight());
+
+        // Two fields are shown by the same change, Android merges their layout requests
+        parent.requests = 0;
+        form.getFormState().set("gift", "yes");
+        assertEquals(View.VISIBLE, form.giftMessage.getFieldView(Robolectric.application).getVisibility());
+        assertEquals(View.VISIBLE, form.giftWrap.getFieldView(Robolectric.application).getVisibility());
+        assertEquals(1, parent.requests);
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testCyclesAreRefused() {
+        new CycleForm(Robolectric.application).getFormDefinition();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testUnknownFieldsAreRefused() {
+        new UnknownFieldForm(Robolectric.application).getFormDefinition();
+    }
+}
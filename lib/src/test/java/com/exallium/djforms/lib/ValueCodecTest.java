@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Alex Hart
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package com.exallium.djforms.lib;
+
+import android.content.Context;
+import com.exallium.djforms.lib.codec.DateCodec;
+import com.exallium.djforms.lib.codec.LongCodec;
+import com.exallium.djforms.lib.codec.ParseCache;
+import com.exallium.djforms.lib.codec.ValueCodec;
+import com.exallium.djforms.lib.fields.DateDialogField;
+import com.exallium.djforms.lib.fields.NumberField;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= "lib/src/main/AndroidManifest.xml", emulateSdk = 18)
+public class ValueCodecTest {
+
+    private static final class CountingCodec extends ValueCodec<Long> {
+        int parses = 0;
+
+        @Override
+        public Long parse(CharSequence text) throws ParseException {
+            parses++;
+            return LongCodec.INSTANCE.parse(text);
+        }
+
+        @Override
+        public String format(Long value) {
+            return value.toString();
+        }
+    }
+
+    public static final class CountingNumberField extends NumberField {
+        final CountingCodec codec = new CountingCodec();
+
+        @Override
+        protected ValueCodec<?> getCodec() {
+            return codec;
+        }
+    }
+
+    public static final class CodecModel {
+        public Long count;
+        public Date date;
+    }
+
+    public static final class CodecForm extends DJForm {
+        public CountingNumberField count = new CountingNumberField();
+        public DateDialogField date = new DateDialogField();
+
+        public CodecForm(Context context) {
+            super(context);
+        }
+    }
+
+    @Test
+    public void testEachEditIsParsedOnce() {
+        CodecForm form = new CodecForm(Robolectric.application);
+        form.getFormState().set("count", "12");
+        form.getFormState().set("date", "May 25, 2015");
+
+        assertTrue(form.isFormValid());
+        CodecModel model = new CodecModel();
+        form.save(model);
+        form.save(model);
+        assertEquals(Long.valueOf(12), model.count);
+        assertEquals(1, form.count.codec.parses);
+
+        form.getFormState().set("count", "13");
+        assertTrue(form.isFormValid());
+        form.save(model);
+        assertEquals(Long.valueOf(13), model.count);
+        assertEquals(2, form.count.codec.parses);
+    }
+
+    @Test
+    public void testInvalidText() {
+        CodecForm form = new CodecForm(Robolectric.application);
+        form.getFormState().set("count", "twelve");
+        form.getFormState().set("date", "May 25, 2015");
+        assertFalse(form.isFormValid());
+        assertFalse(form.getFieldValidity().get(0));
+
+        CodecModel model = new CodecModel();
+        form.save(model);
+        assertNull(model.count);
+    }
+
+    @Test
+    public void testDateRoundTrip() {
+        CodecForm form = new CodecForm(Robolectric.application);
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2015, Calendar.MAY, 25);
+
+        CodecModel model = new CodecModel();
+        model.date = calendar.getTime();
+        form.fillViews(model);
+        assertEquals(DateCodec.of(DateDialogField.DEFAULT_PATTERN, Locale.CANADA).format(model.date),
+                form.getFormState().get("date"));
+
+        CodecModel saved = new CodecModel();
+        form.save(saved);
+        assertEquals(model.date, saved.date);
+    }
+
+    @SuppressWarnings({"deprecation"})
+    public static final class IsoDateField extends DateDialogField {
+        @Override
+        protected DateFormat getDateFormat() {
+            return new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        }
+    }
+
+    public static final class IsoDateForm extends DJForm {
+        public IsoDateField date = new IsoDateField();
+
+        public IsoDateForm(Context context) {
+            super(context);
+        }
+    }
+
+    @Test
+    public void testDateFormatOverridesAreUsed() {
+        IsoDateForm form = new IsoDateForm(Robolectric.application);
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2015, Calendar.MAY, 25);
+
+        CodecModel model = new CodecModel();
+        model.date = calendar.getTime();
+        form.fillViews(model);
+        assertEquals("2015-05-25", form.getFormState().get("date"));
+
+        form.getFormState().set("date", "May 25, 2015");
+        assertFalse(form.isFormValid());
+        form.getFormState().set("date", "2015-05-26");
+        assertTrue(form.isFormValid());
+
+        CodecModel saved = new CodecModel();
+        form.save(saved);
+        calendar.set(Calendar.DAY_OF_MONTH, 26);
+        assertEquals(calendar.getTime(), saved.date);
+    }
+
+    /**
+     * Has a codec which isn't a DateCodec
+     */
+    public static final class EpochDateField extends DateDialogField {
+        private final ValueCodec<Date> codec = new ValueCodec<Date>() {
+            @Override
+            public Date parse(CharSequence text) throws ParseException {
+                try {
+                    return new Date(Long.parseLong(text.toString()));
+                } catch (NumberFormatException e) {
+                    throw new ParseException(text.toString(), 0);
+                }
+            }
+
+            @Override
+            public String format(Date value) {
+                return Long.toString(value.getTime());
+            }
+        };
+
+        @Override
+        protected ValueCodec<?> getCodec() {
+            return codec;
+        }
+
+        @SuppressWarnings({"deprecation"})
+        DateFormat dateFormat() {
+            return getDateFormat();
+        }
+    }
+
+    @Test
+    public void testDateFormatWithoutADateCodec() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2015, Calendar.MAY, 25);
+        assertEquals("May 25, 2015", new EpochDateField().dateFormat().format(calendar.getTime()));
+    }
+
+    @Test
+    public void testDateCodecsAreSharedAndThreadConfined() throws Exception {
+        final DateCodec codec = DateCodec.of("yyyy-MM-dd", Locale.US);
+        assertSame(codec, DateCodec.of("yyyy-MM-dd", Locale.US));
+        assertNotSame(codec, DateCodec.of("yyyy-MM-dd", Locale.FRANCE));
+
+        final DateFormat[] other = new DateFormat[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                other[0] = codec.getFormat();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertSame(codec.getFormat(), codec.getFormat());
+        assertNotSame(codec.getFormat(), other[0]);
+        assertEquals("2015-05-25", codec.format(codec.parse("2015-05-25")));
+    }
+
+    @Test
+    public void testParseCache() {
+        CountingCodec codec = new CountingCodec();
+        ParseCache<Long> cache = new ParseCache<>(codec);
+
+        assertEquals(Long.valueOf(1), cache.parse("1").getValue());
+        assertTrue(cache.parse("1").isValid());
+        assertEquals(1, codec.parses);
+
+        assertFalse(cache.parse("x").isValid());
+        assertNull(cache.parse("x").getValue());
+        assertEquals(2, codec.parses);
+    }
+}